@@ -0,0 +1,21 @@
+package com.newwork.core.ai;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.ai.hf.chunking")
+@Getter
+@Setter
+public class HfChunkingProps {
+    private boolean enabled = true;
+    // inputs up to this length go to the model in one piece
+    private int thresholdChars = 600;
+    private int maxChunkChars = 400;
+    // concurrent chunk calls per request (the rate limiter still applies globally)
+    private int maxParallel = 4;
+    // polished chunks remembered across requests
+    private int cacheSize = 1000;
+}
@@ -5,4 +5,9 @@ import java.util.Map;
 
 public interface HfClient {
     List<Map<String,Object>> infer(String model, String token, String input);
+
+    /** @param waitForModel ask the API to hold the request while a cold model loads instead of answering 503 */
+    default List<Map<String,Object>> infer(String model, String token, String input, boolean waitForModel) {
+        return infer(model, token, input);
+    }
 }
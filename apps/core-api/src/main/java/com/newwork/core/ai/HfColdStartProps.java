@@ -0,0 +1,33 @@
+package com.newwork.core.ai;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.ai.hf.cold-start")
+@Getter
+@Setter
+public class HfColdStartProps {
+    // after a "model loading" 503, retry with options.wait_for_model instead of sleeping client-side
+    private boolean waitForModel = true;
+    // loading retries do not use up retry.maxAttempts; these bound them instead
+    private int maxLoadRetries = 2;
+    private long maxLoadWaitMs = 60000;
+
+    // opt-in: every ping is a billed inference call
+    private boolean warmupEnabled = false;
+    // HF unloads idle models after a few minutes; ping a bit more often than that
+    private long warmupIntervalMs = 240000;
+    // a ping still waiting on a model load after this is abandoned
+    private long warmupTimeoutMs = 60000;
+    private String warmupZone = "UTC";
+    private List<DayOfWeek> warmupDays = List.of(
+            DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY, DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+    private int warmupFromHour = 7;
+    private int warmupToHour = 19;
+}
@@ -0,0 +1,22 @@
+package com.newwork.core.ai;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.ai.hf.hedge")
+@Getter
+@Setter
+public class HfHedgeProps {
+    private boolean enabled = false;
+    // fire the hedge once the primary is slower than this percentile of recent latencies
+    private double percentile = 0.95;
+    private long minDelayMs = 50;
+    private int windowSize = 200;
+    private int minSamples = 20;
+    // each primary call earns this many hedge tokens; a hedge spends one
+    private double budgetRatio = 0.1;
+    private double budgetMax = 10;
+}
@@ -0,0 +1,127 @@
+package com.newwork.core.ai;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Picks which model of the pool serves the next polish attempt.
+ * Each member tracks an EWMA of latency and error rate plus its in-flight count; the healthy member
+ * with the lowest {@code latency * (inFlight + 1) / (1 - errorRate)} wins. Members that keep failing
+ * are ejected for a while, then let back in with a single probe request.
+ */
+@Component
+public class HfModelRouter {
+
+    public final class Member {
+        private final String model;
+        private double ewmaLatencyMs;
+        private double ewmaError;
+        private long samples;
+        private long successes;
+        private int consecutiveFailures;
+        private int inFlight;
+        private long ejectedUntil;
+        private long ejectMs;
+        private boolean probing;
+
+        private Member(String model) {
+            this.model = model;
+            this.ejectMs = props.getEjectMs();
+        }
+
+        public String model() { return model; }
+
+        private double score(double unmeasuredLatencyMs) {
+            // unmeasured members look as fast as the best measured one, so they get tried while their
+            // errors still count against them
+            double latency = successes == 0 ? unmeasuredLatencyMs : Math.max(1, ewmaLatencyMs);
+            return latency * (inFlight + 1) / Math.max(0.05, 1 - ewmaError);
+        }
+    }
+
+    private final HfRoutingProps props;
+    private final MeterRegistry meters;
+    private final List<Member> members = new ArrayList<>();
+
+    public HfModelRouter(@Value("${app.ai.hf.model}") String primaryModel, HfRoutingProps props, MeterRegistry meters) {
+        this.props = props;
+        this.meters = meters;
+        var names = new LinkedHashSet<String>();
+        if (primaryModel != null && !primaryModel.isBlank()) names.add(primaryModel.trim());
+        for (var m : props.getModels()) if (m != null && !m.isBlank()) names.add(m.trim());
+        for (var n : names) members.add(new Member(n));
+    }
+
+    public List<String> models() {
+        return members.stream().map(Member::model).toList();
+    }
+
+    /** Reserves a member for one call; pair with {@link #onSuccess} or {@link #onFailure}. */
+    public synchronized Member acquire() {
+        long now = System.currentTimeMillis();
+        double fastest = Double.MAX_VALUE;
+        for (var m : members) if (m.successes > 0) fastest = Math.min(fastest, Math.max(1, m.ewmaLatencyMs));
+        double unmeasured = fastest == Double.MAX_VALUE ? 1 : fastest;
+        Member best = null;
+        for (var m : members) {
+            if (m.ejectedUntil > now) continue;
+            // an ejected member that has served its time gets exactly one probe in flight
+            if (m.probing && m.inFlight > 0) continue;
+            if (best == null || m.score(unmeasured) < best.score(unmeasured)) best = m;
+        }
+        if (best == null) {
+            // everyone is out: fail open on whoever comes back first
+            for (var m : members) if (best == null || m.ejectedUntil < best.ejectedUntil) best = m;
+        }
+        best.inFlight++;
+        meters.counter("hf.route.selected", "model", best.model).increment();
+        return best;
+    }
+
+    public synchronized void onSuccess(Member m, long latencyMs) {
+        m.inFlight--;
+        m.samples++;
+        m.successes++;
+        m.ewmaLatencyMs = m.successes == 1 ? latencyMs : ewma(m.ewmaLatencyMs, latencyMs);
+        m.ewmaError = ewma(m.ewmaError, 0);
+        m.consecutiveFailures = 0;
+        if (m.probing) {
+            m.probing = false;
+            m.ewmaError = 0;
+            m.ejectMs = props.getEjectMs();
+        }
+    }
+
+    public synchronized void onFailure(Member m) {
+        m.inFlight--;
+        m.samples++;
+        m.ewmaError = ewma(m.ewmaError, 1);
+        m.consecutiveFailures++;
+        boolean unhealthy = m.probing
+                || m.consecutiveFailures >= props.getConsecutiveFailures()
+                || (m.samples >= props.getMinSamples() && m.ewmaError > props.getErrorThreshold());
+        if (unhealthy) eject(m);
+    }
+
+    /** Releases a member without judging it (e.g. the caller's own input was rejected). */
+    public synchronized void release(Member m) {
+        m.inFlight--;
+    }
+
+    private void eject(Member m) {
+        if (m.probing) m.ejectMs = Math.min(props.getMaxEjectMs(), m.ejectMs * 2);
+        m.ejectedUntil = System.currentTimeMillis() + m.ejectMs;
+        m.probing = true;
+        m.consecutiveFailures = 0;
+        meters.counter("hf.route.ejected", "model", m.model).increment();
+    }
+
+    private double ewma(double prev, double sample) {
+        return props.getEwmaAlpha() * sample + (1 - props.getEwmaAlpha()) * prev;
+    }
+}
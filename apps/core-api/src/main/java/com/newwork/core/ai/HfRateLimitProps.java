@@ -0,0 +1,30 @@
+package com.newwork.core.ai;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.ai.hf.rate-limit")
+@Getter
+@Setter
+public class HfRateLimitProps {
+    private boolean enabled = true;
+    // plan quota; the limiter never goes above it
+    private double permitsPerSecond = 5;
+    private int burst = 5;
+    // floor for the adaptive rate after repeated 429s
+    private double minPermitsPerSecond = 0.5;
+    // additive increase per accepted call, multiplicative decrease per 429
+    private double recoveryStep = 0.05;
+    // additive increase per second after a pause, so the rate recovers even when nothing gets through
+    private double recoveryPerSecond = 0.5;
+    private double decreaseFactor = 0.5;
+    // callers that would wait longer than this are rejected instead of queued
+    private long maxWaitMs = 10_000;
+    // pause used when a 429 carries no (parsable) Retry-After
+    private long defaultRetryAfterMs = 1_000;
+    // longest pause a Retry-After can impose
+    private long maxRetryAfterMs = 60_000;
+}
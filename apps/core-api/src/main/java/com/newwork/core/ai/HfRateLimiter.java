@@ -0,0 +1,144 @@
+package com.newwork.core.ai;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide token bucket in front of every outbound inference call.
+ * Callers reserve a slot and sleep until it is due, so concurrent requests are spread out instead
+ * of hitting the API in lockstep. A 429 halves the rate (down to a floor) and pauses everyone for
+ * the advertised Retry-After. The rate climbs back towards the quota with time once the pause is
+ * over, and faster with each accepted call; time alone has to be enough, because callers rejected
+ * locally never reach the API to be accepted.
+ */
+@Component
+public class HfRateLimiter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final HfRateLimitProps props;
+    private final Counter throttled;
+    private final Counter rejected;
+
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    // time-based recovery is accounted up to here
+    private long recoveredAt;
+
+    public HfRateLimiter(HfRateLimitProps props, MeterRegistry meters) {
+        this.props = props;
+        this.rate = props.getPermitsPerSecond();
+        this.tokens = Math.max(1, props.getBurst());
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+        this.recoveredAt = lastRefill;
+        this.throttled = meters.counter("hf.ratelimit.throttled");
+        this.rejected = meters.counter("hf.ratelimit.rejected");
+        meters.gauge("hf.ratelimit.rate", this, HfRateLimiter::currentRate);
+    }
+
+    /** Blocks until the caller may send; throws 429 when the queue is longer than {@code maxWaitMs}. */
+    public void acquire() {
+        if (!props.isEnabled()) return;
+        long wait = reserve(System.nanoTime());
+        if (wait < 0) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "hf_rate_limited");
+        }
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", ie);
+            }
+        }
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(props.getPermitsPerSecond(), rate + props.getRecoveryStep());
+    }
+
+    /** Called on 429; {@code retryAfter} is the raw header value and may be null. */
+    public void onThrottled(String retryAfter) {
+        throttled.increment();
+        onThrottled(System.nanoTime(), parseRetryAfterMs(retryAfter, props.getDefaultRetryAfterMs()));
+    }
+
+    synchronized void onThrottled(long now, long retryAfterMs) {
+        recover(now);
+        rate = Math.max(props.getMinPermitsPerSecond(), rate * props.getDecreaseFactor());
+        // a hostile or broken Retry-After must not stop all traffic, nor overflow into the past
+        long pauseMs = Math.min(Math.max(0, retryAfterMs), props.getMaxRetryAfterMs());
+        pausedUntil = Math.max(pausedUntil, now + TimeUnit.MILLISECONDS.toNanos(pauseMs));
+        recoveredAt = Math.max(recoveredAt, pausedUntil);
+        // whatever burst was saved up is not valid anymore
+        tokens = Math.min(tokens, 0);
+        lastRefill = Math.max(lastRefill, pausedUntil);
+    }
+
+    /** @return nanos to wait before sending, or -1 if that would exceed {@code maxWaitMs} */
+    synchronized long reserve(long now) {
+        recover(now);
+        if (now > lastRefill) {
+            tokens = Math.min(Math.max(1, props.getBurst()), tokens + (now - lastRefill) * rate / NANOS_PER_SECOND);
+            lastRefill = now;
+        }
+        long wait = Math.max(0, pausedUntil - now);
+        double deficit = 1 - tokens;
+        if (deficit > 0) wait += (long) (deficit / rate * NANOS_PER_SECOND);
+        if (wait > TimeUnit.MILLISECONDS.toNanos(props.getMaxWaitMs())) return -1;
+        tokens -= 1;
+        return wait;
+    }
+
+    public synchronized double currentRate() {
+        recover(System.nanoTime());
+        return rate;
+    }
+
+    /** Forgets throttling history: full quota, full burst, no pause. */
+    public synchronized void reset() {
+        long now = System.nanoTime();
+        rate = props.getPermitsPerSecond();
+        tokens = Math.max(1, props.getBurst());
+        lastRefill = now;
+        pausedUntil = now;
+        recoveredAt = now;
+    }
+
+    // additive increase per second elapsed since the last pause ended
+    private void recover(long now) {
+        if (now <= recoveredAt) return;
+        rate = Math.min(props.getPermitsPerSecond(),
+                rate + props.getRecoveryPerSecond() * (now - recoveredAt) / NANOS_PER_SECOND);
+        recoveredAt = now;
+    }
+
+    /** Retry-After is either delta-seconds or an HTTP-date. */
+    static long parseRetryAfterMs(String header, long fallbackMs) {
+        if (header == null || header.isBlank()) return fallbackMs;
+        var v = header.trim();
+        try {
+            return Math.max(0, (long) (Double.parseDouble(v) * 1000));
+        } catch (NumberFormatException ignored) {
+            // fall through to date form
+        }
+        try {
+            var at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+        } catch (DateTimeParseException ignored) {
+            return fallbackMs;
+        }
+    }
+}
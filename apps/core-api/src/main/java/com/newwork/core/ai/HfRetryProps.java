@@ -16,4 +16,11 @@ public class HfRetryProps {
     private long maxDelayMs = 2000;
     private long jitterMs = 100;
     private int[] retryOnStatus = new int[]{408,429,500,502,503,504};
+    // 429s are paced by the rate limiter's pause and counted here, not against maxAttempts
+    private int maxThrottleRetries = 3;
+    // process-wide: each first attempt earns budgetRatio retry tokens (capped at budgetMax), each retry spends one
+    private double budgetRatio = 0.1;
+    private double budgetMax = 10;
+    // floor so low traffic can still retry a blip, however few first attempts there were
+    private double budgetMinPerSecond = 1;
 }
@@ -0,0 +1,26 @@
+package com.newwork.core.ai;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.ai.hf.routing")
+@Getter
+@Setter
+public class HfRoutingProps {
+    // extra models/endpoints next to app.ai.hf.model
+    private List<String> models = new ArrayList<>();
+    private double ewmaAlpha = 0.2;
+    // error rate is only trusted after this many calls
+    private int minSamples = 5;
+    private double errorThreshold = 0.5;
+    private int consecutiveFailures = 3;
+    // ejection doubles on every failed probe, up to maxEjectMs
+    private long ejectMs = 30_000;
+    private long maxEjectMs = 300_000;
+}
@@ -0,0 +1,51 @@
+package com.newwork.core.ai;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token budget for extra outbound calls (hedges, retries).
+ * Every first attempt deposits {@code ratio} tokens up to {@code max}; every extra call withdraws one,
+ * so extra load stays around {@code ratio} of the normal traffic. An optional floor also accrues
+ * {@code minPerSecond} tokens with time, so a quiet process can still retry a one-off blip.
+ */
+public class RequestBudget {
+    private final double ratio;
+    private final double max;
+    private final double minPerSecond;
+    private double tokens;
+    private long lastAccrual;
+
+    public RequestBudget(double ratio, double max) {
+        this(ratio, max, 0);
+    }
+
+    public RequestBudget(double ratio, double max, double minPerSecond) {
+        this.ratio = Math.max(0, ratio);
+        this.max = Math.max(0, max);
+        this.minPerSecond = Math.max(0, minPerSecond);
+        this.tokens = this.max;
+        this.lastAccrual = System.nanoTime();
+    }
+
+    public synchronized void deposit() {
+        tokens = Math.min(max, tokens + ratio);
+    }
+
+    public synchronized boolean tryWithdraw() {
+        accrue(System.nanoTime());
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    public synchronized double available() {
+        accrue(System.nanoTime());
+        return tokens;
+    }
+
+    private void accrue(long now) {
+        if (minPerSecond > 0 && now > lastAccrual)
+            tokens = Math.min(max, tokens + (now - lastAccrual) * minPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastAccrual = now;
+    }
+}
@@ -0,0 +1,40 @@
+package com.newwork.core.ai;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Splits text into sentence-aligned chunks of at most {@code maxChars} (a longer sentence stays whole). */
+public final class SentenceChunker {
+    private SentenceChunker(){}
+
+    /** @param text the chunk without surrounding whitespace; @param separator the whitespace that followed it */
+    public record Chunk(String text, String separator) {}
+
+    public static List<Chunk> split(String input, int maxChars) {
+        var out = new ArrayList<Chunk>();
+        var it = BreakIterator.getSentenceInstance(Locale.ENGLISH);
+        it.setText(input);
+
+        var current = new StringBuilder();
+        int start = it.first();
+        for (int end = it.next(); end != BreakIterator.DONE; start = end, end = it.next()) {
+            var sentence = input.substring(start, end);
+            if (current.length() > 0 && current.length() + sentence.stripTrailing().length() > maxChars) {
+                out.add(toChunk(current));
+                current.setLength(0);
+            }
+            current.append(sentence);
+        }
+        if (current.length() > 0) out.add(toChunk(current));
+        return out;
+    }
+
+    private static Chunk toChunk(CharSequence raw) {
+        var s = raw.toString();
+        int cut = s.length();
+        while (cut > 0 && Character.isWhitespace(s.charAt(cut - 1))) cut--;
+        return new Chunk(s.substring(0, cut).strip(), s.substring(cut));
+    }
+}
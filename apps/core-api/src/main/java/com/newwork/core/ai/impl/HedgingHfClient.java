@@ -0,0 +1,127 @@
+package com.newwork.core.ai.impl;
+
+import com.newwork.core.ai.HfClient;
+import com.newwork.core.ai.HfHedgeProps;
+import com.newwork.core.ai.RequestBudget;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Hedges slow inference calls: if the primary attempt has not answered within the configured
+ * percentile of recent latencies, an identical second request is fired and the first
+ * successful answer wins. The loser is cancelled (interrupting the blocking HTTP call).
+ */
+@Component
+@Primary
+public class HedgingHfClient implements HfClient {
+    private final HfClient delegate;
+    private final HfHedgeProps props;
+    private final LatencyWindow latencies;
+    private final RequestBudget budget;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter calls;
+    private final Counter hedged;
+    private final Counter hedgeWins;
+    private final Counter budgetExhausted;
+
+    public HedgingHfClient(HfClientRest delegate, HfHedgeProps props, MeterRegistry meters) {
+        this.delegate = delegate;
+        this.props = props;
+        this.latencies = new LatencyWindow(props.getWindowSize());
+        this.budget = new RequestBudget(props.getBudgetRatio(), props.getBudgetMax());
+        this.calls = meters.counter("hf.hedge.calls");
+        this.hedged = meters.counter("hf.hedge.fired");
+        this.hedgeWins = meters.counter("hf.hedge.wins");
+        this.budgetExhausted = meters.counter("hf.hedge.budget_exhausted");
+    }
+
+    @Override
+    public List<Map<String, Object>> infer(String model, String token, String input) {
+        if (!props.isEnabled()) return delegate.infer(model, token, input);
+
+        calls.increment();
+        budget.deposit();
+
+        var cs = new ExecutorCompletionService<List<Map<String, Object>>>(executor);
+        var pending = new ArrayList<Future<List<Map<String, Object>>>>(2);
+        try {
+            var primary = cs.submit(() -> timed(model, token, input));
+            pending.add(primary);
+
+            long delay = hedgeDelayMs();
+            Future<List<Map<String, Object>>> done = delay < 0 ? cs.take() : cs.poll(delay, TimeUnit.MILLISECONDS);
+            Future<List<Map<String, Object>>> hedge = null;
+            if (done == null) {
+                if (budget.tryWithdraw()) {
+                    hedged.increment();
+                    hedge = cs.submit(() -> timed(model, token, input));
+                    pending.add(hedge);
+                } else {
+                    budgetExhausted.increment();
+                }
+                done = cs.take();
+            }
+
+            RuntimeException failure = null;
+            for (int remaining = pending.size(); remaining > 0; remaining--) {
+                if (done == null) done = cs.take();
+                try {
+                    var out = done.get();
+                    if (done == hedge) hedgeWins.increment();
+                    return out;
+                } catch (ExecutionException ex) {
+                    // keep waiting for the other attempt, surface the first failure if both fail
+                    if (failure == null) failure = unwrap(ex);
+                }
+                done = null;
+            }
+            throw failure;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted", ie);
+        } finally {
+            for (var f : pending) f.cancel(true);
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> infer(String model, String token, String input, boolean waitForModel) {
+        // a call that waits for a model load is slow by design; neither hedge it nor let it skew the window
+        if (waitForModel) return delegate.infer(model, token, input, true);
+        return infer(model, token, input);
+    }
+
+    /** @return how long to wait before hedging, or -1 while there is too little history to judge */
+    long hedgeDelayMs() {
+        if (latencies.size() < props.getMinSamples()) return -1;
+        return Math.max(props.getMinDelayMs(), latencies.percentile(props.getPercentile()));
+    }
+
+    private List<Map<String, Object>> timed(String model, String token, String input) {
+        long start = System.nanoTime();
+        var out = delegate.infer(model, token, input);
+        latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return out;
+    }
+
+    private static RuntimeException unwrap(ExecutionException ex) {
+        var cause = ex.getCause();
+        if (cause instanceof RuntimeException re) return re;
+        if (cause instanceof Error err) throw err;
+        return new IllegalStateException(cause);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
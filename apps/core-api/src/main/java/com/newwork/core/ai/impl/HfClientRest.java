@@ -1,29 +1,75 @@
 package com.newwork.core.ai.impl;
 
 import com.newwork.core.ai.HfClient;
+import com.newwork.core.ai.HfRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 
 @Component
 public class HfClientRest implements HfClient {
+    private final RestClient http;
+    private final HfRateLimiter limiter;
+
+    public HfClientRest(@Value("${app.ai.hf.baseUrl:https://api-inference.huggingface.co/models}") String baseUrl,
+                        @Value("${app.ai.hf.connect-timeout-ms:5000}") long connectTimeoutMs,
+                        @Value("${app.ai.hf.read-timeout-ms:75000}") long readTimeoutMs,
+                        HfRateLimiter limiter) {
+        // one client (and connection pool) for the lifetime of the app; a hung call must end, or the
+        // retry loop waiting on it never does
+        var jdk = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(connectTimeoutMs)).build();
+        var factory = new JdkClientHttpRequestFactory(jdk);
+        factory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+        this.http = RestClient.builder().baseUrl(baseUrl).requestFactory(factory).build();
+        this.limiter = limiter;
+    }
+
     @Override
     public List<Map<String, Object>> infer(String model, String token, String input) {
-        var http = RestClient.builder()
-                .baseUrl("https://api-inference.huggingface.co/models/" + model)
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token)
-                .build();
-
-        var payload = Map.of("inputs", "grammar: " + input);
-        return http.post()
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(payload)
-                .retrieve()
-                .body(new ParameterizedTypeReference<>() {});
+        return infer(model, token, input, false);
+    }
+
+    @Override
+    public List<Map<String, Object>> infer(String model, String token, String input, boolean waitForModel) {
+        Map<String, Object> payload = waitForModel
+                ? Map.of("inputs", "grammar: " + input, "options", Map.of("wait_for_model", true))
+                : Map.of("inputs", "grammar: " + input);
+        return post(model, token, payload);
+    }
+
+    /** Raw inference for non-grammar tasks (e.g. summarization); same limiter and connection pool. */
+    public List<Map<String, Object>> generate(String model, String token, String inputs) {
+        return post(model, token, Map.of("inputs", inputs, "options", Map.of("wait_for_model", true)));
+    }
+
+    private List<Map<String, Object>> post(String model, String token, Map<String, Object> payload) {
+        limiter.acquire();
+        try {
+            List<Map<String, Object>> out = http.post()
+                    .uri("/" + model)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(payload)
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<>() {});
+            limiter.onSuccess();
+            return out;
+        } catch (RestClientResponseException ex) {
+            if (ex.getStatusCode().value() == 429) {
+                var headers = ex.getResponseHeaders();
+                limiter.onThrottled(headers == null ? null : headers.getFirst(HttpHeaders.RETRY_AFTER));
+            }
+            throw ex;
+        }
     }
 }
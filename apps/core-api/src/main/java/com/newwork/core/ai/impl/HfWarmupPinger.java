@@ -0,0 +1,94 @@
+package com.newwork.core.ai.impl;
+
+import com.newwork.core.ai.HfColdStartProps;
+import com.newwork.core.ai.HfModelRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the pool's models loaded during business hours with a tiny request every few minutes,
+ * so the first feedback after a quiet spell doesn't pay the cold start. Goes straight to the REST
+ * client: no hedging, but still through the shared rate limiter.
+ * <p>
+ * A ping that lands on a cold model sits through the load, so rounds run on their own virtual
+ * threads and each ping is cut off after {@code warmup-timeout-ms}; the scheduler thread only
+ * starts a round, and skips it while the previous one is still going.
+ */
+@Component
+public class HfWarmupPinger {
+    static final String PING = "ok";
+
+    private final HfClientRest client;
+    private final HfModelRouter router;
+    private final HfColdStartProps props;
+    private final String token;
+    private final MeterRegistry meters;
+    private final ExecutorService pings = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public HfWarmupPinger(HfClientRest client, HfModelRouter router, HfColdStartProps props,
+                          @Value("${app.ai.hf.token}") String token, MeterRegistry meters) {
+        this.client = client;
+        this.router = router;
+        this.props = props;
+        this.token = token;
+        this.meters = meters;
+    }
+
+    @Scheduled(initialDelayString = "${app.ai.hf.cold-start.warmup-interval-ms:240000}",
+               fixedDelayString = "${app.ai.hf.cold-start.warmup-interval-ms:240000}")
+    public void ping() {
+        if (!props.isWarmupEnabled() || !inBusinessHours(ZonedDateTime.now(ZoneId.of(props.getWarmupZone())))) return;
+        if (!running.compareAndSet(false, true)) return;
+        try {
+            pings.execute(() -> {
+                try {
+                    router.models().forEach(this::pingOne);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            running.set(false);
+        }
+    }
+
+    void pingOne(String model) {
+        // wait_for_model: a ping that lands on a cold model starts (and sits through) the load
+        var call = pings.submit(() -> client.infer(model, token, PING, true));
+        String outcome;
+        try {
+            call.get(props.getWarmupTimeoutMs(), TimeUnit.MILLISECONDS);
+            outcome = "ok";
+        } catch (TimeoutException ex) {
+            call.cancel(true);
+            outcome = "timeout";
+        } catch (ExecutionException ex) {
+            outcome = "failed";
+        } catch (InterruptedException ex) {
+            call.cancel(true);
+            Thread.currentThread().interrupt();
+            return;
+        }
+        meters.counter("hf.warmup.pings", "model", model, "outcome", outcome).increment();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pings.shutdownNow();
+    }
+
+    boolean inBusinessHours(ZonedDateTime now) {
+        int h = now.getHour();
+        return props.getWarmupDays().contains(now.getDayOfWeek())
+                && h >= props.getWarmupFromHour() && h < props.getWarmupToHour();
+    }
+}
@@ -0,0 +1,34 @@
+package com.newwork.core.ai.impl;
+
+import java.util.Arrays;
+
+/** Fixed-size ring of the most recent latencies (ms). */
+final class LatencyWindow {
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    LatencyWindow(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    synchronized void record(long ms) {
+        samples[next] = ms;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+    }
+
+    synchronized int size() { return size; }
+
+    /** @return the p-th percentile (0..1) of the window, or -1 when empty */
+    long percentile(double p) {
+        long[] copy;
+        synchronized (this) {
+            if (size == 0) return -1;
+            copy = Arrays.copyOf(samples, size);
+        }
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(Math.min(1.0, Math.max(0.0, p)) * copy.length) - 1;
+        return copy[Math.max(0, idx)];
+    }
+}
@@ -0,0 +1,23 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConfigurationProperties(prefix = "app.absence.attachments")
+@Getter
+@Setter
+public class AbsenceAttachmentProps {
+    // partial uploads and content-addressed files live under here
+    private String dir = "./data/attachments";
+    private long maxBytes = 20L * 1024 * 1024;
+    private List<String> contentTypes = List.of("image/jpeg", "image/png", "image/heic", "application/pdf");
+    // chunks written at the same time; more get 429 and retry, so disk and memory stay flat
+    private int maxConcurrentChunks = 32;
+    // unfinished uploads untouched this long are deleted
+    private int expireAfterHours = 24;
+}
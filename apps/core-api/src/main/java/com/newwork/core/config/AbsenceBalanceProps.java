@@ -0,0 +1,21 @@
+package com.newwork.core.config;
+
+import com.newwork.core.domain.AbsenceType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+@Component
+@ConfigurationProperties(prefix = "app.absence.balance")
+@Getter
+@Setter
+public class AbsenceBalanceProps {
+    // refuse new requests that would take a limited type below zero
+    private boolean enforce = true;
+    // yearly days per type; types without an entry are tracked but unlimited
+    private Map<AbsenceType, Integer> allowanceDays = new EnumMap<>(Map.of(AbsenceType.VACATION, 25));
+}
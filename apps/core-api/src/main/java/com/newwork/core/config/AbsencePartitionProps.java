@@ -0,0 +1,23 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.absence.partitions")
+@Getter
+@Setter
+public class AbsencePartitionProps {
+    // PostgreSQL only: maintain absence_request as yearly range partitions on start_date
+    private boolean enabled = false;
+    // with enabled: convert a plain absence_request at this start, keeping the original as absence_request_unpartitioned
+    private boolean convert = false;
+    // partitions kept ready beyond the current year
+    private int yearsAhead = 1;
+    // detach, export and drop years that closed this many years ago; 0 keeps everything online
+    private int archiveAfterYears = 0;
+    // where archived years go, one gzip'd CSV per year
+    private String archiveDir = "./data/archive";
+}
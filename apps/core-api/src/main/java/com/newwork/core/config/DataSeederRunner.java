@@ -2,6 +2,7 @@ package com.newwork.core.config;
 
 import com.newwork.core.domain.*;
 import com.newwork.core.repo.*;
+import com.newwork.core.service.impl.AbsencePartitions;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -152,7 +153,8 @@ public class DataSeederRunner implements CommandLineRunner {
             feedbackRepository.save(f2);
         }
 
-        if (absenceRepo.findByEmployeeIdOrderByStartDateDesc(bob.getId())
+        var hotFrom = AbsencePartitions.hotFrom(LocalDate.now());
+        if (absenceRepo.findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(bob.getId(), hotFrom)
                 .stream().noneMatch(a -> a.getStatus() == AbsenceStatus.PENDING)) {
             var a = new AbsenceRequest();
             a.setEmployee(bob);
@@ -164,7 +166,7 @@ public class DataSeederRunner implements CommandLineRunner {
             absenceRepo.save(a);
         }
 
-        if (absenceRepo.findByEmployeeIdOrderByStartDateDesc(alice.getId())
+        if (absenceRepo.findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(alice.getId(), hotFrom)
                 .stream().noneMatch(x -> x.getStatus() == AbsenceStatus.APPROVED)) {
             var a2 = new AbsenceRequest();
             a2.setEmployee(alice);
@@ -0,0 +1,24 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.feedback.backfill")
+@Getter
+@Setter
+public class FeedbackBackfillProps {
+    // rows read, polished and written back (one transaction, one checkpoint) per step
+    private int batchSize = 50;
+    // polish calls in flight at once
+    private int concurrency = 4;
+    private double permitsPerSecond = 2;
+    // never take more than this share of the shared HF rate, so live feedback keeps its headroom
+    private double maxShareOfLimiter = 0.5;
+    // a row whose polish keeps failing is tried this many times before the job stops as FAILED in front of it
+    private int maxRowAttempts = 3;
+    // pick a RUNNING job back up after a restart
+    private boolean resumeOnStartup = true;
+}
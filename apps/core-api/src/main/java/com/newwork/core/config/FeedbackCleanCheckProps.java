@@ -0,0 +1,20 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.feedback.clean-check")
+@Getter
+@Setter
+public class FeedbackCleanCheckProps {
+    private boolean enabled = true;
+    // score and count only; every submission still goes to the model
+    private boolean shadow = true;
+    // texts scoring at or above this are stored as written (1.0 = no issue found at all)
+    private double threshold = 0.95;
+    // very short texts are too little evidence to skip the model
+    private int minWords = 4;
+}
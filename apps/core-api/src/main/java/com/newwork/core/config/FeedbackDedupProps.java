@@ -0,0 +1,23 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.feedback.dedup")
+@Getter
+@Setter
+public class FeedbackDedupProps {
+    private boolean enabled = true;
+    // detect and count only; every submission still goes to the model
+    private boolean shadow = false;
+    // shingle Jaccard similarity needed to count two originals as near-duplicates
+    private double minSimilarity = 0.8;
+    // memory bound: (employee, author) pairs kept, and recent texts per pair
+    private int maxKeys = 10_000;
+    private int perKey = 20;
+    // rows read from the feedback table on startup
+    private int rebuildLimit = 50_000;
+}
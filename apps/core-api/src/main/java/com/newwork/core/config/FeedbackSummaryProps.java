@@ -0,0 +1,22 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "app.feedback.summary")
+@Getter
+@Setter
+public class FeedbackSummaryProps {
+    // "hf" (remote summarization model) or "local" (extractive stand-in, no network)
+    private String engine = "hf";
+    private String model = "facebook/bart-large-cnn";
+    // local engine: sentences kept in the running summary
+    private int maxSentences = 5;
+    // rows folded per catch-up query
+    private int batchSize = 100;
+    // summaries kept in memory, keyed by (employee, last feedback id)
+    private int cacheSize = 1000;
+}
@@ -0,0 +1,34 @@
+package com.newwork.core.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+@ConfigurationProperties(prefix = "app.absence.calendar")
+@Getter
+@Setter
+public class HolidayCalendarProps {
+    // employees carry no location yet, so every count uses this calendar
+    private String defaultCountry = "DE";
+    private Map<String, Country> countries = new LinkedHashMap<>();
+
+    @Getter
+    @Setter
+    public static class Country {
+        private Set<DayOfWeek> weekend = EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        // same day every year, "MM-dd"
+        private List<String> fixed = new ArrayList<>();
+        // one-off or movable holidays (Easter and friends), "yyyy-MM-dd"
+        private List<String> dates = new ArrayList<>();
+    }
+}
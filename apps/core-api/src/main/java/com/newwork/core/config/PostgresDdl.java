@@ -0,0 +1,65 @@
+package com.newwork.core.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Schema pieces Hibernate's ddl-auto cannot express (partial indexes, exclusion constraints),
+ * applied once the tables exist. Everything here is PostgreSQL-only and idempotent; on other
+ * databases (H2 in tests) it is skipped.
+ */
+@Slf4j
+@Component
+public class PostgresDdl {
+
+    static final List<String> INDEXES = List.of(
+            // superseded by ix_feedback_employee_created_id_desc; its mixed id order could not serve a row-comparison cursor
+            "DROP INDEX IF EXISTS ix_feedback_employee_created_id",
+            // the approval inbox: stays as small as the number of open requests, whatever the history
+            "CREATE INDEX IF NOT EXISTS ix_absence_pending_created ON absence_request (created_at, id) WHERE status = 'PENDING'"
+    );
+
+    private final JdbcTemplate jdbc;
+    private volatile Boolean postgres;
+
+    public PostgresDdl(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void installIndexes() {
+        for (var ddl : INDEXES) apply(ddl);
+    }
+
+    /** @return true when {@code ddl} ran on PostgreSQL; false when skipped or it failed */
+    public boolean apply(String ddl) {
+        if (!isPostgres()) return false;
+        try {
+            jdbc.execute(ddl);
+            return true;
+        } catch (DataAccessException e) {
+            // callers fall back to something weaker; say what was lost and why
+            log.warn("Schema statement not applied: {}", ddl.strip().lines().findFirst().orElse(ddl), e);
+            return false;
+        }
+    }
+
+    public boolean isPostgres() {
+        if (postgres == null) {
+            try {
+                var product = jdbc.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+                postgres = "PostgreSQL".equalsIgnoreCase(product);
+            } catch (DataAccessException e) {
+                postgres = false;
+            }
+        }
+        return postgres;
+    }
+}
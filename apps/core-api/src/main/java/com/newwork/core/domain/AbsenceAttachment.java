@@ -0,0 +1,43 @@
+package com.newwork.core.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A finished upload attached to an absence request. The bytes live once per distinct content,
+ * named by their SHA-256, so the same note attached twice takes the disk space of one.
+ */
+@Entity
+@Table(name = "absence_attachment",
+        indexes = @Index(name = "ix_absence_attachment_absence", columnList = "absence_id, created_at"))
+@Getter
+@Setter
+public class AbsenceAttachment {
+    @Id @GeneratedValue
+    private UUID id;
+
+    // no foreign key: absence_request is partitioned on PostgreSQL and its key includes start_date
+    @Column(name = "absence_id", nullable = false)
+    private UUID absenceId;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist void prePersist() { createdAt = Instant.now(); }
+}
@@ -0,0 +1,43 @@
+package com.newwork.core.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * An attachment upload in progress. The bytes received so far sit in a partial file whose size is
+ * the upload offset (and whose modification time is the last activity), so a client can resume
+ * after a dropped connection or a restart without a row update per chunk.
+ */
+@Entity
+@Table(name = "absence_attachment_upload")
+@Getter
+@Setter
+public class AbsenceAttachmentUpload {
+    @Id @GeneratedValue
+    private UUID id;
+
+    @Column(name = "absence_id", nullable = false)
+    private UUID absenceId;
+
+    // the absence owner; only they may send chunks
+    @Column(nullable = false)
+    private UUID employeeId;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(nullable = false, length = 100)
+    private String contentType;
+
+    @Column(nullable = false)
+    private long length;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist void prePersist() { createdAt = Instant.now(); }
+}
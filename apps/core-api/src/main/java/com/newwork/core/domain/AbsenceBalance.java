@@ -0,0 +1,63 @@
+package com.newwork.core.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Running day counts of one employee, year and absence type, moved by every status change of a
+ * request so that reading a balance is a primary-key lookup.
+ */
+@Entity
+@Table(name = "absence_balance")
+@Getter
+@Setter
+public class AbsenceBalance {
+
+    @Embeddable
+    @Getter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        @Column(name = "employee_id", nullable = false)
+        private UUID employeeId;
+
+        @Column(name = "balance_year", nullable = false)
+        private int year;
+
+        @Enumerated(EnumType.STRING)
+        @Column(nullable = false, length = 32)
+        private AbsenceType type;
+    }
+
+    @EmbeddedId
+    private Key id;
+
+    // null means the type has no yearly limit
+    @Column(name = "allowance_days")
+    private Integer allowanceDays;
+
+    // days of PENDING requests, held so two open requests cannot both spend the same days
+    @Column(name = "reserved_days", nullable = false)
+    private int reservedDays;
+
+    // days of APPROVED requests
+    @Column(name = "used_days", nullable = false)
+    private int usedDays;
+
+    @Version
+    private Integer version;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist @PreUpdate void touch() { updatedAt = Instant.now(); }
+
+    public Integer remainingDays() {
+        return allowanceDays == null ? null : allowanceDays - usedDays - reservedDays;
+    }
+}
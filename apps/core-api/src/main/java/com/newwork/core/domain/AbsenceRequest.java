@@ -9,7 +9,13 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(name="absence_request")
+@Table(name="absence_request",
+        indexes = {
+                @Index(name="ix_absence_employee_start", columnList = "employee_id, start_date"),
+                // range overlap across everyone: start_date <= :to bounds the scan, end_date >= :from is checked in the index
+                @Index(name="ix_absence_start_end", columnList = "start_date, end_date"),
+                @Index(name="ix_absence_series", columnList = "series_id")
+        })
 @Getter
 @Setter
 public class AbsenceRequest {
@@ -33,6 +39,9 @@ public class AbsenceRequest {
     @Column(length = 1000)
     private String reason;
 
+    // shared by the occurrences of a recurring request; null for one-off requests
+    private UUID seriesId;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 16)
     private AbsenceStatus status = AbsenceStatus.PENDING;
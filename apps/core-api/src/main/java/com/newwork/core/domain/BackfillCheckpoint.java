@@ -0,0 +1,46 @@
+package com.newwork.core.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Progress of a resumable background job; one row per job name. */
+@Entity
+@Table(name = "backfill_checkpoint")
+@Getter
+@Setter
+public class BackfillCheckpoint {
+    @Id
+    @Column(length = 64)
+    private String job;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private BackfillState state;
+
+    @Column(name = "target_model", nullable = false)
+    private String targetModel;
+
+    // keyset position: every row up to and including this id has been handled
+    @Column(name = "last_id")
+    private UUID lastId;
+
+    private long processed;
+    private long updated;
+    // failed polish attempts; the row itself is retried, the checkpoint waits in front of it
+    private long failed;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist @PreUpdate void touch() { updatedAt = Instant.now(); }
+}
@@ -0,0 +1,2 @@
+package com.newwork.core.domain;
+public enum BackfillState { RUNNING, PAUSED, DONE, FAILED }
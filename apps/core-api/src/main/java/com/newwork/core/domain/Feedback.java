@@ -3,6 +3,7 @@ package com.newwork.core.domain;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -12,7 +13,8 @@ import java.util.UUID;
 @Entity
 @Table(name = "feedback",
         indexes = {
-                @Index(name="ix_feedback_employee", columnList = "employee_id"),
+                // keyset paging per employee: where employee_id = ? and (created_at, id) < cursor, both descending
+                @Index(name="ix_feedback_employee_created_id_desc", columnList = "employee_id, created_at desc, id desc"),
                 @Index(name="ix_feedback_created",  columnList = "created_at")
         })
 @Getter
@@ -37,6 +39,11 @@ public class Feedback {
     @Column(name = "polish_model", nullable = false)
     private String polishModel;
 
+    // distinct models behind a chunked polish; polishModel names the one that served most of it
+    @ColumnDefault("1")
+    @Column(name = "polish_model_count", nullable = false)
+    private int polishModelCount = 1;
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private Instant createdAt;
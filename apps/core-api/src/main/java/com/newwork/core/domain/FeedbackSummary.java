@@ -0,0 +1,40 @@
+package com.newwork.core.domain;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Running summary of an employee's feedback, folded forward one item at a time. */
+@Entity
+@Table(name = "feedback_summary")
+@Getter
+@Setter
+public class FeedbackSummary {
+    @Id
+    @Column(name = "employee_id")
+    private UUID employeeId;
+
+    @Column(nullable = false, length = 4000)
+    private String summary = "";
+
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    // newest feedback folded in so far; (last_feedback_at, last_feedback_id) is the keyset position
+    @Column(name = "last_feedback_id")
+    private UUID lastFeedbackId;
+
+    @Column(name = "last_feedback_at")
+    private Instant lastFeedbackAt;
+
+    @Column(nullable = false)
+    private String model;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    @PrePersist @PreUpdate void touch() { updatedAt = Instant.now(); }
+}
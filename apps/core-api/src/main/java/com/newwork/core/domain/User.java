@@ -26,4 +26,8 @@ public class User {
 
     // link to Employee row (nullable)
     private UUID employeeId;
+
+    // SHA-256 of the calendar feed token (nullable); the token itself is only shown once
+    @Column(unique = true, length = 64)
+    private String feedTokenHash;
 }
\ No newline at end of file
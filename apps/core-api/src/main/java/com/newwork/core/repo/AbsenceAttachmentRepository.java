@@ -0,0 +1,11 @@
+package com.newwork.core.repo;
+
+import com.newwork.core.domain.AbsenceAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface AbsenceAttachmentRepository extends JpaRepository<AbsenceAttachment, UUID> {
+    List<AbsenceAttachment> findByAbsenceIdOrderByCreatedAt(UUID absenceId);
+}
@@ -0,0 +1,12 @@
+package com.newwork.core.repo;
+
+import com.newwork.core.domain.AbsenceAttachmentUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface AbsenceAttachmentUploadRepository extends JpaRepository<AbsenceAttachmentUpload, UUID> {
+    List<AbsenceAttachmentUpload> findByCreatedAtBefore(Instant cutoff);
+}
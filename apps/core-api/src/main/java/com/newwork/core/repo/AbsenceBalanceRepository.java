@@ -0,0 +1,39 @@
+package com.newwork.core.repo;
+
+import com.newwork.core.domain.AbsenceBalance;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface AbsenceBalanceRepository extends JpaRepository<AbsenceBalance, AbsenceBalance.Key> {
+
+    // serialises concurrent moves on the same balance row inside the caller's transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from AbsenceBalance b where b.id = :id")
+    Optional<AbsenceBalance> findForUpdate(@Param("id") AbsenceBalance.Key id);
+
+    /**
+     * Opens a row unless one exists already. Two transactions opening the same key do not fail: the
+     * second insert waits for the first and then does nothing.
+     * @return rows inserted, 0 or 1
+     */
+    @Modifying
+    @Query(value = """
+            insert into absence_balance (employee_id, balance_year, type, allowance_days, reserved_days, used_days, version, updated_at)
+            values (:employeeId, :year, :type, :allowanceDays, :reservedDays, :usedDays, 0, :now)
+            on conflict do nothing""", nativeQuery = true)
+    int insertIfAbsent(@Param("employeeId") UUID employeeId,
+                       @Param("year") int year,
+                       @Param("type") String type,
+                       @Param("allowanceDays") Integer allowanceDays,
+                       @Param("reservedDays") int reservedDays,
+                       @Param("usedDays") int usedDays,
+                       @Param("now") Instant now);
+}
@@ -1,11 +1,245 @@
 package com.newwork.core.repo;
 
 import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+/**
+ * On PostgreSQL the table is range-partitioned by start_date year (see AbsencePartitions); range
+ * queries carry a lower bound on startDate so only the partitions that can match are scanned.
+ */
 public interface AbsenceRequestRepository extends JpaRepository<AbsenceRequest, UUID> {
-    List<AbsenceRequest> findByEmployeeIdOrderByStartDateDesc(UUID employeeId);
+    List<AbsenceRequest> findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(UUID employeeId, LocalDate from);
+
+    // lookups by id try the hot partitions first; the id alone cannot prune, so only a miss probes every year
+    @Query("select a from AbsenceRequest a where a.id = :id and a.startDate >= :earliestStart")
+    Optional<AbsenceRequest> findByIdStartingFrom(@Param("id") UUID id, @Param("earliestStart") LocalDate earliestStart);
+
+    @Query("select a from AbsenceRequest a where a.id in :ids and a.startDate >= :earliestStart")
+    List<AbsenceRequest> findAllByIdStartingFrom(@Param("ids") Collection<UUID> ids,
+                                                 @Param("earliestStart") LocalDate earliestStart);
+
+    List<AbsenceRequest> findBySeriesIdOrderByStartDate(UUID seriesId);
+
+    /** Date span of one request. */
+    interface Span {
+        UUID getId();
+        UUID getEmployeeId();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+    }
+
+    // availability sweep input; everyone, or only the given employees
+    @Query("""
+            select a.id as id, a.employee.id as employeeId, a.startDate as startDate, a.endDate as endDate
+            from AbsenceRequest a
+            where a.startDate <= :to and a.endDate >= :from
+              and a.startDate >= :earliestStart
+              and a.status in :statuses and a.type in :types""")
+    List<Span> findSpansIntersecting(@Param("from") LocalDate from,
+                                     @Param("to") LocalDate to,
+                                     @Param("earliestStart") LocalDate earliestStart,
+                                     @Param("statuses") Collection<AbsenceStatus> statuses,
+                                     @Param("types") Collection<AbsenceType> types);
+
+    @Query("""
+            select a.id as id, a.employee.id as employeeId, a.startDate as startDate, a.endDate as endDate
+            from AbsenceRequest a
+            where a.employee.id in :employeeIds
+              and a.startDate <= :to and a.endDate >= :from
+              and a.startDate >= :earliestStart
+              and a.status in :statuses and a.type in :types""")
+    List<Span> findSpansIntersectingOf(@Param("employeeIds") Collection<UUID> employeeIds,
+                                       @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to,
+                                       @Param("earliestStart") LocalDate earliestStart,
+                                       @Param("statuses") Collection<AbsenceStatus> statuses,
+                                       @Param("types") Collection<AbsenceType> types);
+
+    /** Calendar cell: one request plus the name to label it with, without loading the entities. */
+    interface CalendarRow {
+        UUID getId();
+        UUID getEmployeeId();
+        String getFirstName();
+        String getLastName();
+        AbsenceType getType();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        AbsenceStatus getStatus();
+    }
+
+    @Query("""
+            select a.id as id, e.id as employeeId, e.firstName as firstName, e.lastName as lastName,
+                   a.type as type, a.startDate as startDate, a.endDate as endDate, a.status as status
+            from AbsenceRequest a join a.employee e
+            where a.startDate <= :to and a.endDate >= :from
+              and a.startDate >= :earliestStart
+              and a.status in :statuses
+            order by a.startDate, e.lastName, e.firstName, a.id""")
+    List<CalendarRow> findCalendar(@Param("from") LocalDate from,
+                                   @Param("to") LocalDate to,
+                                   @Param("earliestStart") LocalDate earliestStart,
+                                   @Param("statuses") Collection<AbsenceStatus> statuses);
+
+    /** Approval inbox row; carries the version so the manager can decide with If-Match straight away. */
+    interface PendingRow {
+        UUID getId();
+        UUID getEmployeeId();
+        String getFirstName();
+        String getLastName();
+        AbsenceType getType();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        String getReason();
+        Instant getCreatedAt();
+        Integer getVersion();
+    }
+
+    // status literal (not a parameter) so PostgreSQL matches the partial ix_absence_pending_created; no start
+    // bound: a request waiting for a decision is listed whatever year it starts in. The cursor is a row
+    // comparison, which seeks into that index instead of filtering the pages before it
+    @Query("""
+            select a.id as id, e.id as employeeId, e.firstName as firstName, e.lastName as lastName,
+                   a.type as type, a.startDate as startDate, a.endDate as endDate, a.reason as reason,
+                   a.createdAt as createdAt, a.version as version
+            from AbsenceRequest a join a.employee e
+            where a.status = com.newwork.core.domain.AbsenceStatus.PENDING
+            order by a.createdAt, a.id""")
+    List<PendingRow> findPendingFirstPage(Limit limit);
+
+    @Query("""
+            select a.id as id, e.id as employeeId, e.firstName as firstName, e.lastName as lastName,
+                   a.type as type, a.startDate as startDate, a.endDate as endDate, a.reason as reason,
+                   a.createdAt as createdAt, a.version as version
+            from AbsenceRequest a join a.employee e
+            where a.status = com.newwork.core.domain.AbsenceStatus.PENDING
+              and (a.createdAt, a.id) > (:createdAt, :id)
+            order by a.createdAt, a.id""")
+    List<PendingRow> findPendingPageAfter(@Param("createdAt") Instant createdAt,
+                                          @Param("id") UUID id,
+                                          Limit limit);
+
+    @Query("""
+            select count(a) from AbsenceRequest a
+            where a.status = com.newwork.core.domain.AbsenceStatus.PENDING""")
+    long countPending();
+
+    // one-time opening figures for a ledger row that does not exist yet
+    @Query("""
+            select a from AbsenceRequest a
+            where a.employee.id = :employeeId and a.type = :type
+              and a.status in :statuses
+              and a.startDate <= :to and a.endDate >= :from
+              and a.startDate >= :earliestStart
+              and (:excludeId is null or a.id <> :excludeId)""")
+    List<AbsenceRequest> findForLedgerOpening(@Param("employeeId") UUID employeeId,
+                                              @Param("type") AbsenceType type,
+                                              @Param("from") LocalDate from,
+                                              @Param("to") LocalDate to,
+                                              @Param("earliestStart") LocalDate earliestStart,
+                                              @Param("statuses") Collection<AbsenceStatus> statuses,
+                                              @Param("excludeId") UUID excludeId);
+
+    /**
+     * Compare-and-set out of PENDING: succeeds only while the row still has {@code version} and,
+     * when {@code ownerId} is given, belongs to that employee.
+     * @return rows changed, 0 or 1
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update AbsenceRequest a
+            set a.status = :to, a.managerComment = :comment, a.version = a.version + 1, a.updatedAt = :now
+            where a.id = :id and a.version = :version
+              and a.status = com.newwork.core.domain.AbsenceStatus.PENDING
+              and (:ownerId is null or a.employee.id = :ownerId)""")
+    int transitionFromPending(@Param("id") UUID id,
+                              @Param("version") int version,
+                              @Param("to") AbsenceStatus to,
+                              @Param("comment") String comment,
+                              @Param("now") Instant now,
+                              @Param("ownerId") UUID ownerId);
+
+    /** Same as {@link #transitionFromPending} for every still-pending occurrence of a series, in one statement. */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update AbsenceRequest a
+            set a.status = :to, a.managerComment = :comment, a.version = a.version + 1, a.updatedAt = :now
+            where a.seriesId = :seriesId
+              and a.status = com.newwork.core.domain.AbsenceStatus.PENDING
+              and (:ownerId is null or a.employee.id = :ownerId)""")
+    int transitionSeriesFromPending(@Param("seriesId") UUID seriesId,
+                                    @Param("to") AbsenceStatus to,
+                                    @Param("comment") String comment,
+                                    @Param("now") Instant now,
+                                    @Param("ownerId") UUID ownerId);
+
+    /** iCalendar event source. */
+    interface FeedRow {
+        UUID getId();
+        String getFirstName();
+        String getLastName();
+        AbsenceType getType();
+        LocalDate getStartDate();
+        LocalDate getEndDate();
+        Instant getUpdatedAt();
+    }
+
+    // read with a cursor so the feed never holds more than one fetch in memory; needs an open transaction
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select a.id as id, e.firstName as firstName, e.lastName as lastName, a.type as type,
+                   a.startDate as startDate, a.endDate as endDate, a.updatedAt as updatedAt
+            from AbsenceRequest a join a.employee e
+            where a.status = com.newwork.core.domain.AbsenceStatus.APPROVED
+              and a.startDate >= :hotFrom
+            order by a.startDate, a.id""")
+    Stream<FeedRow> streamApproved(@Param("hotFrom") LocalDate hotFrom);
+
+    /**
+     * Validator of the approved set: rows only ever enter it, each entry bumps updatedAt; the count drops
+     * as years roll out. Event titles carry the employee's name, so a rename (which bumps the employee's
+     * updatedAt) counts as a change too.
+     */
+    interface FeedStamp {
+        Instant getLastModified();
+        Instant getNamesModified();
+        long getCount();
+    }
+
+    @Query("""
+            select max(a.updatedAt) as lastModified, max(e.updatedAt) as namesModified, count(a) as count
+            from AbsenceRequest a join a.employee e
+            where a.status = com.newwork.core.domain.AbsenceStatus.APPROVED
+              and a.startDate >= :hotFrom""")
+    FeedStamp findApprovedStamp(@Param("hotFrom") LocalDate hotFrom);
+
+    // served by ix_absence_employee_start; both bounds are inclusive
+    @Query("""
+            select a.id from AbsenceRequest a
+            where a.employee.id = :employeeId
+              and a.status in :statuses
+              and a.startDate <= :to and a.endDate >= :from
+              and a.startDate >= :earliestStart
+            order by a.startDate""")
+    List<UUID> findOverlappingIds(@Param("employeeId") UUID employeeId,
+                                  @Param("from") LocalDate from,
+                                  @Param("to") LocalDate to,
+                                  @Param("earliestStart") LocalDate earliestStart,
+                                  @Param("statuses") Collection<AbsenceStatus> statuses);
 }
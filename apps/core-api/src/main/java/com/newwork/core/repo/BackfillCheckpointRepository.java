@@ -0,0 +1,6 @@
+package com.newwork.core.repo;
+
+import com.newwork.core.domain.BackfillCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface BackfillCheckpointRepository extends JpaRepository<BackfillCheckpoint, String> {}
@@ -2,9 +2,17 @@ package com.newwork.core.repo;
 
 import com.newwork.core.domain.Employee;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.stereotype.Repository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.Optional;
 import java.util.UUID;
 
 public interface EmployeeRepository extends JpaRepository<Employee, UUID> {
+    long countByIdIn(Collection<UUID> ids);
+
+    /** Row lock on one employee until the transaction ends; serialises writes that must see each other. */
+    @Query(value = "select id from employees where id = :id for update", nativeQuery = true)
+    Optional<UUID> lockById(@Param("id") UUID id);
 }
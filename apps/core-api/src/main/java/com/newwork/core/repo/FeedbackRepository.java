@@ -1,11 +1,132 @@
 package com.newwork.core.repo;
 
 import com.newwork.core.domain.Feedback;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface FeedbackRepository extends JpaRepository<Feedback, UUID> {
     List<Feedback> findByEmployeeIdOrderByCreatedAtDesc(UUID employeeId);
+
+    // order matches ix_feedback_employee_created_id_desc so the page is read straight off the index
+    List<Feedback> findByEmployeeIdOrderByCreatedAtDescIdDesc(UUID employeeId, Limit limit);
+
+    // one row comparison, not an OR, so the cursor is a single range seek into the index
+    @Query("""
+            select f from Feedback f
+            where f.employee.id = :employeeId
+              and (f.createdAt, f.id) < (:createdAt, :id)
+            order by f.createdAt desc, f.id desc""")
+    List<Feedback> findPageAfter(@Param("employeeId") UUID employeeId,
+                                 @Param("createdAt") Instant createdAt,
+                                 @Param("id") UUID id,
+                                 Limit limit);
+
+    /** List-page projection that leaves text_original on disk. */
+    interface PolishedRow {
+        UUID getId();
+        UUID getAuthorEmployeeId();
+        String getTextPolished();
+        String getPolishModel();
+        Instant getCreatedAt();
+    }
+
+    @Query("""
+            select f.id as id, f.authorEmployeeId as authorEmployeeId, f.textPolished as textPolished,
+                   f.polishModel as polishModel, f.createdAt as createdAt
+            from Feedback f
+            where f.employee.id = :employeeId
+            order by f.createdAt desc, f.id desc""")
+    List<PolishedRow> findPolishedFirstPage(@Param("employeeId") UUID employeeId, Limit limit);
+
+    @Query("""
+            select f.id as id, f.authorEmployeeId as authorEmployeeId, f.textPolished as textPolished,
+                   f.polishModel as polishModel, f.createdAt as createdAt
+            from Feedback f
+            where f.employee.id = :employeeId
+              and (f.createdAt, f.id) < (:createdAt, :id)
+            order by f.createdAt desc, f.id desc""")
+    List<PolishedRow> findPolishedPageAfter(@Param("employeeId") UUID employeeId,
+                                            @Param("createdAt") Instant createdAt,
+                                            @Param("id") UUID id,
+                                            Limit limit);
+
+    interface Head {
+        UUID getId();
+        Instant getCreatedAt();
+    }
+
+    // newest row only, straight off ix_feedback_employee_created_id_desc
+    Optional<Head> findFirstByEmployeeIdOrderByCreatedAtDescIdDesc(UUID employeeId);
+
+    // oldest first: the index walked backwards; the newer-than cursor is a row comparison so it seeks
+    @Query("""
+            select f.id as id, f.authorEmployeeId as authorEmployeeId, f.textPolished as textPolished,
+                   f.polishModel as polishModel, f.createdAt as createdAt
+            from Feedback f
+            where f.employee.id = :employeeId
+            order by f.createdAt asc, f.id asc""")
+    List<PolishedRow> findPolishedOldestFirst(@Param("employeeId") UUID employeeId, Limit limit);
+
+    @Query("""
+            select f.id as id, f.authorEmployeeId as authorEmployeeId, f.textPolished as textPolished,
+                   f.polishModel as polishModel, f.createdAt as createdAt
+            from Feedback f
+            where f.employee.id = :employeeId
+              and (f.createdAt, f.id) > (:createdAt, :id)
+            order by f.createdAt asc, f.id asc""")
+    List<PolishedRow> findPolishedNewerThan(@Param("employeeId") UUID employeeId,
+                                            @Param("createdAt") Instant createdAt,
+                                            @Param("id") UUID id,
+                                            Limit limit);
+
+    interface OriginalRow {
+        UUID getId();
+        UUID getEmployeeId();
+        UUID getAuthorEmployeeId();
+        String getTextOriginal();
+    }
+
+    // read with a cursor so a rebuild holds one fetch of texts at a time; needs an open transaction
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select f.id as id, f.employee.id as employeeId, f.authorEmployeeId as authorEmployeeId,
+                   f.textOriginal as textOriginal
+            from Feedback f
+            order by f.createdAt desc""")
+    Stream<OriginalRow> streamRecentOriginals(Limit limit);
+
+    interface BackfillRow {
+        UUID getId();
+        String getTextOriginal();
+        String getPolishModel();
+    }
+
+    // keyset over the primary key; rows already polished by one of :skipModels are passed over
+    @Query("""
+            select f.id as id, f.textOriginal as textOriginal, f.polishModel as polishModel
+            from Feedback f
+            where f.polishModel not in :skipModels
+            order by f.id""")
+    List<BackfillRow> findBackfillFirstBatch(@Param("skipModels") Collection<String> skipModels, Limit limit);
+
+    @Query("""
+            select f.id as id, f.textOriginal as textOriginal, f.polishModel as polishModel
+            from Feedback f
+            where f.id > :after and f.polishModel not in :skipModels
+            order by f.id""")
+    List<BackfillRow> findBackfillBatchAfter(@Param("after") UUID after,
+                                             @Param("skipModels") Collection<String> skipModels,
+                                             Limit limit);
 }
@@ -0,0 +1,8 @@
+package com.newwork.core.repo;
+
+import com.newwork.core.domain.FeedbackSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.UUID;
+
+public interface FeedbackSummaryRepository extends JpaRepository<FeedbackSummary, UUID> {}
@@ -11,6 +11,7 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -34,6 +35,8 @@ public class SecurityConfig {
                         .authenticationEntryPoint((req, res, e) -> res.sendError(HttpServletResponse.SC_UNAUTHORIZED))
                         .accessDeniedHandler((req, res, e) -> res.sendError(HttpServletResponse.SC_FORBIDDEN)))
                 .authorizeHttpRequests(reg -> reg
+                        // the request was authorized before it went async; the re-dispatch only writes the response
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/auth/**",
                                 "/v3/api-docs/**",
@@ -42,6 +45,9 @@ public class SecurityConfig {
                                 "/docs"
                         ).permitAll()
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // calendar apps authenticate with the feed token in the URL; the controller checks it
+                        .requestMatchers(HttpMethod.GET, "/api/absences/feed.ics").permitAll()
+                        .requestMatchers("/actuator/metrics/**").hasRole("MANAGER")
                         .requestMatchers("/api/**").authenticated()
                         .anyRequest().permitAll())
                 .addFilterBefore(jwt, UsernamePasswordAuthenticationFilter.class);
@@ -53,9 +59,12 @@ public class SecurityConfig {
     CorsConfigurationSource corsConfigurationSource() {
         var c = new CorsConfiguration();
         c.setAllowedOrigins(List.of("http://localhost:3000"));
-        c.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
-        c.setAllowedHeaders(List.of("Authorization","Content-Type","If-Match"));
-        c.setExposedHeaders(List.of("ETag","Location"));
+        // HEAD, the Upload-* and Tus-Resumable headers: the resumable attachment upload; Range: its download
+        c.setAllowedMethods(List.of("GET","HEAD","POST","PUT","PATCH","DELETE","OPTIONS"));
+        c.setAllowedHeaders(List.of("Authorization","Content-Type","If-Match","Range",
+                "Upload-Offset","Upload-Length","Tus-Resumable"));
+        c.setExposedHeaders(List.of("ETag","Location","X-Next-Cursor","Content-Range",
+                "Upload-Offset","Upload-Length","Tus-Resumable"));
         c.setAllowCredentials(true);
 
         var src = new UrlBasedCorsConfigurationSource();
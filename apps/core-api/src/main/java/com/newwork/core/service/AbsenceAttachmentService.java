@@ -0,0 +1,25 @@
+package com.newwork.core.service;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.web.dto.AttachmentDtos.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+public interface AbsenceAttachmentService {
+    /** Opens a resumable upload on the caller's own absence. */
+    UploadStatus startUpload(UUID absenceId, CreateUploadReq req, UserPrincipal caller);
+    UploadStatus uploadStatus(UUID absenceId, UUID uploadId, UserPrincipal caller);
+    /**
+     * Writes {@code body} from {@code offset}, which must be the current offset (409 offset_mismatch).
+     * The chunk that completes the upload also stores the attachment.
+     */
+    UploadStatus append(UUID absenceId, UUID uploadId, long offset, InputStream body, UserPrincipal caller) throws IOException;
+    List<AttachmentView> list(UUID absenceId, UserPrincipal caller);
+    Download download(UUID absenceId, UUID attachmentId, UserPrincipal caller);
+
+    record Download(AttachmentView attachment, Path file) {}
+}
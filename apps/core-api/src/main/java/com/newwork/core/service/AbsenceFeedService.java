@@ -0,0 +1,20 @@
+package com.newwork.core.service;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.web.dto.AbsenceDtos.FeedVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface AbsenceFeedService {
+    /** One aggregate query; enough to answer a conditional GET without rendering the feed. */
+    FeedVersion version(UserPrincipal caller);
+    /** Streams every approved absence as an iCalendar (RFC 5545) document. */
+    void writeIcs(OutputStream out) throws IOException;
+    /** New feed token for the caller; any earlier one stops working. */
+    String rotateToken(UserPrincipal caller);
+    /** Drops the caller's feed token, if any. */
+    void revokeToken(UserPrincipal caller);
+    /** The user a feed token was issued to, with their current role; null when unknown or revoked. */
+    UserPrincipal byToken(String token);
+}
@@ -0,0 +1,10 @@
+package com.newwork.core.service;
+
+import java.util.List;
+import java.util.UUID;
+
+/** An active (pending or approved) absence of the same employee already covers part of the requested range. */
+public class AbsenceOverlapException extends RuntimeException {
+    public final List<UUID> overlapping;
+    public AbsenceOverlapException(List<UUID> overlapping) { this.overlapping = List.copyOf(overlapping); }
+}
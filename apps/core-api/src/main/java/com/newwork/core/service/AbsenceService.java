@@ -1,16 +1,42 @@
 package com.newwork.core.service;
 
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
 import com.newwork.core.security.UserPrincipal;
 import com.newwork.core.web.dto.AbsenceDtos.*;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface AbsenceService {
-    List<AbsenceView> listForEmployee(UUID employeeId, UserPrincipal caller);
+    /** Requests starting on or after {@code from}; null means the hot window (this year, last year in January). */
+    List<AbsenceView> listForEmployee(UUID employeeId, LocalDate from, UserPrincipal caller);
     AbsenceView create(UUID employeeId, CreateAbsenceReq req, UserPrincipal caller);
+    /** Expands {@code req.recurrence()} and stores every occurrence, or none, under one series id. */
+    SeriesView createSeries(UUID employeeId, CreateAbsenceReq req, UserPrincipal caller);
+    SeriesView getSeries(UUID seriesId, UserPrincipal caller);
+    /** Decides every still-pending occurrence; {@code ifMatch} is the series version. */
+    SeriesView approveSeries(UUID seriesId, DecisionReq req, String ifMatch, UserPrincipal caller);
+    SeriesView cancelSeries(UUID seriesId, DecisionReq req, String ifMatch, UserPrincipal caller);
+    /** Absences intersecting [from, to]; {@code statuses} defaults to pending and approved. */
+    List<CalendarEntry> calendar(LocalDate from, LocalDate to, Collection<AbsenceStatus> statuses, UserPrincipal caller);
+    /**
+     * Absent and available headcount per day of [from, to], over everyone or just {@code employeeIds};
+     * approved absences only unless {@code includePending}. {@code types} defaults to all types.
+     */
+    Availability availability(LocalDate from, LocalDate to, Collection<AbsenceType> types,
+                              Collection<UUID> employeeIds, boolean includePending, UserPrincipal caller);
+    /** Oldest first; {@code cursor} is the {@code nextCursor} of the previous page. */
+    PendingPage pending(String cursor, Integer limit, UserPrincipal caller);
+    PendingCount pendingCount(UserPrincipal caller);
+    /** Ledger figures for one year and type; defaults to the current year and VACATION. */
+    BalanceView balance(UUID employeeId, Integer year, AbsenceType type, UserPrincipal caller);
     AbsenceView getOne(UUID absenceId, UserPrincipal caller);
     AbsenceView approve(UUID absenceId, DecisionReq req, String ifMatch, UserPrincipal caller);
     AbsenceView reject(UUID absenceId, DecisionReq req, String ifMatch, UserPrincipal caller);
+    /** Applies each item independently; results come back in request order. */
+    List<BulkDecisionResult> decideAll(BulkDecisionReq req, UserPrincipal caller);
     AbsenceView cancel(UUID absenceId, DecisionReq req, String ifMatch, UserPrincipal caller);
 }
@@ -1,6 +1,35 @@
 package com.newwork.core.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface AiPolishService {
     String modelId();
     String polish(String input);
+
+    /**
+     * @param model      the model that produced the text; for a chunked polish, the one that served most chunks
+     * @param modelCount how many distinct models served it
+     */
+    record Polished(String text, String model, int modelCount) {
+        public Polished(String text, String model) {
+            this(text, model, 1);
+        }
+    }
+
+    /** Like {@link #polish}, but also says which model produced the text. */
+    default Polished polishWithModel(String input) {
+        return new Polished(polish(input), modelId());
+    }
+
+    /**
+     * Like {@link #polishWithModel}, without holding the caller's thread while the model works.
+     * Input validation errors may still be thrown directly.
+     */
+    default CompletableFuture<Polished> polishAsync(String input) {
+        try {
+            return CompletableFuture.completedFuture(polishWithModel(input));
+        } catch (RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package com.newwork.core.service;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.web.dto.BackfillDtos.BackfillStatus;
+
+public interface FeedbackBackfillService {
+    /** Starts a re-polish to the current model, or resumes a paused one. */
+    BackfillStatus start(UserPrincipal caller);
+    BackfillStatus pause(UserPrincipal caller);
+    /** @return null when no re-polish has ever run */
+    BackfillStatus status(UserPrincipal caller);
+}
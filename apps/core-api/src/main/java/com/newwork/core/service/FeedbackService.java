@@ -2,12 +2,14 @@ package com.newwork.core.service;
 
 import com.newwork.core.security.UserPrincipal;
 import com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackPage;
 import com.newwork.core.web.dto.FeedbackDtos.FeedbackView;
 
-import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public interface FeedbackService {
-    List<FeedbackView> listForEmployee(UUID employeeId, UserPrincipal caller);
-    FeedbackView createForEmployee(UUID employeeId, CreateFeedbackReq req, UserPrincipal caller);
+    FeedbackPage listForEmployee(UUID employeeId, String cursor, Integer limit, boolean polishedOnly, UserPrincipal caller);
+    /** Access and validation errors are thrown directly; polish failures complete the future exceptionally. */
+    CompletableFuture<FeedbackView> createForEmployee(UUID employeeId, CreateFeedbackReq req, UserPrincipal caller);
 }
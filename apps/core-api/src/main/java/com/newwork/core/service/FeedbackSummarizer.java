@@ -0,0 +1,9 @@
+package com.newwork.core.service;
+
+/** Folds one more feedback item into an existing summary. */
+public interface FeedbackSummarizer {
+    String modelId();
+
+    /** @param summary the summary so far, empty for the first item */
+    String fold(String summary, String item);
+}
@@ -0,0 +1,13 @@
+package com.newwork.core.service;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackSummaryView;
+
+import java.util.UUID;
+
+public interface FeedbackSummaryService {
+    FeedbackSummaryView summaryFor(UUID employeeId, UserPrincipal caller);
+
+    /** Schedules folding newly stored feedback into the employee's summary; returns immediately. */
+    void feedbackAdded(UUID employeeId);
+}
@@ -0,0 +1,141 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.AbsenceBalanceProps;
+import com.newwork.core.domain.AbsenceBalance;
+import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
+import com.newwork.core.repo.AbsenceBalanceRepository;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Moves business days between the reserved (pending) and used (approved) columns of
+ * {@link AbsenceBalance} as requests change status. Must run inside the transaction that changes
+ * the request, so a rolled-back decision leaves the ledger untouched. A request that spans New Year
+ * counts towards both years.
+ * <p>
+ * A ledger row is opened lazily: the first time an (employee, year, type) is moved its figures
+ * are taken once from the existing requests; from then on only deltas are applied. Reading a
+ * balance never opens a row.
+ */
+@Component
+public class AbsenceLedger {
+
+    private final AbsenceBalanceRepository balances;
+    private final AbsenceRequestRepository requests;
+    private final AbsenceBalanceProps props;
+    private final BusinessDayCalendar calendar;
+
+    public AbsenceLedger(AbsenceBalanceRepository balances, AbsenceRequestRepository requests, AbsenceBalanceProps props,
+                         BusinessDayCalendar calendar) {
+        this.balances = balances;
+        this.requests = requests;
+        this.props = props;
+        this.calendar = calendar;
+    }
+
+    /** New PENDING request; 409 insufficient_balance when a limited type would go below zero. */
+    public void reserve(AbsenceRequest a) {
+        daysPerYear(a.getStartDate(), a.getEndDate()).forEach((year, days) -> {
+            var b = open(a.getEmployee().getId(), year, a.getType(), a, false);
+            b.setReservedDays(b.getReservedDays() + days);
+            var remaining = b.remainingDays();
+            if (props.isEnforce() && remaining != null && remaining < 0)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "insufficient_balance");
+        });
+    }
+
+    /** PENDING to APPROVED: the reservation becomes usage. */
+    public void approved(AbsenceRequest a) {
+        daysPerYear(a.getStartDate(), a.getEndDate()).forEach((year, days) -> {
+            var b = open(a.getEmployee().getId(), year, a.getType(), a, true);
+            b.setReservedDays(b.getReservedDays() - days);
+            b.setUsedDays(b.getUsedDays() + days);
+        });
+    }
+
+    /** PENDING to REJECTED or CANCELLED: the reservation is given back. */
+    public void released(AbsenceRequest a) {
+        daysPerYear(a.getStartDate(), a.getEndDate()).forEach((year, days) -> {
+            var b = open(a.getEmployee().getId(), year, a.getType(), a, true);
+            b.setReservedDays(b.getReservedDays() - days);
+        });
+    }
+
+    /**
+     * Opens and locks every row {@code moving} touches, as they stand now. Call before requests move
+     * together in one statement, so an opening cannot see some of them already moved.
+     */
+    public void prepare(Collection<AbsenceRequest> moving) {
+        for (var a : moving) {
+            for (int year : daysPerYear(a.getStartDate(), a.getEndDate()).keySet()) {
+                open(a.getEmployee().getId(), year, a.getType(), null, false);
+            }
+        }
+    }
+
+    /** Current balance. A key never touched is worked out from the stored requests but not stored. */
+    public AbsenceBalance balance(UUID employeeId, int year, AbsenceType type) {
+        var key = new AbsenceBalance.Key(employeeId, year, type);
+        return balances.findById(key).orElseGet(() -> opening(key, null, false));
+    }
+
+    /**
+     * Locks the row, creating it from the stored requests if needed. {@code moving} is the request the
+     * caller is about to apply; whatever its row says right now, it enters the opening figures as it
+     * was before the move (pending, or not at all for a new one) so the caller's delta lands exactly once.
+     */
+    private AbsenceBalance open(UUID employeeId, int year, AbsenceType type, AbsenceRequest moving, boolean movingWasPending) {
+        var key = new AbsenceBalance.Key(employeeId, year, type);
+        var existing = balances.findForUpdate(key);
+        if (existing.isPresent()) return existing.get();
+        // a concurrent first touch may insert the same key meanwhile; whichever lands first is the row
+        // both then lock and move, and its opening figures already leave out the other's request
+        var b = opening(key, moving, movingWasPending);
+        balances.insertIfAbsent(employeeId, year, type.name(), b.getAllowanceDays(), b.getReservedDays(), b.getUsedDays(),
+                Instant.now());
+        return balances.findForUpdate(key).orElseThrow();
+    }
+
+    /** Figures of a row not stored yet, taken from the active requests of its year. */
+    private AbsenceBalance opening(AbsenceBalance.Key key, AbsenceRequest moving, boolean movingWasPending) {
+        int year = key.getYear();
+        var b = new AbsenceBalance();
+        b.setId(key);
+        b.setAllowanceDays(props.getAllowanceDays().get(key.getType()));
+        var from = LocalDate.of(year, 1, 1);
+        var to = LocalDate.of(year, 12, 31);
+        var excludeId = moving == null ? null : moving.getId();
+        for (var r : requests.findForLedgerOpening(key.getEmployeeId(), key.getType(), from, to,
+                AbsencePartitions.earliestStartOverlapping(from), AbsenceOverlapGuard.ACTIVE, excludeId)) {
+            int days = daysPerYear(r.getStartDate(), r.getEndDate()).getOrDefault(year, 0);
+            if (r.getStatus() == AbsenceStatus.APPROVED) b.setUsedDays(b.getUsedDays() + days);
+            else b.setReservedDays(b.getReservedDays() + days);
+        }
+        if (movingWasPending) {
+            b.setReservedDays(b.getReservedDays() + daysPerYear(moving.getStartDate(), moving.getEndDate()).getOrDefault(year, 0));
+        }
+        return b;
+    }
+
+    /** Business days of [start, end], split by calendar year. */
+    private Map<Integer, Integer> daysPerYear(LocalDate start, LocalDate end) {
+        var out = new LinkedHashMap<Integer, Integer>();
+        for (int y = start.getYear(); y <= end.getYear(); y++) {
+            var from = y == start.getYear() ? start : LocalDate.of(y, 1, 1);
+            var to = y == end.getYear() ? end : LocalDate.of(y, 12, 31);
+            out.put(y, calendar.businessDays(from, to));
+        }
+        return out;
+    }
+}
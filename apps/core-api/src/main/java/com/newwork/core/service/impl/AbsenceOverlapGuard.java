@@ -0,0 +1,121 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.PostgresDdl;
+import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.repo.EmployeeRepository;
+import com.newwork.core.service.AbsenceOverlapException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps an employee's active (pending or approved) absences from overlapping.
+ * Every insert runs in one transaction that first locks the employee's row, so concurrent inserts
+ * of the same employee queue up, then looks for overlapping active requests in the database and
+ * only then saves. The check is a plain range query, so it holds on any database and on a
+ * partitioned table alike. Where the PostgreSQL {@code daterange} exclusion constraint could be
+ * installed (a plain table with btree_gist) it stays as a backstop, and its violation is reported
+ * the same way.
+ */
+@Component
+public class AbsenceOverlapGuard {
+
+    public static final Set<AbsenceStatus> ACTIVE = EnumSet.of(AbsenceStatus.PENDING, AbsenceStatus.APPROVED);
+
+    static final String CONSTRAINT = "ex_absence_request_active_overlap";
+
+    // ddl-auto cannot express exclusion constraints, so install it once the schema exists
+    private static final String INSTALL = """
+            CREATE EXTENSION IF NOT EXISTS btree_gist;
+            DO $$ BEGIN
+              IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = '%1$s') THEN
+                ALTER TABLE absence_request ADD CONSTRAINT %1$s EXCLUDE USING gist (
+                  employee_id WITH =,
+                  daterange(start_date, end_date, '[]') WITH &&
+                ) WHERE (status IN ('PENDING', 'APPROVED'));
+              END IF;
+            END $$;""".formatted(CONSTRAINT);
+
+    private final AbsenceRequestRepository repo;
+    private final EmployeeRepository employees;
+    private final PostgresDdl ddl;
+    private final TransactionTemplate tx;
+    private final Counter rejected;
+    private volatile boolean constraintInstalled;
+
+    public AbsenceOverlapGuard(AbsenceRequestRepository repo, EmployeeRepository employees, PostgresDdl ddl,
+                               PlatformTransactionManager txManager, MeterRegistry meters) {
+        this.repo = repo;
+        this.employees = employees;
+        this.ddl = ddl;
+        this.tx = new TransactionTemplate(txManager);
+        this.rejected = meters.counter("absence.overlap.rejected");
+        meters.gauge("absence.overlap.db_enforced", this, g -> g.constraintInstalled ? 1 : 0);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void install() {
+        // not PostgreSQL, no btree_gist, a partitioned table (the constraint cannot span partitions)
+        // or rows that already overlap: the locked check below is the only guard, which is enough
+        constraintInstalled = ddl.apply(INSTALL);
+    }
+
+    /**
+     * Inserts {@code candidate} through {@code save} unless an active absence of the same employee
+     * overlaps it.
+     *
+     * @throws AbsenceOverlapException listing the overlapping request ids
+     */
+    public AbsenceRequest admit(AbsenceRequest candidate, UnaryOperator<AbsenceRequest> save) {
+        return admitAll(List.of(candidate), c -> List.of(save.apply(c.getFirst()))).getFirst();
+    }
+
+    /**
+     * Inserts requests of one employee together through {@code save}, or none of them when any
+     * overlaps an active absence. The candidates must not overlap each other. {@code save} runs
+     * inside the checking transaction, so whatever else it writes commits with the requests.
+     *
+     * @throws AbsenceOverlapException listing the overlapping request ids of all candidates
+     */
+    public List<AbsenceRequest> admitAll(List<AbsenceRequest> candidates, UnaryOperator<List<AbsenceRequest>> save) {
+        var employeeId = candidates.getFirst().getEmployee().getId();
+        try {
+            return tx.execute(status -> {
+                // the lock queues this employee's inserts; each check then reads what the previous one committed
+                employees.lockById(employeeId);
+                var hits = overlapping(employeeId, candidates);
+                if (!hits.isEmpty()) throw overlap(hits);
+                return save.apply(candidates);
+            });
+        } catch (DataIntegrityViolationException e) {
+            var cause = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (cause == null || !cause.contains(CONSTRAINT)) throw e;
+            throw overlap(overlapping(employeeId, candidates));
+        }
+    }
+
+    private List<UUID> overlapping(UUID employeeId, List<AbsenceRequest> candidates) {
+        var hits = new LinkedHashSet<UUID>();
+        for (var c : candidates) {
+            hits.addAll(repo.findOverlappingIds(employeeId, c.getStartDate(), c.getEndDate(),
+                    AbsencePartitions.earliestStartOverlapping(c.getStartDate()), ACTIVE));
+        }
+        return List.copyOf(hits);
+    }
+
+    private AbsenceOverlapException overlap(List<UUID> ids) {
+        rejected.increment();
+        return new AbsenceOverlapException(ids);
+    }
+}
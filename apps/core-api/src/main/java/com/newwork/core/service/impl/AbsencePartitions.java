@@ -0,0 +1,257 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.AbsencePartitionProps;
+import com.newwork.core.config.PostgresDdl;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps {@code absence_request} as yearly range partitions on {@code start_date} (PostgreSQL only,
+ * opt-in). Converting Hibernate's plain table is an explicit migration: it runs at a start with
+ * {@code app.absence.partitions.convert} set, copies the rows into the partitioned table and keeps
+ * the original as {@code absence_request_unpartitioned} until an operator drops it. Once partitioned,
+ * partitions for the current and coming years are created ahead of time, and closed years can be
+ * detached, exported to a gzip'd CSV under {@code app.absence.partitions.archive-dir} and dropped.
+ * <p>
+ * Queries prune partitions through a lower bound on {@code start_date}: no request is longer than
+ * {@link #MAX_SPAN_DAYS}, so anything overlapping a date starts at most that many days before it,
+ * and the feed only looks at requests starting from {@link #hotFrom}. Pending requests are never
+ * bounded that way; years holding any stay online.
+ */
+@Slf4j
+@Component
+public class AbsencePartitions {
+
+    /** Longest request accepted, in days between start and end; also the pruning margin. */
+    public static final int MAX_SPAN_DAYS = 366;
+
+    // the feed keeps last year's absences through January
+    private static final int HOT_GRACE_DAYS = 31;
+
+    static final String PARENT = "absence_request";
+    static final String DEFAULT_PARTITION = PARENT + "_default";
+    static final String BACKUP = PARENT + "_unpartitioned";
+
+    // creates (or catches up) one year; rows parked in the default partition move into it first
+    private static final String ENSURE_FUNCTION = """
+            CREATE OR REPLACE FUNCTION absence_request_ensure_partition(y int) RETURNS void
+            LANGUAGE plpgsql AS $$
+            DECLARE
+              part text := 'absence_request_y' || y;
+              lo date := make_date(y, 1, 1);
+              hi date := make_date(y + 1, 1, 1);
+            BEGIN
+              IF to_regclass(part) IS NOT NULL THEN RETURN; END IF;
+              EXECUTE format('CREATE TABLE %I (LIKE absence_request INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', part);
+              EXECUTE format('WITH moved AS (DELETE FROM absence_request_default WHERE start_date >= %L AND start_date < %L RETURNING *) '
+                             'INSERT INTO %I SELECT * FROM moved', lo, hi, part);
+              EXECUTE format('ALTER TABLE absence_request ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)', part, lo, hi);
+            END $$""";
+
+    // ddl-auto creates a plain table; swap it for a partitioned one in one transaction. The original
+    // stays behind under another name (its indexes too, renamed to free theirs) as the way back
+    private static final String CONVERT = """
+            DO $$
+            DECLARE r record;
+            BEGIN
+              IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('absence_request')) THEN
+                RETURN;
+              END IF;
+              IF to_regclass('absence_request_unpartitioned') IS NOT NULL THEN
+                RAISE EXCEPTION 'absence_request_unpartitioned is left from an earlier conversion';
+              END IF;
+              LOCK TABLE absence_request IN ACCESS EXCLUSIVE MODE;
+              ALTER TABLE absence_request RENAME TO absence_request_unpartitioned;
+              FOR r IN SELECT c.relname FROM pg_index x JOIN pg_class c ON c.oid = x.indexrelid
+                       WHERE x.indrelid = to_regclass('absence_request_unpartitioned') LOOP
+                EXECUTE format('ALTER INDEX %I RENAME TO %I', r.relname, left(r.relname, 50) || '_unpart');
+              END LOOP;
+              CREATE TABLE absence_request (
+                LIKE absence_request_unpartitioned INCLUDING DEFAULTS INCLUDING CONSTRAINTS,
+                CONSTRAINT absence_request_part_pkey PRIMARY KEY (id, start_date)
+              ) PARTITION BY RANGE (start_date);
+              CREATE TABLE absence_request_default PARTITION OF absence_request DEFAULT;
+              INSERT INTO absence_request SELECT * FROM absence_request_unpartitioned;
+              CREATE INDEX ix_absence_employee_start ON absence_request (employee_id, start_date);
+              CREATE INDEX ix_absence_start_end ON absence_request (start_date, end_date);
+              CREATE INDEX ix_absence_series ON absence_request (series_id);
+              ALTER TABLE absence_request ADD CONSTRAINT fk_absence_request_employee
+                FOREIGN KEY (employee_id) REFERENCES employees (id);
+            END $$""";
+
+    private final PostgresDdl ddl;
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final AbsencePartitionProps props;
+    private final MeterRegistry meters;
+    private volatile boolean partitioned;
+
+    public AbsencePartitions(PostgresDdl ddl, JdbcTemplate jdbc, PlatformTransactionManager txManager,
+                             AbsencePartitionProps props, MeterRegistry meters) {
+        this.ddl = ddl;
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.props = props;
+        this.meters = meters;
+    }
+
+    /** First request start date the hot paths look at: January 1st of this year (of last year during January). */
+    public static LocalDate hotFrom(LocalDate today) {
+        return LocalDate.of(today.minusDays(HOT_GRACE_DAYS).getYear(), 1, 1);
+    }
+
+    /** Earliest start of a request that can overlap {@code date}. */
+    public static LocalDate earliestStartOverlapping(LocalDate date) {
+        return date.minusDays(MAX_SPAN_DAYS);
+    }
+
+    // before the other schema listeners, so indexes and constraints land on the partitioned table
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener(ApplicationReadyEvent.class)
+    public void install() {
+        if (!props.isEnabled() || !ddl.isPostgres()) return;
+        partitioned = isPartitioned();
+        if (!partitioned) {
+            if (!props.isConvert()) {
+                log.warn("{} is not partitioned; start once with app.absence.partitions.convert=true to migrate it", PARENT);
+                return;
+            }
+            if (!ddl.apply(ENSURE_FUNCTION) || !ddl.apply(CONVERT)) return;
+            partitioned = isPartitioned();
+            log.info("{} converted to yearly partitions; the original table is kept as {}", PARENT, BACKUP);
+        } else if (!ddl.apply(ENSURE_FUNCTION)) {
+            return;
+        }
+        for (int y : jdbc.queryForList("SELECT DISTINCT extract(year FROM start_date)::int FROM " + DEFAULT_PARTITION, Integer.class)) {
+            ensureYear(y);
+        }
+        maintain();
+    }
+
+    /** Monthly: keep next years' partitions ready and archive what has aged out. */
+    @Scheduled(cron = "${app.absence.partitions.maintenance-cron:0 30 2 1 * *}")
+    public void maintain() {
+        if (!partitioned) return;
+        int year = LocalDate.now().getYear();
+        for (int y = year; y <= year + props.getYearsAhead(); y++) ensureYear(y);
+        if (props.getArchiveAfterYears() <= 0) return;
+        for (int y : jdbc.queryForList("""
+                SELECT substring(c.relname FROM 'absence_request_y(\\d+)$')::int
+                FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass('absence_request')
+                  AND c.relname ~ '^absence_request_y\\d+$'
+                ORDER BY 1""", Integer.class)) {
+            if (y > year - props.getArchiveAfterYears()) break;
+            String outcome;
+            try {
+                outcome = archive(y) == null ? "skipped" : "archived";
+            } catch (IOException | DataAccessException e) {
+                log.warn("Archiving {}_y{} failed; the partition stays online", PARENT, y, e);
+                outcome = "failed";
+            }
+            meters.counter("absence.partitions.archive", "outcome", outcome).increment();
+        }
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))", Boolean.class, PARENT));
+    }
+
+    void ensureYear(int year) {
+        jdbc.execute("SELECT absence_request_ensure_partition(" + year + ")");
+    }
+
+    /**
+     * Detaches the partition of a closed {@code year}, writes its rows to
+     * {@code <archive-dir>/absence_request_y<year>.csv.gz} and drops it. Years that still hold
+     * pending requests stay online.
+     *
+     * @return the archive file, or null when the year is not archivable
+     * @throws IOException when the export fails; the partition is attached again
+     */
+    public Path archive(int year) throws IOException {
+        if (!partitioned || !LocalDate.of(year, 12, 31).isBefore(hotFrom(LocalDate.now()))) return null;
+        var part = PARENT + "_y" + year;
+        if (jdbc.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, part) != Boolean.TRUE) return null;
+        var pending = jdbc.queryForObject("SELECT count(*) FROM " + part + " WHERE status = 'PENDING'", Long.class);
+        if (pending != null && pending > 0) return null;
+
+        jdbc.execute("ALTER TABLE " + PARENT + " DETACH PARTITION " + part);
+        var dir = Path.of(props.getArchiveDir());
+        var target = dir.resolve(part + ".csv.gz");
+        var tmp = dir.resolve(part + ".csv.gz.tmp");
+        try {
+            Files.createDirectories(dir);
+            try (var w = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tmp)), StandardCharsets.UTF_8))) {
+                // a cursor needs a transaction; rows are written as they arrive
+                tx.executeWithoutResult(status -> jdbc.query(c -> {
+                    var ps = c.prepareStatement("SELECT * FROM " + part + " ORDER BY start_date, id");
+                    ps.setFetchSize(500);
+                    return ps;
+                }, (ResultSetExtractor<Void>) rs -> {
+                    try {
+                        writeCsv(w, rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return null;
+                }));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            jdbc.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + part
+                    + " FOR VALUES FROM ('" + year + "-01-01') TO ('" + (year + 1) + "-01-01')");
+            throw e;
+        }
+        jdbc.execute("DROP TABLE " + part);
+        return target;
+    }
+
+    private static void writeCsv(Writer w, ResultSet rs) throws SQLException, IOException {
+        var meta = rs.getMetaData();
+        int n = meta.getColumnCount();
+        for (int i = 1; i <= n; i++) {
+            if (i > 1) w.write(',');
+            w.write(meta.getColumnName(i));
+        }
+        w.write('\n');
+        while (rs.next()) {
+            for (int i = 1; i <= n; i++) {
+                if (i > 1) w.write(',');
+                var v = rs.getString(i);
+                if (v != null) w.write(csv(v));
+            }
+            w.write('\n');
+        }
+    }
+
+    static String csv(String v) {
+        if (v.indexOf(',') < 0 && v.indexOf('"') < 0 && v.indexOf('\n') < 0 && v.indexOf('\r') < 0) return v;
+        return '"' + v.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,142 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.AbsenceAttachmentProps;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Files behind attachments: {@code uploads/<id>.part} while an upload is in progress, then
+ * {@code sha256/<2 hex>/<sha256>} once complete, one file per distinct content. Bytes move between
+ * the request and the disk through file channels and small direct buffers; nothing holds a whole
+ * file in the heap.
+ */
+@Component
+public class AttachmentStore {
+
+    private static final int HASH_BUFFER = 64 * 1024;
+
+    /** Where a finished upload ended up; {@code deduplicated} when that content was already stored. */
+    public record Stored(String sha256, boolean deduplicated) {}
+
+    private final Path uploads;
+    private final Path blobs;
+
+    public AttachmentStore(AbsenceAttachmentProps props) {
+        var root = Path.of(props.getDir());
+        this.uploads = root.resolve("uploads");
+        this.blobs = root.resolve("sha256");
+    }
+
+    /** Bytes received so far. */
+    public long offset(UUID uploadId) throws IOException {
+        var part = part(uploadId);
+        return Files.exists(part) ? Files.size(part) : 0;
+    }
+
+    public FileTime lastActivity(UUID uploadId) throws IOException {
+        var part = part(uploadId);
+        return Files.exists(part) ? Files.getLastModifiedTime(part) : null;
+    }
+
+    /**
+     * Streams {@code body} into the upload from {@code offset}, stopping at {@code limit} bytes.
+     * What arrived before a broken connection stays, so the client can resume from there.
+     *
+     * @return the new offset
+     */
+    public long append(UUID uploadId, long offset, long limit, InputStream body) throws IOException {
+        Files.createDirectories(uploads);
+        try (var out = FileChannel.open(part(uploadId), CREATE, WRITE); var in = Channels.newChannel(body)) {
+            long pos = offset;
+            try {
+                while (pos < limit) {
+                    long n = out.transferFrom(in, pos, limit - pos);
+                    if (n <= 0) break;
+                    pos += n;
+                }
+            } finally {
+                // the offset we report has to survive a crash
+                out.force(false);
+            }
+            return pos;
+        }
+    }
+
+    /** SHA-256 of the complete upload, hex. */
+    public String hash(UUID uploadId) throws IOException {
+        return sha256(part(uploadId));
+    }
+
+    /** Files the complete upload under its content address {@code sha256}, from {@link #hash}. */
+    public Stored finish(UUID uploadId, String sha256) throws IOException {
+        var part = part(uploadId);
+        var target = blob(sha256);
+        if (Files.exists(target)) {
+            Files.delete(part);
+            return new Stored(sha256, true);
+        }
+        Files.createDirectories(target.getParent());
+        // a concurrent finish of the same content renames identical bytes over it, which is harmless
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+        return new Stored(sha256, false);
+    }
+
+    /**
+     * Undoes {@link #finish} when the attachment row did not commit: the upload is complete again
+     * and can be finished by another request. The blob stays; other attachments may share it.
+     */
+    public void restore(UUID uploadId, String sha256) throws IOException {
+        var part = part(uploadId);
+        var source = blob(sha256);
+        if (Files.exists(part) || !Files.exists(source)) return;
+        Files.createDirectories(uploads);
+        var tmp = uploads.resolve(uploadId + ".restore");
+        Files.copy(source, tmp, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(tmp, part, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public void discard(UUID uploadId) throws IOException {
+        Files.deleteIfExists(part(uploadId));
+    }
+
+    public Path blob(String sha256) {
+        return blobs.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path part(UUID uploadId) {
+        return uploads.resolve(uploadId + ".part");
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        var buf = ByteBuffer.allocateDirect(HASH_BUFFER);
+        try (var ch = FileChannel.open(file, READ)) {
+            while (ch.read(buf) >= 0) {
+                buf.flip();
+                digest.update(buf);
+                buf.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
@@ -0,0 +1,112 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.HolidayCalendarProps;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.MonthDay;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Working-day counts from per-country holiday calendars.
+ * Each (country, year) is compiled once into a 366-bit set of working days ({@code long[6]}, bit
+ * {@code dayOfYear - 1}); counting a range is then a few masked {@link Long#bitCount}s per year
+ * and allocates nothing.
+ */
+@Component
+public class BusinessDayCalendar {
+
+    static final int MIN_YEAR = 1900;
+    static final int MAX_YEAR = 2199;
+
+    private static final class Compiled {
+        final Set<DayOfWeek> weekend;
+        final List<MonthDay> fixed = new ArrayList<>();
+        final Set<LocalDate> dates = new HashSet<>();
+        final AtomicReferenceArray<long[]> years = new AtomicReferenceArray<>(MAX_YEAR - MIN_YEAR + 1);
+
+        Compiled(HolidayCalendarProps.Country c) {
+            this.weekend = c.getWeekend().isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(c.getWeekend());
+            for (var s : c.getFixed()) fixed.add(MonthDay.parse("--" + s.trim()));
+            for (var s : c.getDates()) dates.add(LocalDate.parse(s.trim()));
+        }
+    }
+
+    private final String defaultCountry;
+    private final Map<String, Compiled> countries = new HashMap<>();
+
+    public BusinessDayCalendar(HolidayCalendarProps props) {
+        for (var e : props.getCountries().entrySet()) countries.put(e.getKey(), new Compiled(e.getValue()));
+        this.defaultCountry = props.getDefaultCountry();
+        // an unconfigured default still skips weekends
+        countries.computeIfAbsent(defaultCountry, k -> new Compiled(new HolidayCalendarProps.Country()));
+    }
+
+    public String defaultCountry() { return defaultCountry; }
+
+    public int businessDays(LocalDate start, LocalDate end) {
+        return businessDays(defaultCountry, start, end);
+    }
+
+    /** Working days in [start, end], both inclusive; 0 for an empty range. */
+    public int businessDays(String country, LocalDate start, LocalDate end) {
+        var c = countries.get(country);
+        if (c == null) throw new IllegalArgumentException("unknown calendar: " + country);
+        if (start.isAfter(end)) return 0;
+
+        int n = 0;
+        for (int y = start.getYear(); y <= end.getYear(); y++) {
+            int from = y == start.getYear() ? start.getDayOfYear() - 1 : 0;
+            int to = y == end.getYear() ? end.getDayOfYear() - 1 : (Year.isLeap(y) ? 365 : 364);
+            n += countRange(year(c, y), from, to);
+        }
+        return n;
+    }
+
+    private static long[] year(Compiled c, int year) {
+        if (year < MIN_YEAR || year > MAX_YEAR) return compile(c, year);
+        int i = year - MIN_YEAR;
+        var bits = c.years.get(i);
+        if (bits == null) {
+            // racing threads compile identical sets; whichever lands first is kept
+            c.years.compareAndSet(i, null, compile(c, year));
+            bits = c.years.get(i);
+        }
+        return bits;
+    }
+
+    private static long[] compile(Compiled c, int year) {
+        var bits = new long[6];
+        int days = Year.isLeap(year) ? 366 : 365;
+        var dow = LocalDate.of(year, 1, 1).getDayOfWeek();
+        for (int d = 0; d < days; d++) {
+            if (!c.weekend.contains(dow)) bits[d >>> 6] |= 1L << d;
+            dow = dow.plus(1);
+        }
+        for (var md : c.fixed) {
+            if (md.isValidYear(year)) clear(bits, md.atYear(year).getDayOfYear() - 1);
+        }
+        for (var date : c.dates) {
+            if (date.getYear() == year) clear(bits, date.getDayOfYear() - 1);
+        }
+        return bits;
+    }
+
+    private static void clear(long[] bits, int day) {
+        bits[day >>> 6] &= ~(1L << day);
+    }
+
+    /** Set bits in [from, to], both inclusive. */
+    static int countRange(long[] bits, int from, int to) {
+        int wFrom = from >>> 6, wTo = to >>> 6;
+        long first = -1L << from;
+        long last = -1L >>> (63 - (to & 63));
+        if (wFrom == wTo) return Long.bitCount(bits[wFrom] & first & last);
+        int n = Long.bitCount(bits[wFrom] & first);
+        for (int w = wFrom + 1; w < wTo; w++) n += Long.bitCount(bits[w]);
+        return n + Long.bitCount(bits[wTo] & last);
+    }
+}
@@ -0,0 +1,130 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.FeedbackCleanCheckProps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * In-process guess at whether a feedback text is already clean enough to store as written.
+ * Scores casing, punctuation, spacing and a few spelling smells; anything it finds lowers the score.
+ * It only has to be right when it says "clean" — everything else goes to the model as before.
+ * In shadow mode it never skips, but counts how often the model left a "clean" text unchanged.
+ */
+@Component
+public class CleanTextClassifier {
+    /** {@code polishModel} of feedback stored without a remote polish. */
+    public static final String MARKER = "local:clean-check";
+
+    public record Verdict(double score, boolean clean, boolean skip) {}
+
+    private static final Pattern SENTENCE_START = Pattern.compile("(?:^|[.!?]\\s+)(\\p{L})");
+    private static final Pattern SPACE_BEFORE_PUNCT = Pattern.compile("\\s[,.!?;:]");
+    private static final Pattern NO_SPACE_AFTER_PUNCT = Pattern.compile("[,;:!?][\\p{L}]|[a-z]\\.[a-z]{2,}");
+    private static final Pattern DOUBLE_SPACE = Pattern.compile(" {2,}");
+    private static final Pattern LOWER_I = Pattern.compile("(?:^|\\s)i(?:\\s|'|$)");
+    private static final Pattern REPEATED_LETTER = Pattern.compile("(\\p{L})\\1\\1");
+    private static final Pattern REPEATED_WORD = Pattern.compile("\\b(\\p{L}+)\\s+\\1\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern WORD = Pattern.compile("[\\p{L}']+");
+
+    // frequent typos in our feedback; a hit means the model would change something
+    private static final Set<String> MISSPELLINGS = Set.of(
+            "teh", "adn", "thier", "recieve", "recieved", "acheive", "acheived", "definately", "seperate",
+            "occured", "untill", "wich", "becuase", "beacuse", "alot", "realy", "goverment", "enviroment",
+            "tommorow", "calender", "begining", "beleive", "collegue", "colleage", "comunication",
+            "responsability", "responsable", "sucessful", "succesful", "managment", "knowlege", "dont",
+            "doesnt", "didnt", "wont", "cant", "isnt", "wasnt", "im", "ive", "thats", "u", "ur", "pls",
+            "thx", "tnx", "btw", "imo", "cuz", "gonna", "wanna", "gotta");
+
+    private final FeedbackCleanCheckProps props;
+    private final Counter evaluated;
+    private final Counter clean;
+    private final Counter skipped;
+    private final Counter shadowAgreed;
+    private final Counter shadowDisagreed;
+    private final DistributionSummary scores;
+
+    public CleanTextClassifier(FeedbackCleanCheckProps props, MeterRegistry meters) {
+        this.props = props;
+        this.evaluated = meters.counter("feedback.cleancheck.evaluated");
+        this.clean = meters.counter("feedback.cleancheck.clean");
+        this.skipped = meters.counter("feedback.cleancheck.skipped");
+        // "clean" verdicts the model then left unchanged (agreed) or rewrote (disagreed)
+        this.shadowAgreed = meters.counter("feedback.cleancheck.shadow", "model", "unchanged");
+        this.shadowDisagreed = meters.counter("feedback.cleancheck.shadow", "model", "changed");
+        this.scores = DistributionSummary.builder("feedback.cleancheck.score").register(meters);
+    }
+
+    public Verdict assess(String text) {
+        if (!props.isEnabled()) return new Verdict(0, false, false);
+        double s = score(text);
+        boolean isClean = s >= props.getThreshold() && WORD.matcher(text).results().count() >= props.getMinWords();
+        evaluated.increment();
+        scores.record(s);
+        if (isClean) clean.increment();
+        boolean skip = isClean && !props.isShadow();
+        if (skip) skipped.increment();
+        return new Verdict(s, isClean, skip);
+    }
+
+    /** Feeds back what the model did with a text we scored, so the threshold can be tuned in shadow mode. */
+    public void observe(Verdict v, String original, String polished) {
+        if (!v.clean()) return;
+        if (normalize(original).equals(normalize(polished))) shadowAgreed.increment(); else shadowDisagreed.increment();
+    }
+
+    public static double score(String text) {
+        if (text == null || text.isBlank()) return 0;
+        var t = text.strip();
+        double penalty = 0;
+
+        var starts = SENTENCE_START.matcher(t);
+        while (starts.find()) if (Character.isLowerCase(starts.group(1).charAt(0))) penalty += 0.25;
+        char last = t.charAt(t.length() - 1);
+        if (last != '.' && last != '!' && last != '?' && last != '"' && last != ')') penalty += 0.25;
+
+        penalty += 0.15 * count(SPACE_BEFORE_PUNCT, t);
+        penalty += 0.15 * count(NO_SPACE_AFTER_PUNCT, t);
+        penalty += 0.15 * count(DOUBLE_SPACE, t);
+        penalty += 0.25 * count(LOWER_I, t);
+        penalty += 0.2 * count(REPEATED_LETTER, t);
+        penalty += 0.2 * count(REPEATED_WORD, t);
+
+        boolean anyUpper = false, anyLower = false;
+        var words = WORD.matcher(t);
+        while (words.find()) {
+            var w = words.group();
+            var lower = w.toLowerCase(Locale.ROOT);
+            if (MISSPELLINGS.contains(lower)) penalty += 0.3;
+            else if (w.equals(lower) && w.length() >= 3 && !hasVowel(lower)) penalty += 0.2;
+            for (int i = 0; i < w.length(); i++) {
+                char c = w.charAt(i);
+                if (Character.isUpperCase(c)) anyUpper = true; else if (Character.isLowerCase(c)) anyLower = true;
+            }
+        }
+        // all lowercase or shouting
+        if (!anyUpper || !anyLower) penalty += 0.3;
+
+        return Math.max(0, 1 - penalty);
+    }
+
+    private static int count(Pattern p, String s) {
+        int n = 0;
+        for (var m = p.matcher(s); m.find(); ) n++;
+        return n;
+    }
+
+    private static boolean hasVowel(String w) {
+        for (int i = 0; i < w.length(); i++) if ("aeiouy".indexOf(w.charAt(i)) >= 0) return true;
+        return false;
+    }
+
+    private static String normalize(String s) {
+        return s == null ? "" : s.strip().replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,223 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.AbsenceAttachmentProps;
+import com.newwork.core.domain.AbsenceAttachment;
+import com.newwork.core.domain.AbsenceAttachmentUpload;
+import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.repo.AbsenceAttachmentRepository;
+import com.newwork.core.repo.AbsenceAttachmentUploadRepository;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.security.Access;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AbsenceAttachmentService;
+import com.newwork.core.web.dto.AttachmentDtos.*;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+@Service
+public class DefaultAbsenceAttachmentService implements AbsenceAttachmentService {
+
+    private static final int MAX_FILENAME = 255;
+
+    private final AbsenceRequestRepository absenceRepo;
+    private final AbsenceAttachmentUploadRepository uploadRepo;
+    private final AbsenceAttachmentRepository attachmentRepo;
+    private final AttachmentStore store;
+    private final AbsenceAttachmentProps props;
+    private final TransactionTemplate tx;
+    // bounds disk writers (and their buffers) however many clients upload at once
+    private final Semaphore chunks;
+    // one chunk at a time per upload, so offsets cannot interleave
+    private final Set<UUID> busy = ConcurrentHashMap.newKeySet();
+    private final Counter bytes;
+    private final Counter deduplicated;
+
+    public DefaultAbsenceAttachmentService(AbsenceRequestRepository absenceRepo, AbsenceAttachmentUploadRepository uploadRepo,
+                                           AbsenceAttachmentRepository attachmentRepo, AttachmentStore store,
+                                           AbsenceAttachmentProps props, PlatformTransactionManager txManager,
+                                           MeterRegistry meters) {
+        this.absenceRepo = absenceRepo;
+        this.uploadRepo = uploadRepo;
+        this.attachmentRepo = attachmentRepo;
+        this.store = store;
+        this.props = props;
+        this.tx = new TransactionTemplate(txManager);
+        this.chunks = new Semaphore(props.getMaxConcurrentChunks());
+        this.bytes = meters.counter("absence.attachments.bytes");
+        this.deduplicated = meters.counter("absence.attachments.deduplicated");
+    }
+
+    @Override
+    public UploadStatus startUpload(UUID absenceId, CreateUploadReq req, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        var absence = absence(absenceId);
+        Access.requireOwner(caller, absence.getEmployee().getId());
+        if (!AbsenceOverlapGuard.ACTIVE.contains(absence.getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "absence_closed");
+
+        if (req == null || req.filename() == null || req.contentType() == null || req.length() == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_request");
+        Path filename;
+        try {
+            filename = Path.of(req.filename().replace('\\', '/')).getFileName();
+        } catch (InvalidPathException e) {
+            // NUL and whatever else the platform refuses in a name
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_filename");
+        }
+        if (filename == null || filename.toString().isBlank() || filename.toString().length() > MAX_FILENAME)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_filename");
+        if (!props.getContentTypes().contains(req.contentType()))
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "unsupported_content_type");
+        if (req.length() <= 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_length");
+        if (req.length() > props.getMaxBytes())
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "too_large");
+
+        var u = new AbsenceAttachmentUpload();
+        u.setAbsenceId(absenceId);
+        u.setEmployeeId(absence.getEmployee().getId());
+        u.setFilename(filename.toString());
+        u.setContentType(req.contentType());
+        u.setLength(req.length());
+        u = uploadRepo.save(u);
+        return new UploadStatus(u.getId(), 0, u.getLength(), null);
+    }
+
+    @Override
+    public UploadStatus uploadStatus(UUID absenceId, UUID uploadId, UserPrincipal caller) {
+        var u = ownUpload(absenceId, uploadId, caller);
+        try {
+            return new UploadStatus(uploadId, store.offset(uploadId), u.getLength(), null);
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "storage_error", e);
+        }
+    }
+
+    @Override
+    public UploadStatus append(UUID absenceId, UUID uploadId, long offset, InputStream body, UserPrincipal caller) throws IOException {
+        var u = ownUpload(absenceId, uploadId, caller);
+        if (!busy.add(uploadId)) throw new ResponseStatusException(HttpStatus.CONFLICT, "upload_busy");
+        try {
+            if (!chunks.tryAcquire()) throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "too_many_uploads");
+            try {
+                long current = store.offset(uploadId);
+                if (offset != current) throw new ResponseStatusException(HttpStatus.CONFLICT, "offset_mismatch");
+                long now = store.append(uploadId, offset, u.getLength(), body);
+                bytes.increment(now - offset);
+                if (now < u.getLength()) return new UploadStatus(uploadId, now, u.getLength(), null);
+                return new UploadStatus(uploadId, now, u.getLength(), complete(u));
+            } finally {
+                chunks.release();
+            }
+        } finally {
+            busy.remove(uploadId);
+        }
+    }
+
+    @Override
+    public List<AttachmentView> list(UUID absenceId, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        Access.requireOwnerOrManager(caller, absence(absenceId).getEmployee().getId());
+        return attachmentRepo.findByAbsenceIdOrderByCreatedAt(absenceId).stream().map(DefaultAbsenceAttachmentService::toView).toList();
+    }
+
+    @Override
+    public Download download(UUID absenceId, UUID attachmentId, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        Access.requireOwnerOrManager(caller, absence(absenceId).getEmployee().getId());
+        var a = attachmentRepo.findById(attachmentId)
+                .filter(x -> x.getAbsenceId().equals(absenceId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return new Download(toView(a), store.blob(a.getSha256()));
+    }
+
+    /** Drops uploads nobody has written to for {@code expire-after-hours}. */
+    @Scheduled(fixedDelayString = "${app.absence.attachments.cleanup-interval-ms:3600000}")
+    public void expire() {
+        var cutoff = Instant.now().minus(Duration.ofHours(props.getExpireAfterHours()));
+        for (var u : uploadRepo.findByCreatedAtBefore(cutoff)) {
+            if (busy.contains(u.getId())) continue;
+            try {
+                var last = store.lastActivity(u.getId());
+                if (last != null && last.toInstant().isAfter(cutoff)) continue;
+                store.discard(u.getId());
+                uploadRepo.delete(u);
+            } catch (IOException e) {
+                // left for the next round
+            }
+        }
+    }
+
+    private AttachmentView complete(AbsenceAttachmentUpload u) throws IOException {
+        var sha = store.hash(u.getId());
+        var a = new AbsenceAttachment();
+        a.setAbsenceId(u.getAbsenceId());
+        a.setSha256(sha);
+        a.setFilename(u.getFilename());
+        a.setContentType(u.getContentType());
+        a.setSizeBytes(u.getLength());
+        // the file is filed last, inside the transaction; if the commit still fails it is put back, so the
+        // upload (whose row the rollback keeps) can be completed again instead of being lost
+        Completed done;
+        try {
+            done = tx.execute(status -> {
+                uploadRepo.delete(u);
+                var row = attachmentRepo.save(a);
+                try {
+                    return new Completed(row, store.finish(u.getId(), sha).deduplicated());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            store.restore(u.getId(), sha);
+            if (e instanceof UncheckedIOException io) throw io.getCause();
+            throw e;
+        }
+        if (done.deduplicated()) deduplicated.increment();
+        return toView(done.attachment());
+    }
+
+    private record Completed(AbsenceAttachment attachment, boolean deduplicated) {}
+
+    private AbsenceAttachmentUpload ownUpload(UUID absenceId, UUID uploadId, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        var u = uploadRepo.findById(uploadId)
+                .filter(x -> x.getAbsenceId().equals(absenceId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        Access.requireOwner(caller, u.getEmployeeId());
+        return u;
+    }
+
+    private AbsenceRequest absence(UUID absenceId) {
+        // the hot partitions first, as DefaultAbsenceService does
+        return absenceRepo.findByIdStartingFrom(absenceId, AbsencePartitions.hotFrom(LocalDate.now()))
+                .or(() -> absenceRepo.findById(absenceId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    private static AttachmentView toView(AbsenceAttachment a) {
+        return new AttachmentView(a.getId(), a.getAbsenceId(), a.getFilename(), a.getContentType(),
+                a.getSizeBytes(), a.getSha256(), a.getCreatedAt());
+    }
+}
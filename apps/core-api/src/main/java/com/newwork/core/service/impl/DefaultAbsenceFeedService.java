@@ -0,0 +1,171 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.repo.AbsenceRequestRepository.FeedRow;
+import com.newwork.core.repo.UserRepository;
+import com.newwork.core.security.Access;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AbsenceFeedService;
+import com.newwork.core.web.dto.AbsenceDtos.FeedVersion;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Base64;
+import java.util.HexFormat;
+
+@Service
+public class DefaultAbsenceFeedService implements AbsenceFeedService {
+
+    private static final DateTimeFormatter DATE = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final DateTimeFormatter STAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final String CRLF = "\r\n";
+
+    private final SecureRandom random = new SecureRandom();
+    private final AbsenceRequestRepository absenceRepo;
+    private final UserRepository userRepo;
+    private final TransactionTemplate readTx;
+
+    public DefaultAbsenceFeedService(AbsenceRequestRepository absenceRepo, UserRepository userRepo,
+                                     PlatformTransactionManager txManager) {
+        this.absenceRepo = absenceRepo;
+        this.userRepo = userRepo;
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+    }
+
+    @Override
+    public FeedVersion version(UserPrincipal caller) {
+        Access.requireManager(caller);
+        var s = absenceRepo.findApprovedStamp(AbsencePartitions.hotFrom(LocalDate.now()));
+        if (s == null) return new FeedVersion(0, null);
+        return new FeedVersion(s.getCount(), latest(s.getLastModified(), s.getNamesModified()));
+    }
+
+    @Override
+    public String rotateToken(UserPrincipal caller) {
+        Access.requireManager(caller);
+        var user = userRepo.findById(caller.userId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        var bytes = new byte[32];
+        random.nextBytes(bytes);
+        var token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        user.setFeedTokenHash(hash(token));
+        userRepo.save(user);
+        return token;
+    }
+
+    @Override
+    public void revokeToken(UserPrincipal caller) {
+        Access.requireAuth(caller);
+        userRepo.findById(caller.userId()).ifPresent(u -> {
+            u.setFeedTokenHash(null);
+            userRepo.save(u);
+        });
+    }
+
+    @Override
+    public UserPrincipal byToken(String token) {
+        if (token == null || token.isBlank()) return null;
+        return userRepo.findByFeedTokenHash(hash(token))
+                .map(u -> new UserPrincipal(u.getId(), u.getRole(), u.getEmployeeId()))
+                .orElse(null);
+    }
+
+    @Override
+    public void writeIcs(OutputStream out) throws IOException {
+        var w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        w.write("BEGIN:VCALENDAR" + CRLF);
+        w.write("VERSION:2.0" + CRLF);
+        w.write("PRODID:-//NEWWORK//Absences//EN" + CRLF);
+        w.write("CALSCALE:GREGORIAN" + CRLF);
+        w.write("X-WR-CALNAME:Team absences" + CRLF);
+        var hotFrom = AbsencePartitions.hotFrom(LocalDate.now());
+        try {
+            readTx.executeWithoutResult(status -> {
+                try (var rows = absenceRepo.streamApproved(hotFrom)) {
+                    rows.forEach(r -> event(w, r));
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        w.write("END:VCALENDAR" + CRLF);
+        w.flush();
+    }
+
+    private static void event(Writer w, FeedRow r) {
+        try {
+            w.write("BEGIN:VEVENT" + CRLF);
+            w.write("UID:" + r.getId() + "@absences.newwork" + CRLF);
+            w.write("DTSTAMP:" + STAMP.format(r.getUpdatedAt()) + CRLF);
+            w.write("LAST-MODIFIED:" + STAMP.format(r.getUpdatedAt()) + CRLF);
+            w.write("DTSTART;VALUE=DATE:" + DATE.format(r.getStartDate()) + CRLF);
+            // all-day events end exclusively
+            w.write("DTEND;VALUE=DATE:" + DATE.format(r.getEndDate().plusDays(1)) + CRLF);
+            w.write(fold("SUMMARY:" + escape(r.getFirstName() + " " + r.getLastName() + " (" + r.getType() + ")")) + CRLF);
+            w.write("TRANSP:TRANSPARENT" + CRLF);
+            w.write("END:VEVENT" + CRLF);
+        } catch (IOException e) {
+            // client went away; surface it past the stream's lambda
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null) return b;
+        return b == null || a.isAfter(b) ? a : b;
+    }
+
+    // only the hash is stored, so a leaked users table does not leak working feed URLs
+    static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** TEXT value escaping, RFC 5545 section 3.3.11. */
+    static String escape(String s) {
+        return s.replace("\\", "\\\\").replace(";", "\\;").replace(",", "\\,")
+                .replace("\r\n", "\\n").replace("\n", "\\n");
+    }
+
+    /**
+     * Lines longer than 75 octets (RFC 5545 section 3.1, in UTF-8) continue on the next line after a
+     * single space. Breaks fall between characters, never inside one.
+     */
+    static String fold(String line) {
+        var sb = new StringBuilder(line.length() + 8);
+        int octets = 0;
+        for (int i = 0; i < line.length(); ) {
+            int cp = line.codePointAt(i);
+            int n = utf8Length(cp);
+            if (octets + n > 75) {
+                sb.append(CRLF).append(' ');
+                // the leading space counts towards the next line
+                octets = 1;
+            }
+            sb.appendCodePoint(cp);
+            octets += n;
+            i += Character.charCount(cp);
+        }
+        return sb.toString();
+    }
+
+    private static int utf8Length(int cp) {
+        return cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+    }
+}
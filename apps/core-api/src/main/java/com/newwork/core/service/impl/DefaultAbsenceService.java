@@ -2,6 +2,8 @@ package com.newwork.core.service.impl;
 
 import com.newwork.core.domain.AbsenceRequest;
 import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
+import com.newwork.core.domain.Employee;
 import com.newwork.core.repo.AbsenceRequestRepository;
 import com.newwork.core.repo.EmployeeRepository;
 import com.newwork.core.security.Access;
@@ -9,62 +11,205 @@ import com.newwork.core.security.Role;
 import com.newwork.core.security.UserPrincipal;
 import com.newwork.core.service.AbsenceService;
 import com.newwork.core.web.dto.AbsenceDtos.*;
+import com.newwork.core.web.support.Cursors;
 import com.newwork.core.web.support.Etags;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
-import java.util.UUID;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 
 @Service
 public class DefaultAbsenceService implements AbsenceService {
 
+    // a year view is the widest calendar the UI asks for
+    static final int MAX_CALENDAR_DAYS = 366;
+    static final int DEFAULT_PAGE = 50;
+    static final int MAX_PAGE = 200;
+    static final int MAX_BULK = 100;
+    static final int MAX_TEAM = 1000;
+    // two years of weekly days off
+    static final int MAX_OCCURRENCES = 104;
+
     private final EmployeeRepository employeeRepo;
     private final AbsenceRequestRepository absenceRepo;
     private final Etags etags;
+    private final AbsenceOverlapGuard overlaps;
+    private final AbsenceLedger ledger;
+    private final BusinessDayCalendar calendar;
+    private final TransactionTemplate tx;
 
-    public DefaultAbsenceService(EmployeeRepository employeeRepo, AbsenceRequestRepository absenceRepo, Etags etags) {
+    public DefaultAbsenceService(EmployeeRepository employeeRepo, AbsenceRequestRepository absenceRepo, Etags etags,
+                                 AbsenceOverlapGuard overlaps, AbsenceLedger ledger, BusinessDayCalendar calendar,
+                                 PlatformTransactionManager txManager) {
         this.employeeRepo = employeeRepo;
         this.absenceRepo = absenceRepo;
         this.etags = etags;
+        this.overlaps = overlaps;
+        this.ledger = ledger;
+        this.calendar = calendar;
+        this.tx = new TransactionTemplate(txManager);
     }
 
     @Override
-    public List<AbsenceView> listForEmployee(UUID employeeId, UserPrincipal caller) {
+    public List<AbsenceView> listForEmployee(UUID employeeId, LocalDate from, UserPrincipal caller) {
         Access.requireOwnerOrManager(caller, employeeId);
-        return absenceRepo.findByEmployeeIdOrderByStartDateDesc(employeeId)
+        var since = from == null ? AbsencePartitions.hotFrom(LocalDate.now()) : from;
+        return absenceRepo.findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(employeeId, since)
                 .stream().map(this::toView).toList();
     }
 
     @Override
     public AbsenceView create(UUID employeeId, CreateAbsenceReq req, UserPrincipal caller) {
         Access.requireOwner(caller, employeeId);
-
-        if (req == null || req.type() == null || req.startDate() == null || req.endDate() == null)
+        requireValid(req);
+        if (req.recurrence() != null)
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_request");
-        if (req.startDate().isAfter(req.endDate()))
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "date_range");
 
         var emp = employeeRepo.findById(employeeId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        var a = newRequest(emp, req, req.startDate(), null);
 
-        var a = new AbsenceRequest();
-        a.setEmployee(emp);
-        a.setType(req.type());
-        a.setStartDate(req.startDate());
-        a.setEndDate(req.endDate());
-        a.setReason(req.reason());
-        a.setStatus(AbsenceStatus.PENDING);
+        // the request and its reservation in the ledger commit together, inside the overlap check
+        return toView(overlaps.admit(a, candidate -> {
+            var saved = absenceRepo.save(candidate);
+            ledger.reserve(saved);
+            return saved;
+        }));
+    }
 
-        return toView(absenceRepo.save(a));
+    @Override
+    public SeriesView createSeries(UUID employeeId, CreateAbsenceReq req, UserPrincipal caller) {
+        Access.requireOwner(caller, employeeId);
+        requireValid(req);
+        var starts = Recurrence.expand(req.startDate(), req.recurrence(), MAX_OCCURRENCES);
+        if (Recurrence.overlapsItself(starts, ChronoUnit.DAYS.between(req.startDate(), req.endDate())))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_recurrence");
+
+        var emp = employeeRepo.findById(employeeId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        var seriesId = UUID.randomUUID();
+        var occurrences = starts.stream().map(start -> newRequest(emp, req, start, seriesId)).toList();
+
+        // all occurrences pass the overlap and balance checks or none is stored
+        var saved = overlaps.admitAll(occurrences, candidates -> {
+            // reserve before inserting: a ledger row opened now must not see the other occurrences yet
+            candidates.forEach(ledger::reserve);
+            // ids are generated client-side, so the inserts leave as jdbc batches on commit
+            return absenceRepo.saveAll(candidates);
+        });
+        return toSeriesView(seriesId, saved);
+    }
+
+    @Override
+    public SeriesView getSeries(UUID seriesId, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        var all = absenceRepo.findBySeriesIdOrderByStartDate(seriesId);
+        if (all.isEmpty()) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        boolean allowed = caller.role() == Role.MANAGER || Access.isOwner(caller, all.getFirst().getEmployee().getId());
+        if (!allowed) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        return toSeriesView(seriesId, all);
+    }
+
+    @Override
+    public SeriesView approveSeries(UUID seriesId, DecisionReq req, String ifMatch, UserPrincipal caller) {
+        Access.requireManager(caller);
+        return toSeriesView(seriesId, transitionSeries(seriesId, ifMatch, AbsenceStatus.APPROVED, req, null));
+    }
+
+    @Override
+    public SeriesView cancelSeries(UUID seriesId, DecisionReq req, String ifMatch, UserPrincipal caller) {
+        Access.requireAuth(caller);
+        if (caller.employeeId() == null) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        return toSeriesView(seriesId, transitionSeries(seriesId, ifMatch, AbsenceStatus.CANCELLED, req, caller.employeeId()));
+    }
+
+    @Override
+    public List<CalendarEntry> calendar(LocalDate from, LocalDate to, Collection<AbsenceStatus> statuses, UserPrincipal caller) {
+        Access.requireManager(caller);
+        requireRange(from, to);
+
+        var wanted = statuses == null || statuses.isEmpty() ? AbsenceOverlapGuard.ACTIVE : statuses;
+        return absenceRepo.findCalendar(from, to, AbsencePartitions.earliestStartOverlapping(from), wanted).stream()
+                .map(r -> new CalendarEntry(r.getId(), r.getEmployeeId(), r.getFirstName() + " " + r.getLastName(),
+                        r.getType(), r.getStartDate(), r.getEndDate(), r.getStatus()))
+                .toList();
+    }
+
+    @Override
+    public Availability availability(LocalDate from, LocalDate to, Collection<AbsenceType> types,
+                                     Collection<UUID> employeeIds, boolean includePending, UserPrincipal caller) {
+        Access.requireManager(caller);
+        requireRange(from, to);
+        if (employeeIds != null && employeeIds.size() > MAX_TEAM)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "too_many_items");
+
+        var statuses = includePending ? AbsenceOverlapGuard.ACTIVE : EnumSet.of(AbsenceStatus.APPROVED);
+        var wantedTypes = types == null || types.isEmpty() ? EnumSet.allOf(AbsenceType.class) : types;
+        var earliest = AbsencePartitions.earliestStartOverlapping(from);
+        boolean everyone = employeeIds == null || employeeIds.isEmpty();
+        var team = everyone ? Set.<UUID>of() : Set.copyOf(employeeIds);
+
+        int headcount = (int) (everyone ? employeeRepo.count() : employeeRepo.countByIdIn(team));
+        var spans = everyone
+                ? absenceRepo.findSpansIntersecting(from, to, earliest, statuses, wantedTypes)
+                : absenceRepo.findSpansIntersectingOf(team, from, to, earliest, statuses, wantedTypes);
+
+        // active requests of one employee never overlap, so a day counts each absent person once
+        var absent = AvailabilitySweep.absentPerDay(from, to, spans);
+        var available = new int[absent.length];
+        for (int i = 0; i < absent.length; i++) available[i] = Math.max(0, headcount - absent[i]);
+        return new Availability(from, to, headcount, absent, available);
+    }
+
+    @Override
+    public PendingPage pending(String cursor, Integer limit, UserPrincipal caller) {
+        Access.requireManager(caller);
+        int size = Cursors.clampLimit(limit, DEFAULT_PAGE, MAX_PAGE);
+        var after = Cursors.decode(cursor);
+        // one extra row tells us whether there is a next page
+        var fetch = Limit.of(size + 1);
+
+        var rows = (after == null
+                ? absenceRepo.findPendingFirstPage(fetch)
+                : absenceRepo.findPendingPageAfter(after.at(), after.id(), fetch))
+                .stream()
+                .map(r -> new PendingItem(r.getId(), r.getEmployeeId(), r.getFirstName() + " " + r.getLastName(),
+                        r.getType(), r.getStartDate(), r.getEndDate(), r.getReason(), r.getCreatedAt(), r.getVersion()))
+                .toList();
+
+        if (rows.size() <= size) return new PendingPage(rows, null);
+        var page = rows.subList(0, size);
+        var last = page.getLast();
+        return new PendingPage(page, Cursors.encode(last.createdAt(), last.id()));
+    }
+
+    @Override
+    public PendingCount pendingCount(UserPrincipal caller) {
+        Access.requireManager(caller);
+        return new PendingCount(absenceRepo.countPending());
+    }
+
+    @Override
+    public BalanceView balance(UUID employeeId, Integer year, AbsenceType type, UserPrincipal caller) {
+        Access.requireOwnerOrManager(caller, employeeId);
+        int y = year == null ? LocalDate.now().getYear() : year;
+        var t = type == null ? AbsenceType.VACATION : type;
+        var b = ledger.balance(employeeId, y, t);
+        return new BalanceView(employeeId, y, t, b.getAllowanceDays(), b.getUsedDays(), b.getReservedDays(), b.remainingDays());
     }
 
     @Override
     public AbsenceView getOne(UUID id, UserPrincipal caller) {
         Access.requireAuth(caller);
-        var a = absenceRepo.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        var a = find(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
         boolean allowed = caller.role() == Role.MANAGER || Access.isOwner(caller, a.getEmployee().getId());
         if (!allowed) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
         return toView(a);
@@ -73,38 +218,191 @@ public class DefaultAbsenceService implements AbsenceService {
     @Override
     public AbsenceView approve(UUID id, DecisionReq req, String ifMatch, UserPrincipal caller) {
         Access.requireManager(caller);
-        var a = mustBePendingAndMatch(id, ifMatch);
-        a.setStatus(AbsenceStatus.APPROVED);
-        a.setManagerComment(req == null ? null : req.comment());
-        return toView(absenceRepo.save(a));
+        return toView(transition(id, ifMatch, AbsenceStatus.APPROVED, req, null));
     }
 
     @Override
     public AbsenceView reject(UUID id, DecisionReq req, String ifMatch, UserPrincipal caller) {
         Access.requireManager(caller);
-        var a = mustBePendingAndMatch(id, ifMatch);
-        a.setStatus(AbsenceStatus.REJECTED);
-        a.setManagerComment(req == null ? null : req.comment());
-        return toView(absenceRepo.save(a));
+        return toView(transition(id, ifMatch, AbsenceStatus.REJECTED, req, null));
+    }
+
+    @Override
+    public List<BulkDecisionResult> decideAll(BulkDecisionReq req, UserPrincipal caller) {
+        Access.requireManager(caller);
+        if (req == null || req.items() == null || req.items().isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_request");
+        if (req.items().size() > MAX_BULK)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "too_many_items");
+
+        var items = req.items();
+        var results = new BulkDecisionResult[items.size()];
+        Map<Integer, AbsenceRequest> applied;
+        try {
+            // one select for every target; the dirty rows go out as a single jdbc batch on commit
+            applied = tx.execute(status -> {
+                var ids = items.stream().filter(Objects::nonNull).map(BulkDecisionItem::id).filter(Objects::nonNull).toList();
+                var byId = new HashMap<UUID, AbsenceRequest>();
+                for (var a : absenceRepo.findAllByIdStartingFrom(ids, AbsencePartitions.hotFrom(LocalDate.now()))) byId.put(a.getId(), a);
+                var older = ids.stream().filter(id -> !byId.containsKey(id)).toList();
+                if (!older.isEmpty()) for (var a : absenceRepo.findAllById(older)) byId.put(a.getId(), a);
+
+                var seen = new HashSet<UUID>();
+                var out = new LinkedHashMap<Integer, AbsenceRequest>();
+                for (int i = 0; i < items.size(); i++) {
+                    var item = items.get(i);
+                    var id = item == null ? null : item.id();
+                    try {
+                        if (id == null || item.decision() == null)
+                            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_item");
+                        if (!seen.add(id))
+                            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "duplicate_item");
+                        var a = byId.get(id);
+                        if (a == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "not_found");
+                        mustBePendingAndMatch(a, item.ifMatch());
+                        a.setStatus(item.decision() == Decision.APPROVE ? AbsenceStatus.APPROVED : AbsenceStatus.REJECTED);
+                        a.setManagerComment(item.comment());
+                        if (item.decision() == Decision.APPROVE) ledger.approved(a);
+                        else ledger.released(a);
+                        out.put(i, a);
+                    } catch (ResponseStatusException e) {
+                        results[i] = new BulkDecisionResult(id, e.getStatusCode().value(), e.getReason(), null);
+                    } catch (Etags.VersionMismatchException e) {
+                        results[i] = new BulkDecisionResult(id, HttpStatus.CONFLICT.value(), "version_mismatch", null);
+                    }
+                }
+                absenceRepo.saveAll(out.values());
+                return out;
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // someone decided one of these between our read and the batch; nothing was written
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "concurrent_update");
+        }
+
+        applied.forEach((i, a) -> results[i] = new BulkDecisionResult(a.getId(), HttpStatus.OK.value(), null, toView(a)));
+        return List.of(results);
     }
 
     @Override
     public AbsenceView cancel(UUID id, DecisionReq req, String ifMatch, UserPrincipal caller) {
         Access.requireAuth(caller);
-        var a = mustBePendingAndMatch(id, ifMatch);
-        Access.requireOwner(caller, a.getEmployee().getId());
-        a.setStatus(AbsenceStatus.CANCELLED);
-        a.setManagerComment(req == null ? null : req.comment());
-        return toView(absenceRepo.save(a));
+        if (caller.employeeId() == null) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        return toView(transition(id, ifMatch, AbsenceStatus.CANCELLED, req, caller.employeeId()));
     }
 
-    private AbsenceRequest mustBePendingAndMatch(UUID id, String ifMatch) {
-        var a = absenceRepo.findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    /**
+     * Moves a PENDING request to {@code to} with one conditional UPDATE keyed on id, If-Match version
+     * and (for cancel) owner, so there is no read-check-write window. The row is read back afterwards
+     * in the same transaction, under the UPDATE's lock; when nothing changed, that read only explains why.
+     */
+    private AbsenceRequest transition(UUID id, String ifMatch, AbsenceStatus to, DecisionReq req, UUID ownerId) {
+        int expected = etags.requireAndParse(ifMatch);
+        var comment = req == null ? null : req.comment();
+        return tx.execute(status -> {
+            int changed = absenceRepo.transitionFromPending(id, expected, to, comment, Instant.now(), ownerId);
+            var a = find(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            if (changed == 0) {
+                if (ownerId != null && !ownerId.equals(a.getEmployee().getId()))
+                    throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+                mustBePendingAndMatch(a, ifMatch);
+                // matched a moment ago but not when the UPDATE ran
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "concurrent_update");
+            }
+            if (to == AbsenceStatus.APPROVED) ledger.approved(a);
+            else ledger.released(a);
+            return a;
+        });
+    }
+
+    /**
+     * Moves every PENDING occurrence of a series to {@code to} with one UPDATE. If-Match is the series
+     * version; the UPDATE must hit exactly the occurrences that were pending when it was checked,
+     * otherwise something moved in between and the whole decision rolls back. Occurrences already
+     * decided are left as they are.
+     */
+    private List<AbsenceRequest> transitionSeries(UUID seriesId, String ifMatch, AbsenceStatus to, DecisionReq req, UUID ownerId) {
+        etags.requireAndParse(ifMatch);
+        var comment = req == null ? null : req.comment();
+        return tx.execute(status -> {
+            var all = absenceRepo.findBySeriesIdOrderByStartDate(seriesId);
+            if (all.isEmpty()) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            if (ownerId != null && !ownerId.equals(all.getFirst().getEmployee().getId()))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+            etags.assertMatches(seriesVersion(all), ifMatch);
+            var pending = all.stream().filter(a -> a.getStatus() == AbsenceStatus.PENDING).toList();
+            if (pending.isEmpty()) throw new ResponseStatusException(HttpStatus.CONFLICT, "not_pending");
+
+            ledger.prepare(pending);
+            int changed = absenceRepo.transitionSeriesFromPending(seriesId, to, comment, Instant.now(), ownerId);
+            if (changed != pending.size())
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "concurrent_update");
+
+            var moved = new HashSet<UUID>();
+            pending.forEach(a -> moved.add(a.getId()));
+            // the UPDATE cleared the persistence context; read the new state back
+            var after = absenceRepo.findBySeriesIdOrderByStartDate(seriesId);
+            for (var a : after) {
+                if (!moved.contains(a.getId())) continue;
+                if (to == AbsenceStatus.APPROVED) ledger.approved(a);
+                else ledger.released(a);
+            }
+            return after;
+        });
+    }
+
+    private static void requireValid(CreateAbsenceReq req) {
+        if (req == null || req.type() == null || req.startDate() == null || req.endDate() == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_request");
+        if (req.startDate().isAfter(req.endDate()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "date_range");
+        if (ChronoUnit.DAYS.between(req.startDate(), req.endDate()) > AbsencePartitions.MAX_SPAN_DAYS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "range_too_long");
+    }
+
+    /** A PENDING request like {@code req}, moved to begin on {@code start}. */
+    private static AbsenceRequest newRequest(Employee emp, CreateAbsenceReq req, LocalDate start, UUID seriesId) {
+        var a = new AbsenceRequest();
+        a.setEmployee(emp);
+        a.setType(req.type());
+        a.setStartDate(start);
+        a.setEndDate(start.plusDays(ChronoUnit.DAYS.between(req.startDate(), req.endDate())));
+        a.setReason(req.reason());
+        a.setStatus(AbsenceStatus.PENDING);
+        a.setSeriesId(seriesId);
+        return a;
+    }
+
+    /** Sum of the occurrence versions: any transition of any occurrence raises it. */
+    private static int seriesVersion(List<AbsenceRequest> all) {
+        int v = 0;
+        for (var a : all) v += a.getVersion() == null ? 0 : a.getVersion();
+        return v;
+    }
+
+    private SeriesView toSeriesView(UUID seriesId, List<AbsenceRequest> all) {
+        return new SeriesView(seriesId, all.getFirst().getEmployee().getId(), seriesVersion(all),
+                all.stream().map(this::toView).toList());
+    }
+
+    private static void requireRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_request");
+        if (from.isAfter(to))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "date_range");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_CALENDAR_DAYS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "range_too_long");
+    }
+
+    private void mustBePendingAndMatch(AbsenceRequest a, String ifMatch) {
         etags.assertMatches(a.getVersion(), ifMatch);
         if (a.getStatus() != AbsenceStatus.PENDING)
             throw new ResponseStatusException(HttpStatus.CONFLICT, "not_pending");
-        return a;
+    }
+
+    // the hot partitions first: an id alone cannot prune, so only older requests probe every year
+    private Optional<AbsenceRequest> find(UUID id) {
+        return absenceRepo.findByIdStartingFrom(id, AbsencePartitions.hotFrom(LocalDate.now()))
+                .or(() -> absenceRepo.findById(id));
     }
 
     private AbsenceView toView(AbsenceRequest a) {
@@ -114,12 +412,14 @@ public class DefaultAbsenceService implements AbsenceService {
                 a.getType(),
                 a.getStartDate(),
                 a.getEndDate(),
+                calendar.businessDays(a.getStartDate(), a.getEndDate()),
                 a.getReason(),
                 a.getStatus(),
                 a.getManagerComment(),
                 a.getCreatedAt(),
                 a.getUpdatedAt(),
-                a.getVersion()
+                a.getVersion(),
+                a.getSeriesId()
         );
     }
 }
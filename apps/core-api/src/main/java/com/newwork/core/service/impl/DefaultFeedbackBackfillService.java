@@ -0,0 +1,281 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.ai.HfModelRouter;
+import com.newwork.core.ai.HfRateLimiter;
+import com.newwork.core.config.FeedbackBackfillProps;
+import com.newwork.core.domain.BackfillCheckpoint;
+import com.newwork.core.domain.BackfillState;
+import com.newwork.core.repo.BackfillCheckpointRepository;
+import com.newwork.core.repo.FeedbackRepository;
+import com.newwork.core.security.Access;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AiPolishService;
+import com.newwork.core.service.AiPolishService.Polished;
+import com.newwork.core.service.FeedbackBackfillService;
+import com.newwork.core.web.dto.BackfillDtos.BackfillStatus;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-polishes stored feedback with the current model in the background.
+ * Walks {@code feedback} by primary-key keyset, polishes each batch with bounded concurrency at a
+ * paced rate (capped to a share of the shared HF limiter), and writes the batch back together with
+ * its checkpoint in one transaction, so a restart resumes after the last committed batch. The
+ * checkpoint never moves past a row whose polish failed: the next batch starts with it again.
+ */
+@Service
+public class DefaultFeedbackBackfillService implements FeedbackBackfillService {
+    static final String JOB = "feedback-repolish";
+
+    private final FeedbackRepository feedbackRepository;
+    private final BackfillCheckpointRepository checkpoints;
+    private final AiPolishService ai;
+    private final HfModelRouter router;
+    private final HfRateLimiter limiter;
+    private final FeedbackBackfillProps props;
+    private final TransactionTemplate tx;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("feedback-repolish").daemon().factory());
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean pauseRequested;
+
+    public DefaultFeedbackBackfillService(FeedbackRepository feedbackRepository,
+                                          BackfillCheckpointRepository checkpoints,
+                                          AiPolishService ai,
+                                          HfModelRouter router,
+                                          HfRateLimiter limiter,
+                                          FeedbackBackfillProps props,
+                                          PlatformTransactionManager txManager) {
+        this.feedbackRepository = feedbackRepository;
+        this.checkpoints = checkpoints;
+        this.ai = ai;
+        this.router = router;
+        this.limiter = limiter;
+        this.props = props;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    @Override
+    public BackfillStatus start(UserPrincipal caller) {
+        Access.requireManager(caller);
+        if (!running.compareAndSet(false, true)) throw new ResponseStatusException(HttpStatus.CONFLICT, "backfill_running");
+        try {
+            var cp = checkpoints.findById(JOB).orElse(null);
+            // a paused (or interrupted) run for the same model carries on from its checkpoint
+            boolean resume = cp != null && cp.getState() != BackfillState.DONE && cp.getState() != BackfillState.FAILED
+                    && ai.modelId().equals(cp.getTargetModel());
+            if (!resume) cp = fresh(cp);
+            cp.setState(BackfillState.RUNNING);
+            cp.setLastError(null);
+            cp = checkpoints.save(cp);
+            launch();
+            return toStatus(cp);
+        } catch (RuntimeException ex) {
+            running.set(false);
+            throw ex;
+        }
+    }
+
+    @Override
+    public BackfillStatus pause(UserPrincipal caller) {
+        Access.requireManager(caller);
+        if (!running.get()) throw new ResponseStatusException(HttpStatus.CONFLICT, "backfill_not_running");
+        // honoured between batches; the batch in flight is still written
+        pauseRequested = true;
+        return status(caller);
+    }
+
+    @Override
+    public BackfillStatus status(UserPrincipal caller) {
+        Access.requireManager(caller);
+        return checkpoints.findById(JOB).map(this::toStatus)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeAfterRestart() {
+        if (!props.isResumeOnStartup()) return;
+        var cp = checkpoints.findById(JOB).orElse(null);
+        if (cp == null || cp.getState() != BackfillState.RUNNING || !ai.modelId().equals(cp.getTargetModel())) return;
+        if (running.compareAndSet(false, true)) launch();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // leave the checkpoint RUNNING so the next start picks it up
+        runner.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void launch() {
+        pauseRequested = false;
+        runner.submit(this::run);
+    }
+
+    private void run() {
+        var pacer = new Pacer();
+        UUID stuck = null;
+        int stuckAttempts = 0;
+        try {
+            while (!pauseRequested) {
+                var cp = checkpoints.findById(JOB).orElseThrow();
+                // any member of the pool counts as current, not only the primary; a chunked polish goes by
+                // the member that served most of it
+                var pool = Set.copyOf(router.models());
+                var skip = new ArrayList<>(pool);
+                skip.add(cp.getTargetModel());
+                skip.add(CleanTextClassifier.MARKER);
+                var fetch = Limit.of(Math.max(1, props.getBatchSize()));
+                var batch = cp.getLastId() == null
+                        ? feedbackRepository.findBackfillFirstBatch(skip, fetch)
+                        : feedbackRepository.findBackfillBatchAfter(cp.getLastId(), skip, fetch);
+                if (batch.isEmpty()) {
+                    finish(BackfillState.DONE, null);
+                    return;
+                }
+
+                var error = new AtomicReference<String>();
+                var polished = polish(batch, pacer, error);
+                if (polished.isEmpty()) {
+                    // nothing got through (model down, quota gone): stop without moving the checkpoint
+                    finish(BackfillState.FAILED, error.get());
+                    return;
+                }
+                // rows after a failure are written too; being current now, the query passes over them next time
+                int firstFailed = 0;
+                while (firstFailed < batch.size() && polished.containsKey(batch.get(firstFailed).getId())) firstFailed++;
+                var lastId = firstFailed == 0 ? cp.getLastId() : batch.get(firstFailed - 1).getId();
+                tx.executeWithoutResult(s -> write(cp, lastId, batch.size(), polished, error.get()));
+
+                if (firstFailed < batch.size()) {
+                    var failedId = batch.get(firstFailed).getId();
+                    stuckAttempts = failedId.equals(stuck) ? stuckAttempts + 1 : 1;
+                    stuck = failedId;
+                    if (stuckAttempts >= Math.max(1, props.getMaxRowAttempts())) {
+                        // the checkpoint stays in front of it; a fresh start walks up to it again
+                        finish(BackfillState.FAILED, "feedback " + failedId + " failed " + stuckAttempts + " times: " + error.get());
+                        return;
+                    }
+                }
+            }
+            finish(BackfillState.PAUSED, null);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            finish(BackfillState.FAILED, ex.getMessage());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<UUID, Polished> polish(List<FeedbackRepository.BackfillRow> batch, Pacer pacer,
+                                       AtomicReference<String> error) throws InterruptedException {
+        var out = new ConcurrentHashMap<UUID, Polished>();
+        var gate = new Semaphore(Math.max(1, props.getConcurrency()));
+        var futures = new ArrayList<Future<?>>(batch.size());
+        try {
+            for (var row : batch) {
+                pacer.pace();
+                gate.acquire();
+                futures.add(workers.submit(() -> {
+                    try {
+                        out.put(row.getId(), ai.polishWithModel(row.getTextOriginal()));
+                    } catch (RuntimeException ex) {
+                        error.set(ex.getMessage());
+                    } finally {
+                        gate.release();
+                    }
+                }));
+            }
+            for (var f : futures) f.get();
+        } catch (ExecutionException ee) {
+            throw new IllegalStateException(ee.getCause());
+        } finally {
+            futures.forEach(f -> f.cancel(true));
+        }
+        return out;
+    }
+
+    private void write(BackfillCheckpoint cp, UUID lastId, int attempted, Map<UUID, Polished> polished, String error) {
+        var rows = feedbackRepository.findAllById(polished.keySet());
+        for (var f : rows) {
+            var p = polished.get(f.getId());
+            f.setTextPolished(p.text());
+            f.setPolishModel(p.model());
+            f.setPolishModelCount(p.modelCount());
+        }
+        // jdbc batching turns these into a handful of round trips
+        feedbackRepository.saveAll(rows);
+
+        cp.setLastId(lastId);
+        cp.setProcessed(cp.getProcessed() + polished.size());
+        cp.setUpdated(cp.getUpdated() + rows.size());
+        cp.setFailed(cp.getFailed() + attempted - polished.size());
+        if (error != null) cp.setLastError(error);
+        checkpoints.save(cp);
+    }
+
+    /**
+     * Spaces calls out at the configured rate, or less when the shared limiter has been backing off.
+     * One per run, used only by the runner thread, so the slot needs no synchronization.
+     */
+    private final class Pacer {
+        private long nextSlot = System.nanoTime();
+
+        void pace() throws InterruptedException {
+            double rate = Math.min(props.getPermitsPerSecond(), limiter.currentRate() * props.getMaxShareOfLimiter());
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.01, rate));
+            long now = System.nanoTime();
+            long wait = nextSlot - now;
+            if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+            nextSlot = Math.max(now, nextSlot) + interval;
+        }
+    }
+
+    private void finish(BackfillState state, String error) {
+        checkpoints.findById(JOB).ifPresent(cp -> {
+            cp.setState(state);
+            if (error != null) cp.setLastError(error);
+            checkpoints.save(cp);
+        });
+    }
+
+    private BackfillCheckpoint fresh(BackfillCheckpoint cp) {
+        if (cp == null) {
+            cp = new BackfillCheckpoint();
+            cp.setJob(JOB);
+        }
+        cp.setTargetModel(ai.modelId());
+        cp.setLastId(null);
+        cp.setProcessed(0);
+        cp.setUpdated(0);
+        cp.setFailed(0);
+        cp.setStartedAt(Instant.now());
+        return cp;
+    }
+
+    private BackfillStatus toStatus(BackfillCheckpoint cp) {
+        return new BackfillStatus(cp.getJob(), cp.getState(), cp.getTargetModel(), cp.getLastId(),
+                cp.getProcessed(), cp.getUpdated(), cp.getFailed(), cp.getLastError(),
+                cp.getStartedAt(), cp.getUpdatedAt());
+    }
+}
@@ -9,43 +9,88 @@ import com.newwork.core.security.Role;
 import com.newwork.core.security.UserPrincipal;
 import com.newwork.core.service.AiPolishService;
 import com.newwork.core.service.FeedbackService;
+import com.newwork.core.service.FeedbackSummaryService;
 import com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackPage;
 import com.newwork.core.web.dto.FeedbackDtos.FeedbackView;
+import com.newwork.core.web.support.Cursors;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 @Service
 public class DefaultFeedbackService implements FeedbackService {
+    static final int DEFAULT_PAGE = 50;
+    static final int MAX_PAGE = 200;
 
     private final EmployeeRepository employeeRepository;
     private final FeedbackRepository feedbackRepository;
     private final AiPolishService ai;
+    private final NearDuplicateIndex duplicates;
+    private final CleanTextClassifier cleanCheck;
+    private final FeedbackSummaryService summaries;
+    private final long polishTimeoutMs;
 
     public DefaultFeedbackService(EmployeeRepository employeeRepository,
                                   FeedbackRepository feedbackRepository,
-                                  AiPolishService ai) {
+                                  AiPolishService ai,
+                                  NearDuplicateIndex duplicates,
+                                  CleanTextClassifier cleanCheck,
+                                  FeedbackSummaryService summaries,
+                                  @Value("${app.feedback.polish-timeout-ms:80000}") long polishTimeoutMs) {
         this.employeeRepository = employeeRepository;
         this.feedbackRepository = feedbackRepository;
         this.ai = ai;
+        this.duplicates = duplicates;
+        this.cleanCheck = cleanCheck;
+        this.summaries = summaries;
+        this.polishTimeoutMs = polishTimeoutMs;
     }
 
     @Override
-    public List<FeedbackView> listForEmployee(UUID employeeId, UserPrincipal caller) {
+    public FeedbackPage listForEmployee(UUID employeeId, String cursor, Integer limit, boolean polishedOnly,
+                                        UserPrincipal caller) {
         Access.requireAuth(caller);
         boolean allowed = caller.role() == Role.MANAGER
                 || Access.isOwner(caller, employeeId);
         if (!allowed) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
 
-        return feedbackRepository.findByEmployeeIdOrderByCreatedAtDesc(employeeId)
-                .stream().map(this::toView).toList();
+        int size = Cursors.clampLimit(limit, DEFAULT_PAGE, MAX_PAGE);
+        var after = Cursors.decode(cursor);
+        // one extra row tells us whether there is a next page
+        var fetch = Limit.of(size + 1);
+
+        List<FeedbackView> rows;
+        if (polishedOnly) {
+            var found = after == null
+                    ? feedbackRepository.findPolishedFirstPage(employeeId, fetch)
+                    : feedbackRepository.findPolishedPageAfter(employeeId, after.at(), after.id(), fetch);
+            rows = found.stream().map(this::toView).toList();
+        } else {
+            var found = after == null
+                    ? feedbackRepository.findByEmployeeIdOrderByCreatedAtDescIdDesc(employeeId, fetch)
+                    : feedbackRepository.findPageAfter(employeeId, after.at(), after.id(), fetch);
+            rows = found.stream().map(this::toView).toList();
+        }
+
+        if (rows.size() <= size) return new FeedbackPage(rows, null);
+        var page = rows.subList(0, size);
+        var last = page.getLast();
+        return new FeedbackPage(page, Cursors.encode(last.createdAt(), last.id()));
     }
 
     @Override
-    public FeedbackView createForEmployee(UUID employeeId, CreateFeedbackReq req, UserPrincipal caller) {
+    public CompletableFuture<FeedbackView> createForEmployee(UUID employeeId, CreateFeedbackReq req, UserPrincipal caller) {
         Access.requireAnyRole(caller, Role.COWORKER, Role.MANAGER);
 
         Employee target = employeeRepository.findById(employeeId)
@@ -54,16 +99,85 @@ public class DefaultFeedbackService implements FeedbackService {
         String original = req == null || req.text() == null ? "" : req.text().trim();
         if (original.isBlank()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "text_required");
 
-        String polished = ai.polish(original);
-
         var f = new Feedback();
         f.setEmployee(target);
         f.setAuthorEmployeeId(caller.employeeId());
         f.setTextOriginal(original);
-        f.setTextPolished(polished);
-        f.setPolishModel(ai.modelId());
 
-        return toView(feedbackRepository.save(f));
+        // a resubmission of the same text reuses the stored polish instead of another inference
+        var reuse = duplicates.tryReuse(employeeId, caller.employeeId(), original);
+        if (reuse.isPresent()) {
+            f.setTextPolished(reuse.get().polished());
+            f.setPolishModel(reuse.get().model());
+            f.setPolishModelCount(reuse.get().modelCount());
+            return CompletableFuture.completedFuture(save(f));
+        }
+
+        // text that already reads clean is stored as written, marked so it can be re-polished later
+        var verdict = cleanCheck.assess(original);
+        if (verdict.skip()) {
+            f.setTextPolished(original);
+            f.setPolishModel(CleanTextClassifier.MARKER);
+            return CompletableFuture.completedFuture(save(f));
+        }
+
+        // the request thread is released here; the row is saved when the model answers
+        return withDeadline(ai.polishAsync(original), polished -> {
+            cleanCheck.observe(verdict, original, polished.text());
+            f.setTextPolished(polished.text());
+            f.setPolishModel(polished.model());
+            f.setPolishModelCount(polished.modelCount());
+            return save(f);
+        });
+    }
+
+    /**
+     * Runs {@code then} on the polish unless {@code polishTimeoutMs} passes first, in which case the
+     * polish is cancelled (stopping its retries) and the caller gets 504. Exactly one of the two wins,
+     * so a row is never saved after its response has gone out and a client retry cannot duplicate it.
+     * The timeout sits below {@code spring.mvc.async.request-timeout}, which would not cancel anything.
+     */
+    private CompletableFuture<FeedbackView> withDeadline(CompletableFuture<AiPolishService.Polished> polish,
+                                                         Function<AiPolishService.Polished, FeedbackView> then) {
+        var out = new CompletableFuture<FeedbackView>();
+        var claimed = new AtomicBoolean();
+        var deadline = new CompletableFuture<Void>();
+        deadline.orTimeout(polishTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((v, ex) -> {
+            if (ex == null || !claimed.compareAndSet(false, true)) return;
+            polish.cancel(false);
+            out.completeExceptionally(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "polish_timeout"));
+        });
+        polish.whenComplete((polished, ex) -> {
+            // stops the timer
+            deadline.complete(null);
+            if (!claimed.compareAndSet(false, true)) return;
+            if (ex != null) {
+                out.completeExceptionally(ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+                return;
+            }
+            try {
+                out.complete(then.apply(polished));
+            } catch (RuntimeException e) {
+                out.completeExceptionally(e);
+            }
+        });
+        // someone giving up on the response gives up on the polish too
+        out.whenComplete((v, ex) -> {
+            if (out.isCancelled() && claimed.compareAndSet(false, true)) polish.cancel(false);
+        });
+        return out;
+    }
+
+    private FeedbackView save(Feedback f) {
+        var saved = feedbackRepository.save(f);
+        duplicates.record(saved);
+        summaries.feedbackAdded(saved.getEmployee().getId());
+        return toView(saved);
+    }
+
+    private FeedbackView toView(FeedbackRepository.PolishedRow r) {
+        return new FeedbackView(r.getId(), r.getAuthorEmployeeId(), null, r.getTextPolished(),
+                r.getPolishModel(), r.getCreatedAt());
     }
 
     private FeedbackView toView(Feedback f) {
@@ -0,0 +1,146 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.FeedbackSummaryProps;
+import com.newwork.core.domain.FeedbackSummary;
+import com.newwork.core.repo.FeedbackRepository;
+import com.newwork.core.repo.FeedbackSummaryRepository;
+import com.newwork.core.security.Access;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.FeedbackSummarizer;
+import com.newwork.core.service.FeedbackSummaryService;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackSummaryView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps one running summary per employee and folds each new feedback into it, instead of
+ * re-summarizing the whole history. Reads never wait for the model: they get the stored summary,
+ * flagged {@code pending} while newer feedback is still being folded in on the background worker.
+ */
+@Slf4j
+@Service
+public class DefaultFeedbackSummaryService implements FeedbackSummaryService {
+
+    private record Key(UUID employeeId, UUID lastFeedbackId) {}
+
+    private final FeedbackRepository feedbackRepository;
+    private final FeedbackSummaryRepository summaries;
+    private final FeedbackSummarizer summarizer;
+    private final FeedbackSummaryProps props;
+    private final Map<Key, FeedbackSummaryView> cache;
+    private final Counter failures;
+
+    // one worker: folds for an employee never interleave, and the model sees one request at a time
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("feedback-summary").daemon().factory());
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    public DefaultFeedbackSummaryService(FeedbackRepository feedbackRepository,
+                                         FeedbackSummaryRepository summaries,
+                                         FeedbackSummarizer summarizer,
+                                         FeedbackSummaryProps props,
+                                         MeterRegistry meters) {
+        this.feedbackRepository = feedbackRepository;
+        this.summaries = summaries;
+        this.summarizer = summarizer;
+        this.props = props;
+        this.failures = meters.counter("feedback.summary.failures");
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, FeedbackSummaryView> eldest) {
+                return size() > props.getCacheSize();
+            }
+        };
+    }
+
+    @Override
+    public FeedbackSummaryView summaryFor(UUID employeeId, UserPrincipal caller) {
+        Access.requireOwnerOrManager(caller, employeeId);
+
+        var head = feedbackRepository.findFirstByEmployeeIdOrderByCreatedAtDescIdDesc(employeeId).orElse(null);
+        var key = new Key(employeeId, head == null ? null : head.getId());
+        synchronized (cache) {
+            var hit = cache.get(key);
+            if (hit != null) return hit;
+        }
+
+        var stored = summaries.findById(employeeId).orElse(null);
+        boolean current = Objects.equals(stored == null ? null : stored.getLastFeedbackId(), key.lastFeedbackId());
+        if (!current) feedbackAdded(employeeId);
+
+        var view = toView(employeeId, stored, !current);
+        if (current) {
+            synchronized (cache) { cache.put(key, view); }
+        }
+        return view;
+    }
+
+    @Override
+    public void feedbackAdded(UUID employeeId) {
+        // one queued catch-up per employee covers any number of new rows
+        if (queued.add(employeeId)) worker.submit(() -> {
+            queued.remove(employeeId);
+            try {
+                catchUp(employeeId);
+            } catch (RuntimeException ex) {
+                // the summary stays one step behind until the next feedback or read; a summarizer that
+                // fails every time shows up here and in feedback.summary.failures
+                failures.increment();
+                log.warn("Summary catch-up failed for employee {} with {}", employeeId, summarizer.modelId(), ex);
+            }
+        });
+    }
+
+    /** Folds every feedback newer than the stored position into the summary, oldest first. */
+    void catchUp(UUID employeeId) {
+        var s = summaries.findById(employeeId).orElseGet(() -> {
+            var fresh = new FeedbackSummary();
+            fresh.setEmployeeId(employeeId);
+            fresh.setModel(summarizer.modelId());
+            return fresh;
+        });
+        var fetch = Limit.of(Math.max(1, props.getBatchSize()));
+        while (true) {
+            var rows = s.getLastFeedbackId() == null
+                    ? feedbackRepository.findPolishedOldestFirst(employeeId, fetch)
+                    : feedbackRepository.findPolishedNewerThan(employeeId, s.getLastFeedbackAt(), s.getLastFeedbackId(), fetch);
+            if (rows.isEmpty()) return;
+            for (var r : rows) {
+                s.setSummary(truncate(summarizer.fold(s.getSummary(), r.getTextPolished())));
+                s.setItemCount(s.getItemCount() + 1);
+                s.setLastFeedbackId(r.getId());
+                s.setLastFeedbackAt(r.getCreatedAt());
+            }
+            s.setModel(summarizer.modelId());
+            // saved per batch, so a failure later on keeps what was folded so far
+            s = summaries.save(s);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private static String truncate(String s) {
+        return s.length() <= 4000 ? s : s.substring(0, 4000);
+    }
+
+    private FeedbackSummaryView toView(UUID employeeId, FeedbackSummary s, boolean pending) {
+        if (s == null) return new FeedbackSummaryView(employeeId, "", 0, null, summarizer.modelId(), null, pending);
+        return new FeedbackSummaryView(employeeId, s.getSummary(), s.getItemCount(), s.getLastFeedbackId(),
+                s.getModel(), s.getUpdatedAt(), pending);
+    }
+}
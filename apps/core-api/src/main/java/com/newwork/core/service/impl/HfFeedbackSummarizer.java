@@ -0,0 +1,40 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.ai.impl.HfClientRest;
+import com.newwork.core.config.FeedbackSummaryProps;
+import com.newwork.core.service.FeedbackSummarizer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/** Folds with a remote summarization model: the previous summary plus the new item go in, a new summary comes out. */
+@Service
+@ConditionalOnProperty(prefix = "app.feedback.summary", name = "engine", havingValue = "hf", matchIfMissing = true)
+public class HfFeedbackSummarizer implements FeedbackSummarizer {
+    // keeps the model input well inside its context window
+    private static final int MAX_INPUT_CHARS = 3000;
+
+    private final HfClientRest client;
+    private final FeedbackSummaryProps props;
+    private final String token;
+
+    public HfFeedbackSummarizer(HfClientRest client, FeedbackSummaryProps props,
+                                @Value("${app.ai.hf.token}") String token) {
+        this.client = client;
+        this.props = props;
+        this.token = token;
+    }
+
+    @Override public String modelId() { return props.getModel(); }
+
+    @Override
+    public String fold(String summary, String item) {
+        var input = summary == null || summary.isBlank() ? item : summary + "\n\n" + item;
+        if (input.length() > MAX_INPUT_CHARS) input = input.substring(input.length() - MAX_INPUT_CHARS);
+        var res = client.generate(props.getModel(), token, input);
+        if (res == null || res.isEmpty()) throw new IllegalStateException("empty_response");
+        Object out = res.getFirst().getOrDefault("summary_text", res.getFirst().get("generated_text"));
+        if (!(out instanceof String s) || s.isBlank()) throw new IllegalStateException("bad_response");
+        return s.trim();
+    }
+}
@@ -1,8 +1,18 @@
 package com.newwork.core.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.newwork.core.ai.HfChunkingProps;
 import com.newwork.core.ai.HfClient;
+import com.newwork.core.ai.HfColdStartProps;
+import com.newwork.core.ai.HfModelRouter;
 import com.newwork.core.ai.HfRetryProps;
+import com.newwork.core.ai.RequestBudget;
+import com.newwork.core.ai.SentenceChunker;
 import com.newwork.core.service.AiPolishService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -11,22 +21,48 @@ import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.SecureRandom;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Polishes through the HF inference API without parking a thread between attempts: each attempt
+ * runs on a virtual thread, and the backoff before the next one is a timer, not a sleep.
+ * {@link #polishAsync} is the primary entry point; the blocking methods just wait on it.
+ */
 @Service
 public class HuggingFacePolishService implements AiPolishService {
+    private static final ObjectMapper JSON = new ObjectMapper();
+
     private final String model;
     private final String token;
     private final HfClient client;
     private final HfRetryProps retry;
+    private final HfModelRouter router;
+    private final HfChunkingProps chunking;
+    private final Map<String, Polished> chunkCache;
+    private final HfColdStartProps coldStart;
+    private final RequestBudget retryBudget;
+    private final Counter retries;
+    private final Counter budgetExhausted;
     private final SecureRandom rnd = new SecureRandom();
 
+    private final ExecutorService calls = Executors.newVirtualThreadPerTaskExecutor();
+    // only ever hands due retries over to a virtual thread, so one thread serves any number of them
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("hf-retry-timer").daemon().factory());
+
     public HuggingFacePolishService(
             @Value("${app.ai.hf.model}") String model,
             @Value("${app.ai.hf.token}") String token,
             HfClient client,
-            HfRetryProps retry
+            HfRetryProps retry,
+            HfModelRouter router,
+            HfChunkingProps chunking,
+            HfColdStartProps coldStart,
+            MeterRegistry meters
     ) {
         if (model == null || model.isBlank()) throw new IllegalStateException("app.ai.hf.model required");
         if (token == null || token.isBlank()) throw new IllegalStateException("HF_API_TOKEN required");
@@ -34,40 +70,266 @@ public class HuggingFacePolishService implements AiPolishService {
         this.token = token;
         this.client = client;
         this.retry = retry;
+        this.router = router;
+        this.chunking = chunking;
+        this.coldStart = coldStart;
+        this.retryBudget = new RequestBudget(retry.getBudgetRatio(), retry.getBudgetMax(), retry.getBudgetMinPerSecond());
+        this.retries = meters.counter("hf.retry.attempts");
+        this.budgetExhausted = meters.counter("hf.retry.budget_exhausted");
+        meters.gauge("hf.retry.budget", retryBudget, RequestBudget::available);
+        // access-ordered LRU: boilerplate sentences ("Great job this quarter.") recur across feedback
+        this.chunkCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, Polished> eldest) {
+                return size() > chunking.getCacheSize();
+            }
+        };
     }
 
     @Override public String modelId() { return model; }
 
     @Override
     public String polish(String input) {
+        return polishWithModel(input).text();
+    }
+
+    @Override
+    public Polished polishWithModel(String input) {
+        var f = polishAsync(input);
+        try {
+            return f.get();
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof RuntimeException re) throw re;
+            throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "hf_unavailable", ee.getCause());
+        } catch (InterruptedException ie) {
+            f.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "interrupted", ie);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Polished> polishAsync(String input) {
         if (input == null || input.isBlank()) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "text_required");
+        if (!chunking.isEnabled() || input.length() <= chunking.getThresholdChars()) return polishOnce(input);
+
+        var chunks = SentenceChunker.split(input, chunking.getMaxChunkChars());
+        if (chunks.size() < 2) return polishOnce(input);
+        return polishChunks(chunks);
+    }
+
+    /**
+     * Polishes the chunks concurrently, at most {@code maxParallel} at a time, and stitches them back in
+     * order with their original separators. Each chunk runs the full retry loop; the first chunk that
+     * still fails cancels the rest and fails the whole request.
+     */
+    private CompletableFuture<Polished> polishChunks(List<SentenceChunker.Chunk> chunks) {
+        int n = chunks.size();
+        var out = new CompletableFuture<Polished>();
+        var parts = new Polished[n];
+        var inFlight = new ConcurrentLinkedQueue<CompletableFuture<Polished>>();
+        var next = new AtomicInteger();
+        var remaining = new AtomicInteger(n);
 
-        int attempts = 0;
+        // each finished chunk starts the next one, so no thread waits on a permit
+        var launch = new Runnable() {
+            @Override public void run() {
+                int k = next.getAndIncrement();
+                if (k >= n || out.isDone()) return;
+                var f = polishChunk(chunks.get(k).text());
+                inFlight.add(f);
+                f.whenComplete((p, ex) -> {
+                    if (ex != null) {
+                        if (out.completeExceptionally(unwrap(ex))) inFlight.forEach(c -> c.cancel(false));
+                        return;
+                    }
+                    parts[k] = p;
+                    if (remaining.decrementAndGet() == 0) out.complete(assemble(chunks, parts));
+                    else run();
+                });
+            }
+        };
+        // a cancelled or timed-out caller stops every chunk still retrying
+        out.whenComplete((p, ex) -> {
+            if (ex != null) inFlight.forEach(c -> c.cancel(false));
+        });
+        for (int i = 0; i < Math.max(1, chunking.getMaxParallel()); i++) launch.run();
+        return out;
+    }
+
+    private static Polished assemble(List<SentenceChunker.Chunk> chunks, Polished[] parts) {
+        var text = new StringBuilder();
+        var served = new LinkedHashMap<String, Integer>();
+        for (int i = 0; i < parts.length; i++) {
+            text.append(parts[i].text()).append(chunks.get(i).separator());
+            served.merge(parts[i].model(), 1, Integer::sum);
+        }
+        // the member that served most chunks stands for the whole text; the first one on a tie
+        String primary = null;
+        for (var e : served.entrySet()) if (primary == null || e.getValue() > served.get(primary)) primary = e.getKey();
+        return new Polished(text.toString().trim(), primary, served.size());
+    }
+
+    private CompletableFuture<Polished> polishChunk(String text) {
+        synchronized (chunkCache) {
+            var hit = chunkCache.get(text);
+            if (hit != null) return CompletableFuture.completedFuture(hit);
+        }
+        var f = polishOnce(text);
+        // cached before any caller sees the result, so a repeated sentence launched next finds it
+        var out = f.thenApply(p -> {
+            synchronized (chunkCache) { chunkCache.put(text, p); }
+            return p;
+        });
+        // a dependent does not cancel its source; pass it on so the retries stop
+        out.whenComplete((p, ex) -> {
+            if (out.isCancelled()) f.cancel(false);
+        });
+        return out;
+    }
+
+    /** Retry state of one input; attempts hop between virtual threads, never two at once. */
+    private final class Attempt {
+        final String input;
+        final CompletableFuture<Polished> result = new CompletableFuture<>();
+        int attempts;
         long delay = retry.getInitialDelayMs();
+        int loadRetries;
+        int throttleRetries;
+        long loadWaitedMs;
+        boolean waitForModel;
+
+        Attempt(String input) { this.input = input; }
+    }
+
+    private CompletableFuture<Polished> polishOnce(String input) {
+        var a = new Attempt(input);
+        submit(a);
+        return a.result;
+    }
 
-        while (true) {
-            attempts++;
-            try {
-                List<Map<String,Object>> res = client.infer(model, token, input);
-                if (res == null || res.isEmpty()) throw new IllegalStateException("empty_response");
-                Object gt = res.getFirst().get("generated_text");
-                if (gt instanceof String s && !s.isBlank()) return s.trim();
-                throw new IllegalStateException("bad_response");
-            } catch (RestClientResponseException ex) {
-                int sc = ex.getStatusCode().value();
-                if (!shouldRetry(sc, attempts)) {
-                    throw new ResponseStatusException(ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+    private void submit(Attempt a) {
+        // a cancelled caller stops the retries
+        if (a.result.isDone()) return;
+        try {
+            calls.execute(() -> run(a));
+        } catch (RejectedExecutionException ex) {
+            a.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "shutting_down", ex));
+        }
+    }
+
+    private void retryAfter(Attempt a, long ms) {
+        if (ms <= 0) {
+            submit(a);
+            return;
+        }
+        try {
+            timer.schedule(() -> submit(a), ms, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            a.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "shutting_down", ex));
+        }
+    }
+
+    private void run(Attempt a) {
+        if (a.attempts == 0 && a.loadRetries == 0 && a.throttleRetries == 0) retryBudget.deposit();
+        a.attempts++;
+        // every attempt may go to a different member of the pool
+        var member = router.acquire();
+        long start = System.nanoTime();
+        try {
+            List<Map<String,Object>> res = client.infer(member.model(), token, a.input, a.waitForModel);
+            if (res == null || res.isEmpty()) throw new IllegalStateException("empty_response");
+            Object gt = res.getFirst().get("generated_text");
+            if (!(gt instanceof String s) || s.isBlank()) throw new IllegalStateException("bad_response");
+            router.onSuccess(member, (System.nanoTime() - start) / 1_000_000);
+            a.result.complete(new Polished(s.trim(), member.model()));
+        } catch (RestClientResponseException ex) {
+            int sc = ex.getStatusCode().value();
+            long eta = sc == 503 ? loadingEtaMs(ex.getResponseBodyAsString()) : -1;
+            if (eta >= 0) {
+                // a cold model, not a sick one: don't eject it, and don't spend the normal attempts on it
+                router.release(member);
+                a.attempts--;
+                if (++a.loadRetries > coldStart.getMaxLoadRetries() || a.loadWaitedMs >= coldStart.getMaxLoadWaitMs()
+                        || !withdrawRetry()) {
+                    a.result.completeExceptionally(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "hf_model_loading", ex));
+                    return;
                 }
-                sleep(delayWithJitter(delay));
-                delay = nextDelay(delay);
-            } catch (RestClientException | IllegalStateException ex) {
-                if (!shouldRetry(-1, attempts)) throw new ResponseStatusException(HttpStatus.BAD_GATEWAY, "hf_unavailable", ex);
-                sleep(delayWithJitter(delay));
-                delay = nextDelay(delay);
+                if (coldStart.isWaitForModel()) {
+                    a.waitForModel = true;
+                    retryAfter(a, 0);
+                } else {
+                    long ms = Math.min(Math.max(eta, retry.getInitialDelayMs()), coldStart.getMaxLoadWaitMs() - a.loadWaitedMs);
+                    a.loadWaitedMs += ms;
+                    retryAfter(a, ms);
+                }
+                return;
+            }
+            if (isModelFault(sc)) router.onFailure(member); else router.release(member);
+            if (sc == 429) {
+                // the limiter has paused every caller for Retry-After and the next attempt waits that out in
+                // acquire(); backing off on top of it would only spend one of maxAttempts on a rejected call
+                a.attempts--;
+                if (++a.throttleRetries > retry.getMaxThrottleRetries() || !withdrawRetry()) {
+                    a.result.completeExceptionally(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "hf_rate_limited", ex));
+                    return;
+                }
+                retryAfter(a, 0);
+                return;
             }
+            if (!shouldRetry(sc, a.attempts) || !withdrawRetry()) {
+                a.result.completeExceptionally(new ResponseStatusException(ex.getStatusCode(), ex.getResponseBodyAsString(), ex));
+                return;
+            }
+            backoff(a);
+        } catch (RestClientException | IllegalStateException ex) {
+            router.onFailure(member);
+            if (!shouldRetry(-1, a.attempts) || !withdrawRetry()) {
+                a.result.completeExceptionally(new ResponseStatusException(HttpStatus.BAD_GATEWAY, "hf_unavailable", ex));
+                return;
+            }
+            backoff(a);
+        } catch (RuntimeException ex) {
+            router.release(member);
+            a.result.completeExceptionally(ex);
         }
     }
 
+    private void backoff(Attempt a) {
+        long ms = delayWithJitter(a.delay);
+        a.delay = nextDelay(a.delay);
+        retryAfter(a, ms);
+    }
+
+    /** Retries share one process-wide budget; when it is spent the failure is surfaced as is. */
+    private boolean withdrawRetry() {
+        if (retryBudget.tryWithdraw()) {
+            retries.increment();
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+
+    /** @return the {@code estimated_time} of a "model is loading" body in ms, or -1 for any other 503 */
+    static long loadingEtaMs(String body) {
+        if (body == null || body.isBlank()) return -1;
+        try {
+            var eta = JSON.readTree(body).get("estimated_time");
+            return eta != null && eta.isNumber() ? Math.round(eta.asDouble() * 1000) : -1;
+        } catch (JsonProcessingException e) {
+            return -1;
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+
+    // a 429 is the account's quota, not the member's health; ejecting for it only moves load around the pool
+    private static boolean isModelFault(int status) {
+        return status >= 500 || status == 408;
+    }
+
     private boolean shouldRetry(int status, int attempts) {
         if (attempts >= retry.getMaxAttempts()) return false;
         if (status < 0) return true;
@@ -86,7 +348,9 @@ public class HuggingFacePolishService implements AiPolishService {
         return base + j;
     }
 
-    private void sleep(long ms) {
-        try { Thread.sleep(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+        calls.shutdownNow();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,67 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.ai.SentenceChunker;
+import com.newwork.core.config.FeedbackSummaryProps;
+import com.newwork.core.service.FeedbackSummarizer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Extractive stand-in that needs no network: keeps the {@code maxSentences} sentences whose words
+ * recur most across the summary and the new item, in their original order. Deterministic, so tests
+ * and local runs can use it in place of the remote model.
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.feedback.summary", name = "engine", havingValue = "local")
+public class LocalFeedbackSummarizer implements FeedbackSummarizer {
+    public static final String MODEL = "local:extractive";
+
+    private final FeedbackSummaryProps props;
+
+    public LocalFeedbackSummarizer(FeedbackSummaryProps props) { this.props = props; }
+
+    @Override public String modelId() { return MODEL; }
+
+    @Override
+    public String fold(String summary, String item) {
+        var sentences = new ArrayList<String>();
+        for (var text : new String[]{summary, item}) {
+            if (text == null || text.isBlank()) continue;
+            // a chunk limit of 1 yields one chunk per sentence
+            for (var c : SentenceChunker.split(text, 1)) if (!sentences.contains(c.text())) sentences.add(c.text());
+        }
+        if (sentences.size() <= props.getMaxSentences()) return String.join(" ", sentences);
+
+        var freq = new HashMap<String, Integer>();
+        var words = new ArrayList<List<String>>(sentences.size());
+        for (var s : sentences) {
+            var w = contentWords(s);
+            words.add(w);
+            for (var t : new HashSet<>(w)) freq.merge(t, 1, Integer::sum);
+        }
+        var scores = new double[sentences.size()];
+        for (int i = 0; i < scores.length; i++) {
+            double sum = 0;
+            for (var t : words.get(i)) sum += freq.get(t);
+            scores[i] = words.get(i).isEmpty() ? 0 : sum / words.get(i).size();
+        }
+
+        // best sentences win; ties go to the newer one
+        var order = new ArrayList<Integer>();
+        for (int i = 0; i < scores.length; i++) order.add(i);
+        order.sort(Comparator.<Integer>comparingDouble(i -> -scores[i]).thenComparing(Comparator.reverseOrder()));
+        var keep = new TreeSet<>(order.subList(0, props.getMaxSentences()));
+
+        var out = new StringJoiner(" ");
+        for (int i : keep) out.add(sentences.get(i));
+        return out.toString();
+    }
+
+    private static List<String> contentWords(String s) {
+        var out = new ArrayList<String>();
+        for (var t : s.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) if (t.length() > 3) out.add(t);
+        return out;
+    }
+}
@@ -0,0 +1,185 @@
+package com.newwork.core.service.impl;
+
+import com.newwork.core.config.FeedbackDedupProps;
+import com.newwork.core.domain.Feedback;
+import com.newwork.core.repo.FeedbackRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * SimHash index over recent original feedback texts, keyed by (employee, author).
+ * Lets {@link DefaultFeedbackService} reuse a stored polish when the same author resubmits
+ * the same text, instead of paying another remote inference, and counts lightly edited
+ * resubmissions. Holds only ids and 64-bit fingerprints; candidate rows are loaded by id to confirm.
+ */
+@Component
+public class NearDuplicateIndex {
+
+    public record Reuse(UUID sourceId, String polished, String model, int modelCount) {}
+
+    private record Key(UUID employeeId, UUID authorId) {}
+    private record Entry(UUID feedbackId, long simhash) {}
+
+    private final FeedbackDedupProps props;
+    private final FeedbackRepository repo;
+    private final TransactionTemplate readTx;
+    private final Map<Key, ArrayDeque<Entry>> recent;
+    private final int maxHammingBits;
+
+    private final Counter candidates;
+    private final Counter reused;
+
+    public NearDuplicateIndex(FeedbackDedupProps props, FeedbackRepository repo, PlatformTransactionManager txManager,
+                              MeterRegistry meters) {
+        this.props = props;
+        this.repo = repo;
+        this.readTx = new TransactionTemplate(txManager);
+        this.readTx.setReadOnly(true);
+        // access-ordered LRU so the bound evicts the quietest pairs first
+        this.recent = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<Key, ArrayDeque<Entry>> eldest) {
+                return size() > props.getMaxKeys();
+            }
+        };
+        // cheap prefilter before the exact shingle check; ~1 bit per 1.5% of dissimilarity
+        this.maxHammingBits = (int) Math.ceil((1 - props.getMinSimilarity()) * 64);
+        this.candidates = meters.counter("feedback.dedup.candidates");
+        this.reused = meters.counter("feedback.dedup.reused");
+    }
+
+    /**
+     * Streams the newest {@code rebuildLimit} texts and keeps only their fingerprints, so memory is
+     * bounded by {@code maxKeys * perKey} entries rather than by the texts read.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!props.isEnabled()) return;
+        // keys in order of their newest feedback; rows arrive newest first, so each deque is filled from the front
+        var loaded = new LinkedHashMap<Key, ArrayDeque<Entry>>();
+        readTx.executeWithoutResult(status -> {
+            try (var rows = repo.streamRecentOriginals(Limit.of(props.getRebuildLimit()))) {
+                rows.forEach(r -> {
+                    if (r.getAuthorEmployeeId() == null || r.getTextOriginal() == null) return;
+                    var key = new Key(r.getEmployeeId(), r.getAuthorEmployeeId());
+                    var q = loaded.get(key);
+                    if (q == null) {
+                        // the quietest pairs would be evicted anyway
+                        if (loaded.size() >= props.getMaxKeys()) return;
+                        q = new ArrayDeque<>();
+                        loaded.put(key, q);
+                    }
+                    if (q.size() < props.getPerKey()) q.addFirst(new Entry(r.getId(), simhash(r.getTextOriginal())));
+                });
+            }
+        });
+        var keys = new ArrayList<>(loaded.keySet());
+        synchronized (this) {
+            recent.clear();
+            // quietest first, so the access order of the LRU matches recency
+            for (int i = keys.size() - 1; i >= 0; i--) recent.put(keys.get(i), loaded.get(keys.get(i)));
+        }
+    }
+
+    public void record(Feedback f) {
+        if (!props.isEnabled() || f.getId() == null || f.getEmployee() == null) return;
+        add(f.getEmployee().getId(), f.getAuthorEmployeeId(), f.getId(), f.getTextOriginal());
+    }
+
+    /**
+     * @return the stored polish of an earlier submission with the same text, ignoring case and spacing;
+     * empty otherwise. Near-duplicates are only counted: patching a polish with raw words would store
+     * text the model never saw as polished output.
+     */
+    public Optional<Reuse> tryReuse(UUID employeeId, UUID authorId, String original) {
+        if (!props.isEnabled() || authorId == null) return Optional.empty();
+
+        long fp = simhash(original);
+        var near = new ArrayList<UUID>();
+        synchronized (this) {
+            var entries = recent.get(new Key(employeeId, authorId));
+            if (entries == null) return Optional.empty();
+            // every candidate, not just the closest: fingerprints collide
+            for (var e : entries) {
+                if (Long.bitCount(e.simhash() ^ fp) <= maxHammingBits) near.add(e.feedbackId());
+            }
+        }
+        if (near.isEmpty()) return Optional.empty();
+
+        var text = normalize(original);
+        var shingles = shingles(original);
+        Feedback same = null;
+        boolean similar = false;
+        for (var source : repo.findAllById(near)) {
+            if (text.equals(normalize(source.getTextOriginal()))) {
+                same = source;
+                break;
+            }
+            similar |= jaccard(shingles(source.getTextOriginal()), shingles) >= props.getMinSimilarity();
+        }
+        if (same == null && !similar) return Optional.empty();
+        candidates.increment();
+        if (props.isShadow() || same == null) return Optional.empty();
+        reused.increment();
+        return Optional.of(new Reuse(same.getId(), same.getTextPolished(), same.getPolishModel(), same.getPolishModelCount()));
+    }
+
+    private synchronized void add(UUID employeeId, UUID authorId, UUID id, String text) {
+        if (authorId == null || text == null) return;
+        var q = recent.computeIfAbsent(new Key(employeeId, authorId), k -> new ArrayDeque<>());
+        q.addLast(new Entry(id, simhash(text)));
+        while (q.size() > props.getPerKey()) q.removeFirst();
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    static Set<String> shingles(String text) {
+        var tokens = text == null ? new String[0]
+                : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}']+");
+        var out = new HashSet<String>();
+        String prev = null;
+        for (var t : tokens) {
+            if (t.isEmpty()) continue;
+            out.add(t);
+            if (prev != null) out.add(prev + " " + t);
+            prev = t;
+        }
+        return out;
+    }
+
+    static double jaccard(Set<String> x, Set<String> y) {
+        if (x.isEmpty() && y.isEmpty()) return 1.0;
+        int inter = 0;
+        for (var s : x) if (y.contains(s)) inter++;
+        return (double) inter / (x.size() + y.size() - inter);
+    }
+
+    static long simhash(String text) {
+        int[] v = new int[64];
+        for (var f : shingles(text)) {
+            long h = fnv1a64(f);
+            for (int i = 0; i < 64; i++) v[i] += ((h >>> i) & 1) == 1 ? 1 : -1;
+        }
+        long out = 0;
+        for (int i = 0; i < 64; i++) if (v[i] > 0) out |= 1L << i;
+        return out;
+    }
+
+    private static long fnv1a64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package com.newwork.core.service.impl;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * The part of RFC 5545 RRULE that absence series need: {@code FREQ=DAILY|WEEKLY|MONTHLY},
+ * {@code INTERVAL}, one of {@code COUNT} or {@code UNTIL} (a DATE, inclusive), and {@code BYDAY} for
+ * weekly rules, which must include the start's weekday. Monthly rules repeat the start's day of month
+ * and skip months without it, as the RFC does. Anything else is a 400 invalid_recurrence.
+ */
+final class Recurrence {
+
+    private static final Map<String, DayOfWeek> DAYS = Map.of(
+            "MO", DayOfWeek.MONDAY, "TU", DayOfWeek.TUESDAY, "WE", DayOfWeek.WEDNESDAY, "TH", DayOfWeek.THURSDAY,
+            "FR", DayOfWeek.FRIDAY, "SA", DayOfWeek.SATURDAY, "SU", DayOfWeek.SUNDAY);
+
+    private Recurrence() {}
+
+    /**
+     * Occurrence start dates from {@code start}, ascending.
+     *
+     * @throws ResponseStatusException 400 invalid_recurrence, or too_many_occurrences past {@code max}
+     */
+    static List<LocalDate> expand(LocalDate start, String rule, int max) {
+        if (rule == null || rule.isBlank()) throw invalid();
+        var parts = new HashMap<String, String>();
+        for (var part : rule.trim().replaceFirst("^RRULE:", "").split(";")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0 || parts.put(part.substring(0, eq).trim().toUpperCase(Locale.ROOT), part.substring(eq + 1).trim()) != null)
+                throw invalid();
+        }
+        var freq = parts.remove("FREQ");
+        int interval = positive(parts.remove("INTERVAL"), 1);
+        var countText = parts.remove("COUNT");
+        var untilText = parts.remove("UNTIL");
+        var byDay = parts.remove("BYDAY");
+        // open-ended rules, both bounds, or parts we do not implement
+        if (!parts.isEmpty() || (countText == null) == (untilText == null)) throw invalid();
+        int count = countText == null ? Integer.MAX_VALUE : positive(countText, 0);
+        var until = untilText == null ? LocalDate.MAX : date(untilText);
+
+        var out = new ArrayList<LocalDate>();
+        switch (freq == null ? "" : freq.toUpperCase(Locale.ROOT)) {
+            case "DAILY" -> {
+                if (byDay != null) throw invalid();
+                for (var d = start; !d.isAfter(until) && out.size() < count; d = d.plusDays(interval)) add(out, d, max);
+            }
+            case "WEEKLY" -> {
+                var weekdays = byDay == null ? EnumSet.of(start.getDayOfWeek()) : weekdays(byDay);
+                // the requested dates are the first occurrence; a BYDAY that skips them would book other dates
+                if (!weekdays.contains(start.getDayOfWeek())) throw invalid();
+                var week = start.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                while (out.size() < count && !week.isAfter(until)) {
+                    for (var wd : weekdays) {
+                        var d = week.with(TemporalAdjusters.nextOrSame(wd));
+                        if (d.isBefore(start)) continue;
+                        if (d.isAfter(until) || out.size() == count) break;
+                        add(out, d, max);
+                    }
+                    week = week.plusWeeks(interval);
+                }
+            }
+            case "MONTHLY" -> {
+                if (byDay != null) throw invalid();
+                for (long i = 0; out.size() < count; i += interval) {
+                    var month = start.withDayOfMonth(1).plusMonths(i);
+                    if (month.isAfter(until)) break;
+                    if (start.getDayOfMonth() > month.lengthOfMonth()) continue;
+                    var d = month.withDayOfMonth(start.getDayOfMonth());
+                    if (d.isAfter(until)) break;
+                    add(out, d, max);
+                }
+            }
+            default -> throw invalid();
+        }
+        if (out.isEmpty()) throw invalid();
+        return out;
+    }
+
+    /** True when some occurrence of {@code lengthDays} (end minus start) reaches into the next one. */
+    static boolean overlapsItself(List<LocalDate> starts, long lengthDays) {
+        for (int i = 1; i < starts.size(); i++) {
+            if (ChronoUnit.DAYS.between(starts.get(i - 1), starts.get(i)) <= lengthDays) return true;
+        }
+        return false;
+    }
+
+    private static void add(List<LocalDate> out, LocalDate d, int max) {
+        if (out.size() == max) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "too_many_occurrences");
+        out.add(d);
+    }
+
+    private static Set<DayOfWeek> weekdays(String byDay) {
+        // EnumSet iterates Monday first, the RFC's default week start
+        var out = EnumSet.noneOf(DayOfWeek.class);
+        for (var code : byDay.split(",")) {
+            var d = DAYS.get(code.trim().toUpperCase(Locale.ROOT));
+            if (d == null) throw invalid();
+            out.add(d);
+        }
+        return out;
+    }
+
+    private static int positive(String text, int fallback) {
+        if (text == null) return fallback;
+        try {
+            int v = Integer.parseInt(text);
+            if (v > 0) return v;
+        } catch (NumberFormatException ignored) {
+            // reported below
+        }
+        throw invalid();
+    }
+
+    private static LocalDate date(String text) {
+        try {
+            // DATE form, or the date part of a DATE-TIME
+            return LocalDate.parse(text.length() >= 8 ? text.substring(0, 8) : text, DateTimeFormatter.BASIC_ISO_DATE);
+        } catch (DateTimeParseException e) {
+            throw invalid();
+        }
+    }
+
+    private static ResponseStatusException invalid() {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "invalid_recurrence");
+    }
+}
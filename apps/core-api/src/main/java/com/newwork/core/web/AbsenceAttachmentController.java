@@ -0,0 +1,122 @@
+package com.newwork.core.web;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AbsenceAttachmentService;
+import com.newwork.core.web.dto.AttachmentDtos.*;
+import com.newwork.core.web.support.FileDownloads;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Attachments (doctor's notes and the like) on absences. Uploads follow the core of the tus 1.0
+ * protocol: create, then PATCH chunks at {@code Upload-Offset}, asking with HEAD where to resume
+ * after a broken connection.
+ */
+@Tag(name = "Absence attachments")
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+public class AbsenceAttachmentController {
+
+    static final String TUS_RESUMABLE = "Tus-Resumable";
+    static final String TUS_VERSION = "1.0.0";
+    static final String UPLOAD_OFFSET = "Upload-Offset";
+    static final String UPLOAD_LENGTH = "Upload-Length";
+    static final String OFFSET_OCTET_STREAM = "application/offset+octet-stream";
+
+    private final AbsenceAttachmentService service;
+
+    public AbsenceAttachmentController(AbsenceAttachmentService service) {
+        this.service = service;
+    }
+
+    private static UserPrincipal principal(Authentication auth) {
+        return auth != null && auth.getPrincipal() instanceof UserPrincipal up ? up : null;
+    }
+
+    @Operation(summary = "Start an attachment upload (owner)",
+            description = "Declares filename, content type and length of the file; the bytes follow as PATCH " +
+                    "requests to the returned Location. The absence must be PENDING or APPROVED.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "201", description = "Created",
+                    headers = @Header(name = "Location", description = "Upload URL")),
+            @ApiResponse(responseCode = "409", description = "Absence is closed"),
+            @ApiResponse(responseCode = "413", description = "Larger than allowed"),
+            @ApiResponse(responseCode = "415", description = "Content type not allowed")
+    })
+    @PostMapping("/api/absences/{id}/attachments/uploads")
+    public ResponseEntity<UploadStatus> startUpload(@PathVariable UUID id,
+                                                    @RequestBody CreateUploadReq req,
+                                                    Authentication auth) {
+        var out = service.startUpload(id, req, principal(auth));
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/absences/{id}/attachments/uploads/{uploadId}").buildAndExpand(id, out.uploadId()).toUri();
+        return tus(ResponseEntity.created(location), out).body(out);
+    }
+
+    @Operation(summary = "Upload progress (owner)",
+            description = "Upload-Offset tells where the next chunk starts.")
+    @RequestMapping(value = "/api/absences/{id}/attachments/uploads/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> uploadStatus(@PathVariable UUID id, @PathVariable UUID uploadId, Authentication auth) {
+        var out = service.uploadStatus(id, uploadId, principal(auth));
+        return tus(ResponseEntity.ok().cacheControl(CacheControl.noStore()), out).build();
+    }
+
+    @Operation(summary = "Upload a chunk (owner)",
+            description = "Appends the body at Upload-Offset, which must equal the current offset. The chunk " +
+                    "that completes the file returns the stored attachment.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    headers = @Header(name = "Upload-Offset", description = "Offset after this chunk")),
+            @ApiResponse(responseCode = "409", description = "Offset mismatch, or another chunk is in flight"),
+            @ApiResponse(responseCode = "429", description = "Too many uploads in progress; retry later")
+    })
+    @PatchMapping(value = "/api/absences/{id}/attachments/uploads/{uploadId}", consumes = OFFSET_OCTET_STREAM)
+    public ResponseEntity<UploadStatus> append(@PathVariable UUID id, @PathVariable UUID uploadId,
+                                               @RequestHeader(UPLOAD_OFFSET) long offset,
+                                               InputStream body,
+                                               Authentication auth) throws IOException {
+        var out = service.append(id, uploadId, offset, body, principal(auth));
+        return tus(ResponseEntity.ok(), out).body(out);
+    }
+
+    @Operation(summary = "List attachments of an absence",
+            description = "Allowed: manager, owner.")
+    @GetMapping("/api/absences/{id}/attachments")
+    public ResponseEntity<List<AttachmentView>> list(@PathVariable UUID id, Authentication auth) {
+        return ResponseEntity.ok(service.list(id, principal(auth)));
+    }
+
+    @Operation(summary = "Download an attachment",
+            description = "Allowed: manager, owner. Supports a single byte Range and If-None-Match; the ETag is " +
+                    "the content's SHA-256.")
+    @GetMapping("/api/absences/{id}/attachments/{attachmentId}")
+    public void download(@PathVariable UUID id, @PathVariable UUID attachmentId, Authentication auth,
+                         HttpServletRequest req, HttpServletResponse res) throws IOException {
+        var d = service.download(id, attachmentId, principal(auth));
+        var a = d.attachment();
+        FileDownloads.send(d.file(), a.sizeBytes(), a.contentType(), a.filename(), '"' + a.sha256() + '"', req, res);
+    }
+
+    private static ResponseEntity.BodyBuilder tus(ResponseEntity.BodyBuilder res, UploadStatus status) {
+        return res.header(TUS_RESUMABLE, TUS_VERSION)
+                .header(UPLOAD_OFFSET, Long.toString(status.offset()))
+                .header(UPLOAD_LENGTH, Long.toString(status.length()));
+    }
+}
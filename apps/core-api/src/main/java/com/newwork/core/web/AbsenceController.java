@@ -1,23 +1,34 @@
 package com.newwork.core.web;
 
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
 import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AbsenceFeedService;
 import com.newwork.core.service.AbsenceService;
 import com.newwork.core.web.dto.AbsenceDtos.*;
 import com.newwork.core.web.support.Etags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.headers.Header;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 @Tag(name = "Absences")
@@ -25,39 +36,206 @@ import java.util.UUID;
 @RestController
 public class AbsenceController {
 
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+
+    static final MediaType TEXT_CALENDAR = new MediaType("text", "calendar", StandardCharsets.UTF_8);
+
     private final AbsenceService service;
+    private final AbsenceFeedService feeds;
     private final Etags etags;
 
-    public AbsenceController(AbsenceService service, Etags etags) {
-        this.service = service; this.etags = etags;
+    public AbsenceController(AbsenceService service, AbsenceFeedService feeds, Etags etags) {
+        this.service = service; this.feeds = feeds; this.etags = etags;
     }
 
     private static UserPrincipal principal(Authentication auth) {
         return auth != null && auth.getPrincipal() instanceof UserPrincipal up ? up : null;
     }
     @Operation(summary = "List absences for an employee",
-            description = "Allowed: manager, owner.")
+            description = "Allowed: manager, owner. Requests starting on or after `from`; by default this year's " +
+                    "(and last year's during January), so older years are only read when asked for.")
     @GetMapping("/api/employees/{employeeId}/absences")
-    public ResponseEntity<List<AbsenceView>> list(@PathVariable UUID employeeId, Authentication auth) {
-        var out = service.listForEmployee(employeeId, principal(auth));
+    public ResponseEntity<List<AbsenceView>> list(@PathVariable UUID employeeId,
+                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                  Authentication auth) {
+        var out = service.listForEmployee(employeeId, from, principal(auth));
         return ResponseEntity.ok(out);
     }
 
+    @Operation(summary = "Absence balance of an employee",
+            description = "Allowed: manager, owner. Days used (approved) and reserved (pending) for one year and type; " +
+                    "defaults to the current year and VACATION.")
+    @GetMapping("/api/employees/{employeeId}/absences/balance")
+    public ResponseEntity<BalanceView> balance(@PathVariable UUID employeeId,
+                                               @RequestParam(required = false) Integer year,
+                                               @RequestParam(required = false) AbsenceType type,
+                                               Authentication auth) {
+        return ResponseEntity.ok(service.balance(employeeId, year, type, principal(auth)));
+    }
+
     @Operation(summary = "Create absence (owner)",
-            description = "Employee creates their own absence request. Returns ETag for future decisions.")
+            description = "Employee creates their own absence request. Returns ETag for future decisions. " +
+                    "With `recurrence` (e.g. `FREQ=WEEKLY;BYDAY=FR;COUNT=26`) the dates are the first occurrence " +
+                    "and the whole series is created at once, or not at all; the response is then the series.")
     @ApiResponse(responseCode = "201", description = "Created",
-            headers = @Header(name = "ETag", description = "Version of the absence"),
-            content = @Content(schema = @Schema(implementation = AbsenceView.class)))
+            headers = @Header(name = "ETag", description = "Version of the absence, or of the series"),
+            content = @Content(schema = @Schema(oneOf = {AbsenceView.class, SeriesView.class})))
     @PostMapping("/api/employees/{employeeId}/absences")
-    public ResponseEntity<AbsenceView> create(@PathVariable UUID employeeId,
-                                              @RequestBody CreateAbsenceReq req,
-                                              Authentication auth) {
+    public ResponseEntity<?> create(@PathVariable UUID employeeId,
+                                    @RequestBody CreateAbsenceReq req,
+                                    Authentication auth) {
+        if (req != null && req.recurrence() != null) {
+            var series = service.createSeries(employeeId, req, principal(auth));
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/absences/series/{id}").buildAndExpand(series.seriesId()).toUri();
+            return ResponseEntity.created(location).eTag(etags.toEtag(series.version())).body(series);
+        }
         var out = service.create(employeeId, req, principal(auth));
         URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
                 .path("/api/absences/{id}").buildAndExpand(out.id()).toUri();
         return ResponseEntity.created(location).eTag(etags.toEtag(out.version())).body(out);
     }
 
+    @Operation(summary = "Team calendar (manager)",
+            description = "Absences intersecting [from, to] across all employees, ordered by start date. "
+                    + "`status` may repeat; defaults to PENDING and APPROVED. Range is at most 366 days.")
+    @GetMapping("/api/absences")
+    public ResponseEntity<List<CalendarEntry>> calendar(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                        @RequestParam(required = false) List<AbsenceStatus> status,
+                                                        Authentication auth) {
+        return ResponseEntity.ok(service.calendar(from, to, status, principal(auth)));
+    }
+
+    @Operation(summary = "Daily availability (manager)",
+            description = "Absent and available headcount for each day of [from, to] (at most 366 days). " +
+                    "`employeeId` may repeat to restrict the count to a team (at most 1000), `type` to count only " +
+                    "some absence types. Only APPROVED absences count unless `includePending=true`.")
+    @GetMapping("/api/absences/availability")
+    public Availability availability(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                     @RequestParam(required = false) List<AbsenceType> type,
+                                     @RequestParam(required = false) List<UUID> employeeId,
+                                     @RequestParam(defaultValue = "false") boolean includePending,
+                                     Authentication auth) {
+        return service.availability(from, to, type, employeeId, includePending, principal(auth));
+    }
+
+    @Operation(summary = "Pending approval queue (manager)",
+            description = "PENDING absences across all employees, oldest first, keyset paginated: pass the " +
+                    "**X-Next-Cursor** header of one page as `cursor` to get the next.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    headers = @Header(name = "X-Next-Cursor", description = "Cursor of the next page; absent on the last page"),
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = PendingItem.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad cursor or limit"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @GetMapping("/api/absences/pending")
+    public ResponseEntity<List<PendingItem>> pending(@RequestParam(required = false) String cursor,
+                                                     @RequestParam(required = false) Integer limit,
+                                                     Authentication auth) {
+        var page = service.pending(cursor, limit, principal(auth));
+        var res = ResponseEntity.ok();
+        if (page.nextCursor() != null) res.header(NEXT_CURSOR, page.nextCursor());
+        return res.body(page.items());
+    }
+
+    @Operation(summary = "Count of pending absences (manager)", description = "Cheap badge count for the approval inbox.")
+    @GetMapping("/api/absences/pending/count")
+    public PendingCount pendingCount(Authentication auth) {
+        return service.pendingCount(principal(auth));
+    }
+
+    @Operation(summary = "Approved absences as an iCalendar feed (manager)",
+            description = "Subscribe from a calendar app with the URL from `POST /api/absences/feed/token`: calendar " +
+                    "apps cannot send Authorization, so `token` stands in for it. Carries ETag and Last-Modified; a poll with " +
+                    "**If-None-Match** or **If-Modified-Since** that still matches gets 304 without the feed being rendered.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "text/calendar",
+                    headers = {@Header(name = "ETag", description = "Version of the approved set"),
+                            @Header(name = "Last-Modified", description = "Latest approval")}),
+            @ApiResponse(responseCode = "304", description = "Not modified"),
+            @ApiResponse(responseCode = "401", description = "No bearer token and no valid feed token"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @GetMapping(value = "/api/absences/feed.ics", produces = "text/calendar")
+    public ResponseEntity<StreamingResponseBody> feed(@RequestParam(required = false) String token,
+                                                      WebRequest request, Authentication auth) {
+        var caller = principal(auth);
+        if (caller == null) caller = feeds.byToken(token);
+        var v = feeds.version(caller);
+        long lastModified = v.lastModified() == null ? 0 : v.lastModified().toEpochMilli();
+        var etag = "\"" + v.count() + "-" + lastModified + "\"";
+        if (request.checkNotModified(etag, lastModified)) {
+            // status and validators are already on the response
+            return null;
+        }
+        StreamingResponseBody body = feeds::writeIcs;
+        return ResponseEntity.ok()
+                .contentType(TEXT_CALENDAR)
+                .eTag(etag)
+                .lastModified(lastModified)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
+
+    @Operation(summary = "Issue a calendar feed URL (manager)",
+            description = "Returns a secret feed URL to paste into a calendar app. Calling it again rotates the token; " +
+                    "the previous URL stops working.")
+    @PostMapping("/api/absences/feed/token")
+    public FeedToken issueFeedToken(Authentication auth) {
+        var token = feeds.rotateToken(principal(auth));
+        var url = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/absences/feed.ics").queryParam("token", token).toUriString();
+        return new FeedToken(token, url);
+    }
+
+    @Operation(summary = "Revoke the calendar feed URL", description = "The feed URL issued to the caller stops working.")
+    @ApiResponse(responseCode = "204", description = "Revoked")
+    @DeleteMapping("/api/absences/feed/token")
+    public ResponseEntity<Void> revokeFeedToken(Authentication auth) {
+        feeds.revokeToken(principal(auth));
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(summary = "Get a recurring absence series", description = "Returns the series version as ETag.")
+    @GetMapping("/api/absences/series/{seriesId}")
+    public ResponseEntity<SeriesView> series(@PathVariable UUID seriesId, Authentication auth) {
+        var out = service.getSeries(seriesId, principal(auth));
+        return ResponseEntity.ok().eTag(etags.toEtag(out.version())).body(out);
+    }
+
+    @Operation(summary = "Approve a series (manager)",
+            description = "Approves every still-pending occurrence in one step. Requires **If-Match** with the series ETag.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Approved",
+                    headers = @Header(name = "ETag", description = "New series version"),
+                    content = @Content(schema = @Schema(implementation = SeriesView.class))),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "409", description = "Version mismatch, nothing pending, or concurrent update"),
+            @ApiResponse(responseCode = "428", description = "If-Match required")
+    })
+    @PutMapping("/api/absences/series/{seriesId}/approve")
+    public ResponseEntity<SeriesView> approveSeries(@PathVariable UUID seriesId,
+                                                    @RequestBody(required = false) DecisionReq req,
+                                                    @RequestHeader(value="If-Match", required=false) String ifMatch,
+                                                    Authentication auth) {
+        var out = service.approveSeries(seriesId, req, ifMatch, principal(auth));
+        return ResponseEntity.ok().eTag(etags.toEtag(out.version())).body(out);
+    }
+
+    @Operation(summary = "Cancel a series (owner)",
+            description = "Cancels every still-pending occurrence of the caller's series. Requires **If-Match** with the series ETag.")
+    @PutMapping("/api/absences/series/{seriesId}/cancel")
+    public ResponseEntity<SeriesView> cancelSeries(@PathVariable UUID seriesId,
+                                                   @RequestBody(required = false) DecisionReq req,
+                                                   @RequestHeader(value="If-Match", required=false) String ifMatch,
+                                                   Authentication auth) {
+        var out = service.cancelSeries(seriesId, req, ifMatch, principal(auth));
+        return ResponseEntity.ok().eTag(etags.toEtag(out.version())).body(out);
+    }
+
     @Operation(summary = "Get absence by id",
             description = "Returns ETag header.")
     @ApiResponse(responseCode = "200", description = "OK",
@@ -98,6 +276,22 @@ public class AbsenceController {
         return ResponseEntity.ok().eTag(etags.toEtag(out.version())).body(out);
     }
 
+    @Operation(summary = "Approve or reject many absences (manager)",
+            description = "Each item carries its own **ifMatch** (the ETag of that absence) and decision. Items are " +
+                    "judged independently; the response lists one result per item, in request order, with the " +
+                    "status the single-item endpoint would have returned. At most 100 items.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Per-item results",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = BulkDecisionResult.class)))),
+            @ApiResponse(responseCode = "400", description = "Empty or too many items"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "409", description = "Concurrent update; nothing was applied")
+    })
+    @PostMapping("/api/absences/decisions")
+    public ResponseEntity<List<BulkDecisionResult>> decideAll(@RequestBody BulkDecisionReq req, Authentication auth) {
+        return ResponseEntity.ok(service.decideAll(req, principal(auth)));
+    }
+
     @Operation(summary = "Cancel absence (owner)",
             description = "Employee cancels their own pending absence. Requires **If-Match**.")
     @PutMapping("/api/absences/{id}/cancel")
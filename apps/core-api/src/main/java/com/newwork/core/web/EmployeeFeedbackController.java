@@ -2,9 +2,12 @@ package com.newwork.core.web;
 
 import com.newwork.core.security.UserPrincipal;
 import com.newwork.core.service.FeedbackService;
+import com.newwork.core.service.FeedbackSummaryService;
 import com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackSummaryView;
 import com.newwork.core.web.dto.FeedbackDtos.FeedbackView;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -19,14 +22,21 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 @Tag(name = "Feedback")
 @SecurityRequirement(name = "bearerAuth")
 @RestController
 @RequestMapping("/api/employees/{id}/feedback")
 public class EmployeeFeedbackController {
+    static final String NEXT_CURSOR = "X-Next-Cursor";
 
     private final FeedbackService feedbackService;
-    public EmployeeFeedbackController(FeedbackService feedbackService) { this.feedbackService = feedbackService; }
+    private final FeedbackSummaryService summaryService;
+
+    public EmployeeFeedbackController(FeedbackService feedbackService, FeedbackSummaryService summaryService) {
+        this.feedbackService = feedbackService;
+        this.summaryService = summaryService;
+    }
 
     private static UserPrincipal principal(Authentication auth) {
         return auth != null && auth.getPrincipal() instanceof UserPrincipal up ? up : null;
@@ -34,18 +44,42 @@ public class EmployeeFeedbackController {
 
     // MANAGER or OWNER can view feedback
     @Operation(summary = "List feedback for an employee",
-            description = "Allowed: manager, owner.")
+            description = "Allowed: manager, owner. Newest first, keyset paginated: pass the **X-Next-Cursor** " +
+                    "header of one page as `cursor` to get the next. `polishedOnly=true` omits `textOriginal`.")
     @ApiResponses({
             @ApiResponse(responseCode = "200", description = "OK",
+                    headers = @Header(name = "X-Next-Cursor", description = "Cursor of the next page; absent on the last page"),
                     content = @Content(array = @ArraySchema(schema = @Schema(implementation = FeedbackView.class)))),
+            @ApiResponse(responseCode = "400", description = "Bad cursor or limit"),
             @ApiResponse(responseCode = "401", description = "Unauthorized"),
             @ApiResponse(responseCode = "403", description = "Forbidden")
     })
     @PreAuthorize("hasRole('MANAGER') or T(com.newwork.core.security.Access).isOwner(principal, #id)")
     @GetMapping
-    public ResponseEntity<List<FeedbackView>> list(@PathVariable UUID id, Authentication auth) {
-        var out = feedbackService.listForEmployee(id, principal(auth));
-        return ResponseEntity.ok(out);
+    public ResponseEntity<List<FeedbackView>> list(@PathVariable UUID id,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(defaultValue = "false") boolean polishedOnly,
+                                                   Authentication auth) {
+        var page = feedbackService.listForEmployee(id, cursor, limit, polishedOnly, principal(auth));
+        var res = ResponseEntity.ok();
+        if (page.nextCursor() != null) res.header(NEXT_CURSOR, page.nextCursor());
+        return res.body(page.items());
+    }
+
+    @Operation(summary = "Summary of an employee's feedback",
+            description = "Allowed: manager, owner. Served from the stored running summary; `pending=true` means " +
+                    "newer feedback is still being folded in.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = FeedbackSummaryView.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden")
+    })
+    @PreAuthorize("hasRole('MANAGER') or T(com.newwork.core.security.Access).isOwner(principal, #id)")
+    @GetMapping("/summary")
+    public FeedbackSummaryView summary(@PathVariable UUID id, Authentication auth) {
+        return summaryService.summaryFor(id, principal(auth));
     }
 
     // COWORKER or MANAGER can create feedback
@@ -60,10 +94,11 @@ public class EmployeeFeedbackController {
     })
     @PreAuthorize("hasRole('COWORKER') or hasRole('MANAGER')")
     @PostMapping
-    public ResponseEntity<FeedbackView> create(@PathVariable UUID id,
-                                               @RequestBody CreateFeedbackReq req,
-                                               Authentication auth) {
-        var out = feedbackService.createForEmployee(id, req, principal(auth));
-        return ResponseEntity.status(201).body(out);
+    public CompletableFuture<ResponseEntity<FeedbackView>> create(@PathVariable UUID id,
+                                                                  @RequestBody CreateFeedbackReq req,
+                                                                  Authentication auth) {
+        // async servlet response: no container thread is held while the text is being polished
+        return feedbackService.createForEmployee(id, req, principal(auth))
+                .thenApply(out -> ResponseEntity.status(201).body(out));
     }
 }
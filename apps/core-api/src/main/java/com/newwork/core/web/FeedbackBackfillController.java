@@ -0,0 +1,74 @@
+package com.newwork.core.web;
+
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.FeedbackBackfillService;
+import com.newwork.core.web.dto.BackfillDtos.BackfillStatus;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@Tag(name = "Admin")
+@SecurityRequirement(name = "bearerAuth")
+@RestController
+@RequestMapping("/api/admin/feedback-repolish")
+public class FeedbackBackfillController {
+
+    private final FeedbackBackfillService backfillService;
+    public FeedbackBackfillController(FeedbackBackfillService backfillService) { this.backfillService = backfillService; }
+
+    private static UserPrincipal principal(Authentication auth) {
+        return auth != null && auth.getPrincipal() instanceof UserPrincipal up ? up : null;
+    }
+
+    @Operation(summary = "Re-polish progress", description = "Allowed: manager.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "OK",
+                    content = @Content(schema = @Schema(implementation = BackfillStatus.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "404", description = "Never run")
+    })
+    @PreAuthorize("hasRole('MANAGER')")
+    @GetMapping
+    public BackfillStatus status(Authentication auth) {
+        return backfillService.status(principal(auth));
+    }
+
+    @Operation(summary = "Start or resume re-polishing stored feedback",
+            description = "Allowed: manager. Re-polishes every feedback not already polished by the current model, " +
+                    "in the background and at a throttled rate. A paused run resumes from its checkpoint.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Started",
+                    content = @Content(schema = @Schema(implementation = BackfillStatus.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "409", description = "Already running")
+    })
+    @PreAuthorize("hasRole('MANAGER')")
+    @PostMapping
+    public ResponseEntity<BackfillStatus> start(Authentication auth) {
+        return ResponseEntity.accepted().body(backfillService.start(principal(auth)));
+    }
+
+    @Operation(summary = "Pause re-polishing", description = "Allowed: manager. Stops after the batch in flight.")
+    @ApiResponses({
+            @ApiResponse(responseCode = "202", description = "Pausing",
+                    content = @Content(schema = @Schema(implementation = BackfillStatus.class))),
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "403", description = "Forbidden"),
+            @ApiResponse(responseCode = "409", description = "Not running")
+    })
+    @PreAuthorize("hasRole('MANAGER')")
+    @PostMapping("/pause")
+    public ResponseEntity<BackfillStatus> pause(Authentication auth) {
+        return ResponseEntity.accepted().body(backfillService.pause(principal(auth)));
+    }
+}
@@ -5,15 +5,52 @@ import com.newwork.core.domain.AbsenceType;
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 public final class AbsenceDtos {
-    public record CreateAbsenceReq(LocalDate startDate, LocalDate endDate, AbsenceType type, String reason) {}
+    /**
+     * {@code recurrence} is an RRULE subset (FREQ=DAILY|WEEKLY|MONTHLY, INTERVAL, COUNT or UNTIL, BYDAY for
+     * WEEKLY, including startDate's weekday); when set, [startDate, endDate] is the first occurrence and every occurrence has its length.
+     */
+    public record CreateAbsenceReq(LocalDate startDate, LocalDate endDate, AbsenceType type, String reason, String recurrence) {
+        public CreateAbsenceReq(LocalDate startDate, LocalDate endDate, AbsenceType type, String reason) {
+            this(startDate, endDate, type, reason, null);
+        }
+    }
     public record DecisionReq(String comment) {}
     public record AbsenceView(
             UUID id, UUID employeeId,
-            AbsenceType type, LocalDate startDate, LocalDate endDate,
+            AbsenceType type, LocalDate startDate, LocalDate endDate, int businessDays,
             String reason, AbsenceStatus status, String managerComment,
-            Instant createdAt, Instant updatedAt, Integer version
+            Instant createdAt, Instant updatedAt, Integer version, UUID seriesId
+    ) {}
+    // version changes whenever any occurrence does; send it back as If-Match for series decisions
+    public record SeriesView(UUID seriesId, UUID employeeId, int version, List<AbsenceView> occurrences) {}
+    public record CalendarEntry(
+            UUID id, UUID employeeId, String employeeName,
+            AbsenceType type, LocalDate startDate, LocalDate endDate, AbsenceStatus status
     ) {}
+    public record PendingItem(
+            UUID id, UUID employeeId, String employeeName,
+            AbsenceType type, LocalDate startDate, LocalDate endDate,
+            String reason, Instant createdAt, Integer version
+    ) {}
+    public record PendingPage(List<PendingItem> items, String nextCursor) {}
+    public record PendingCount(long count) {}
+
+    public enum Decision { APPROVE, REJECT }
+    public record BulkDecisionItem(UUID id, String ifMatch, Decision decision, String comment) {}
+    public record BulkDecisionReq(List<BulkDecisionItem> items) {}
+    // status is the HTTP status the single-item endpoint would have answered; absence is set on 200 only
+    public record BulkDecisionResult(UUID id, int status, String error, AbsenceView absence) {}
+    // allowanceDays and remainingDays are null for types without a yearly limit
+    public record BalanceView(UUID employeeId, int year, AbsenceType type,
+                              Integer allowanceDays, int usedDays, int reservedDays, Integer remainingDays) {}
+    // lastModified is null while nothing is approved
+    public record FeedVersion(long count, Instant lastModified) {}
+    /** Secret feed URL for calendar apps; shown once, rotating or revoking it invalidates this one. */
+    public record FeedToken(String token, String url) {}
+    /** Day i of each array is {@code from + i}; {@code available = headcount - absent}. */
+    public record Availability(LocalDate from, LocalDate to, int headcount, int[] absent, int[] available) {}
 }
@@ -0,0 +1,12 @@
+package com.newwork.core.web.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public final class AttachmentDtos {
+    public record CreateUploadReq(String filename, String contentType, Long length) {}
+    // attachment is set once the last byte has arrived
+    public record UploadStatus(UUID uploadId, long offset, long length, AttachmentView attachment) {}
+    public record AttachmentView(UUID id, UUID absenceId, String filename, String contentType,
+                                 long sizeBytes, String sha256, Instant createdAt) {}
+}
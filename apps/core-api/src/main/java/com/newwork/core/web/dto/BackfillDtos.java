@@ -0,0 +1,14 @@
+package com.newwork.core.web.dto;
+
+import com.newwork.core.domain.BackfillState;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public final class BackfillDtos {
+    private BackfillDtos(){}
+
+    public record BackfillStatus(String job, BackfillState state, String targetModel, UUID lastId,
+                                 long processed, long updated, long failed, String lastError,
+                                 Instant startedAt, Instant updatedAt) {}
+}
@@ -1,6 +1,7 @@
 package com.newwork.core.web.dto;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.UUID;
 
 public final class FeedbackDtos {
@@ -10,4 +11,10 @@ public final class FeedbackDtos {
     public record FeedbackView(UUID id, UUID authorEmployeeId,
                                String textOriginal, String textPolished,
                                String polishModel, Instant createdAt) {}
+    // nextCursor is null on the last page
+    public record FeedbackPage(List<FeedbackView> items, String nextCursor) {}
+    // pending: newer feedback exists and is being folded in; the summary shown is the previous one
+    public record FeedbackSummaryView(UUID employeeId, String summary, int feedbackCount,
+                                      UUID lastFeedbackId, String model, Instant updatedAt,
+                                      boolean pending) {}
 }
@@ -0,0 +1,39 @@
+package com.newwork.core.web.support;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/** Opaque keyset cursors: base64url of {@code <instant>|<uuid>}. */
+public final class Cursors {
+    private Cursors(){}
+
+    public record Cursor(Instant at, UUID id) {}
+
+    public static String encode(Instant at, UUID id) {
+        var raw = at.toString() + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return the decoded cursor, null for a null/blank input; 400 bad_cursor if malformed */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            return new Cursor(Instant.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (RuntimeException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad_cursor");
+        }
+    }
+
+    public static int clampLimit(Integer requested, int defaultLimit, int maxLimit) {
+        if (requested == null) return defaultLimit;
+        if (requested < 1) throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "bad_limit");
+        return Math.min(requested, maxLimit);
+    }
+}
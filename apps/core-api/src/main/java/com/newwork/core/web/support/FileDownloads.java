@@ -0,0 +1,100 @@
+package com.newwork.core.web.support;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Sends a file with conditional GET and single byte-range support. On Tomcat the bytes go out
+ * through sendfile (the kernel copies file to socket); elsewhere through {@link FileChannel#transferTo}.
+ * Several ranges in one request are answered with the whole file, which RFC 9110 allows.
+ */
+public final class FileDownloads {
+
+    // Tomcat's sendfile hand-off (org.apache.catalina.Globals)
+    static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private FileDownloads() {}
+
+    public static void send(Path file, long size, String contentType, String filename, String etag,
+                            HttpServletRequest req, HttpServletResponse res) throws IOException {
+        res.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        res.setHeader(HttpHeaders.CACHE_CONTROL, "private");
+        if (new ServletWebRequest(req, res).checkNotModified(etag)) return;
+
+        long start = 0;
+        long end = size - 1;
+        var range = req.getHeader(HttpHeaders.RANGE);
+        var ifRange = req.getHeader(HttpHeaders.IF_RANGE);
+        if (range != null && (ifRange == null || ifRange.equals(etag))) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                // a malformed Range is ignored
+                ranges = List.of();
+            }
+            if (ranges.size() == 1) {
+                long from;
+                long to;
+                try {
+                    from = ranges.getFirst().getRangeStart(size);
+                    to = ranges.getFirst().getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    from = size;
+                    to = size;
+                }
+                if (from >= size || from > to) {
+                    res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    res.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                    return;
+                }
+                start = from;
+                end = to;
+                res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                res.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+            }
+        }
+
+        res.setContentType(contentType);
+        var disposition = ContentDisposition.inline();
+        // filename* only when the name needs it
+        if (StandardCharsets.US_ASCII.newEncoder().canEncode(filename)) disposition.filename(filename);
+        else disposition.filename(filename, StandardCharsets.UTF_8);
+        res.setHeader(HttpHeaders.CONTENT_DISPOSITION, disposition.build().toString());
+        long length = end - start + 1;
+        res.setContentLengthLong(length);
+
+        if (Boolean.TRUE.equals(req.getAttribute(SENDFILE_SUPPORTED))) {
+            req.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            req.setAttribute(SENDFILE_START, start);
+            // exclusive
+            req.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (var in = FileChannel.open(file, StandardOpenOption.READ)) {
+            var out = Channels.newChannel(res.getOutputStream());
+            long pos = start;
+            while (length > 0) {
+                long n = in.transferTo(pos, length, out);
+                if (n <= 0) break;
+                pos += n;
+                length -= n;
+            }
+        }
+    }
+}
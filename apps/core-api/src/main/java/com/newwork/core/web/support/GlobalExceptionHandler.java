@@ -1,5 +1,6 @@
 package com.newwork.core.web.support;
 
+import com.newwork.core.service.AbsenceOverlapException;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
@@ -15,6 +16,11 @@ public class GlobalExceptionHandler {
                 .body(Map.of("error","version_mismatch","currentVersion", ex.current));
     }
 
+    @ExceptionHandler(AbsenceOverlapException.class)
+    public ResponseEntity<Object> handleOverlap(AbsenceOverlapException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "absence_overlap", "overlapping", ex.overlapping));
+    }
 
     @ExceptionHandler(ResponseStatusException.class)
     public ResponseEntity<Object> handleRSE(ResponseStatusException ex) {
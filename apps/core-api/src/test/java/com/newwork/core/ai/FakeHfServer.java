@@ -0,0 +1,140 @@
+package com.newwork.core.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Embeddable stand-in for {@code api-inference.huggingface.co/models/{model}}.
+ * Point {@code app.ai.hf.baseUrl} at {@link #baseUrl()} and pick a {@link FaultProfile}.
+ * Answers echo the input (minus the {@code "grammar: "} prefix) as {@code generated_text}.
+ */
+public final class FakeHfServer implements AutoCloseable {
+
+    /** Log-normal latency fitted to a median and a p99. */
+    public record Latency(long medianMs, long p99Ms) {
+        private static final double Z99 = 2.326;
+
+        public long sampleMs() {
+            if (medianMs <= 0) return 0;
+            double mu = Math.log(medianMs);
+            double sigma = p99Ms > medianMs ? (Math.log(p99Ms) - mu) / Z99 : 0;
+            return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    /**
+     * @param rate429      share of requests answered 429 with {@code Retry-After: retryAfterSeconds}
+     * @param rate503      share answered 503 "model loading" with {@code estimated_time}
+     * @param slowRate     share whose body is dribbled out a byte at a time
+     * @param partialRate  share whose body is cut off mid-way
+     */
+    public record FaultProfile(String name, Latency latency,
+                               double rate429, int retryAfterSeconds,
+                               double rate503, double estimatedTime,
+                               double slowRate, double partialRate) {
+        public static FaultProfile healthy(Latency latency) {
+            return new FaultProfile("healthy", latency, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private final HttpServer server;
+    private final ObjectMapper om = new ObjectMapper();
+    private final AtomicReference<FaultProfile> profile;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    public FakeHfServer(FaultProfile initial) throws IOException {
+        this.profile = new AtomicReference<>(initial);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/models/", this::handle);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/models";
+    }
+
+    public void setProfile(FaultProfile p) { profile.set(p); }
+
+    public int requestCount() { return requests.get(); }
+
+    public void resetCount() { requests.set(0); }
+
+    @Override
+    public void close() { server.stop(0); }
+
+    private void handle(HttpExchange ex) throws IOException {
+        requests.incrementAndGet();
+        var p = profile.get();
+        try (ex) {
+            String input = readInput(ex);
+            sleep(p.latency().sampleMs());
+
+            var rnd = ThreadLocalRandom.current();
+            double roll = rnd.nextDouble();
+            if (roll < p.rate429()) {
+                ex.getResponseHeaders().add("Retry-After", String.valueOf(p.retryAfterSeconds()));
+                send(ex, 429, Map.of("error", "Rate limit reached"));
+                return;
+            }
+            roll -= p.rate429();
+            if (roll < p.rate503()) {
+                send(ex, 503, Map.of("error", "Model is currently loading", "estimated_time", p.estimatedTime()));
+                return;
+            }
+
+            byte[] body = om.writeValueAsBytes(List.of(Map.of("generated_text", input)));
+            ex.getResponseHeaders().add("Content-Type", "application/json");
+            double fault = rnd.nextDouble();
+            if (fault < p.partialRate()) {
+                // advertise the full length, send half, hang up
+                ex.sendResponseHeaders(200, body.length);
+                ex.getResponseBody().write(body, 0, body.length / 2);
+                ex.getResponseBody().flush();
+                return;
+            }
+            ex.sendResponseHeaders(200, body.length);
+            OutputStream out = ex.getResponseBody();
+            if (fault < p.partialRate() + p.slowRate()) {
+                for (byte b : body) {
+                    out.write(b);
+                    out.flush();
+                    sleep(5);
+                }
+            } else {
+                out.write(body);
+            }
+        } catch (IOException ignored) {
+            // client went away (cancelled hedge, timeout); nothing to do
+        }
+    }
+
+    private String readInput(HttpExchange ex) throws IOException {
+        var req = om.readTree(ex.getRequestBody());
+        var text = req.path("inputs").asText("");
+        return text.startsWith("grammar: ") ? text.substring("grammar: ".length()) : text;
+    }
+
+    private void send(HttpExchange ex, int status, Object json) throws IOException {
+        byte[] body = om.writeValueAsBytes(json);
+        ex.getResponseHeaders().add("Content-Type", "application/json");
+        ex.sendResponseHeaders(status, body.length);
+        ex.getResponseBody().write(body);
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) return;
+        try { Thread.sleep(ms); } catch (InterruptedException ie) { Thread.currentThread().interrupt(); }
+    }
+}
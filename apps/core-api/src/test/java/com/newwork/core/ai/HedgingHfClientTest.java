@@ -0,0 +1,81 @@
+package com.newwork.core.ai;
+
+import com.newwork.core.ai.impl.HedgingHfClient;
+import com.newwork.core.ai.impl.HfClientRest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class HedgingHfClientTest {
+
+    HfClientRest delegate;
+    HfHedgeProps props;
+    SimpleMeterRegistry meters;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(HfClientRest.class);
+        props = new HfHedgeProps();
+        props.setEnabled(true);
+        props.setMinSamples(0);
+        props.setMinDelayMs(20);
+        meters = new SimpleMeterRegistry();
+    }
+
+    private void slowThenFast() {
+        var n = new AtomicInteger();
+        when(delegate.infer(any(), any(), any())).thenAnswer(inv -> {
+            if (n.getAndIncrement() == 0) {
+                Thread.sleep(5_000);
+                return List.of(Map.of("generated_text", "slow"));
+            }
+            return List.of(Map.of("generated_text", "fast"));
+        });
+    }
+
+    @Test
+    void disabled_passes_through() {
+        props.setEnabled(false);
+        when(delegate.infer(any(), any(), any())).thenReturn(List.of(Map.of("generated_text", "ok")));
+        var client = new HedgingHfClient(delegate, props, meters);
+
+        assertEquals("ok", client.infer("m", "t", "x").getFirst().get("generated_text"));
+        assertEquals(0.0, meters.counter("hf.hedge.calls").count());
+    }
+
+    @Test
+    void slow_primary_is_hedged_and_hedge_wins() {
+        slowThenFast();
+        var client = new HedgingHfClient(delegate, props, meters);
+
+        var out = client.infer("m", "t", "x");
+
+        assertEquals("fast", out.getFirst().get("generated_text"));
+        verify(delegate, times(2)).infer(any(), any(), any());
+        assertEquals(1.0, meters.counter("hf.hedge.fired").count());
+        assertEquals(1.0, meters.counter("hf.hedge.wins").count());
+    }
+
+    @Test
+    void empty_budget_waits_for_primary() {
+        props.setBudgetMax(0);
+        props.setMinDelayMs(1);
+        when(delegate.infer(any(), any(), any())).thenAnswer(inv -> {
+            Thread.sleep(50);
+            return List.of(Map.of("generated_text", "primary"));
+        });
+        var client = new HedgingHfClient(delegate, props, meters);
+
+        assertEquals("primary", client.infer("m", "t", "x").getFirst().get("generated_text"));
+        verify(delegate, times(1)).infer(any(), any(), any());
+        assertEquals(1.0, meters.counter("hf.hedge.budget_exhausted").count());
+    }
+}
@@ -0,0 +1,104 @@
+package com.newwork.core.ai;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HfRateLimiterTest {
+
+    HfRateLimitProps props;
+    HfRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        props = new HfRateLimitProps();
+        props.setPermitsPerSecond(10);
+        props.setBurst(2);
+        props.setMaxWaitMs(5_000);
+        limiter = new HfRateLimiter(props, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void burst_is_free_then_callers_are_spaced_out() {
+        long now = System.nanoTime();
+        assertEquals(0, limiter.reserve(now));
+        assertEquals(0, limiter.reserve(now));
+        long third = limiter.reserve(now);
+        long fourth = limiter.reserve(now);
+        assertEquals(100, TimeUnit.NANOSECONDS.toMillis(third), 1);
+        assertEquals(200, TimeUnit.NANOSECONDS.toMillis(fourth), 1);
+    }
+
+    @Test
+    void throttle_pauses_for_retry_after_and_halves_rate() {
+        long now = System.nanoTime();
+        limiter.onThrottled(now, 3_000);
+
+        assertEquals(5.0, limiter.currentRate());
+        long wait = limiter.reserve(now);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(wait) >= 3_000);
+    }
+
+    @Test
+    void rejects_when_queue_exceeds_max_wait() {
+        long now = System.nanoTime();
+        limiter.onThrottled(now, 10_000);
+        assertEquals(-1, limiter.reserve(now));
+    }
+
+    @Test
+    void success_recovers_rate_up_to_quota() {
+        limiter.onThrottled(System.nanoTime(), 0);
+        for (int i = 0; i < 1_000; i++) limiter.onSuccess();
+        assertEquals(10.0, limiter.currentRate());
+    }
+
+    @Test
+    void rate_recovers_with_time_after_the_pause_without_any_success() {
+        props.setRecoveryPerSecond(1);
+        long now = System.nanoTime();
+        limiter.onThrottled(now, 1_000);
+        limiter.onThrottled(now, 1_000);
+        assertEquals(2.5, limiter.currentRate());
+
+        // nothing during the pause, then one permit per second per second
+        limiter.reserve(now + TimeUnit.MILLISECONDS.toNanos(1_000));
+        assertEquals(2.5, limiter.currentRate(), 0.01);
+        limiter.reserve(now + TimeUnit.MILLISECONDS.toNanos(4_000));
+        assertEquals(5.5, limiter.currentRate(), 0.01);
+        limiter.reserve(now + TimeUnit.SECONDS.toNanos(60));
+        assertEquals(10.0, limiter.currentRate());
+    }
+
+    @Test
+    void unbounded_retry_after_is_clamped_not_overflowed() {
+        props.setMaxRetryAfterMs(30_000);
+        props.setMaxWaitMs(60_000);
+        long now = System.nanoTime();
+        limiter.onThrottled(now, HfRateLimiter.parseRetryAfterMs("Infinity", 1));
+
+        long wait = limiter.reserve(now);
+        assertTrue(wait > 0);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(wait) <= 31_000);
+    }
+
+    @Test
+    void reset_restores_quota_and_drops_the_pause() {
+        long now = System.nanoTime();
+        limiter.onThrottled(now, 10_000);
+        limiter.reset();
+        assertEquals(10.0, limiter.currentRate());
+        assertEquals(0, limiter.reserve(System.nanoTime()));
+    }
+
+    @Test
+    void parses_retry_after_seconds_and_garbage() {
+        assertEquals(2_000, HfRateLimiter.parseRetryAfterMs("2", 1));
+        assertEquals(1, HfRateLimiter.parseRetryAfterMs("soon", 1));
+        assertEquals(1, HfRateLimiter.parseRetryAfterMs(null, 1));
+    }
+}
@@ -0,0 +1,51 @@
+package com.newwork.core.ai;
+
+import com.newwork.core.ai.impl.HfClientRest;
+import com.newwork.core.ai.impl.HfWarmupPinger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class HfWarmupPingerTest {
+
+    @Test
+    void hung_ping_is_abandoned_without_holding_the_scheduler() throws Exception {
+        var client = mock(HfClientRest.class);
+        var release = new CountDownLatch(1);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenAnswer(inv -> {
+            release.await();
+            return List.of();
+        });
+        var props = new HfColdStartProps();
+        props.setWarmupEnabled(true);
+        props.setWarmupDays(List.of(DayOfWeek.values()));
+        props.setWarmupFromHour(0);
+        props.setWarmupToHour(24);
+        props.setWarmupTimeoutMs(1_000);
+        var meters = new SimpleMeterRegistry();
+        var pinger = new HfWarmupPinger(client, new HfModelRouter("m", new HfRoutingProps(), meters), props, "t", meters);
+
+        long start = System.nanoTime();
+        pinger.ping();
+        // the round runs elsewhere; the scheduler thread is back long before the ping times out
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 500);
+
+        var timeouts = meters.counter("hf.warmup.pings", "model", "m", "outcome", "timeout");
+        for (int i = 0; i < 500 && timeouts.count() == 0; i++) Thread.sleep(10);
+        assertEquals(1.0, timeouts.count());
+        release.countDown();
+    }
+
+    @Test
+    void disabled_by_default() {
+        assertFalse(new HfColdStartProps().isWarmupEnabled());
+    }
+}
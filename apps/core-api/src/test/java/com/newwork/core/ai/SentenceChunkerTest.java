@@ -0,0 +1,27 @@
+package com.newwork.core.ai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SentenceChunkerTest {
+
+    @Test
+    void packs_sentences_up_to_the_limit_and_keeps_separators() {
+        var chunks = SentenceChunker.split("One two. Three four. Five six seven eight nine.\n\nTen.", 20);
+        assertEquals(3, chunks.size());
+        assertEquals("One two. Three four.", chunks.get(0).text());
+        assertEquals(" ", chunks.get(0).separator());
+        assertEquals("Five six seven eight nine.", chunks.get(1).text());
+        assertEquals("\n\n", chunks.get(1).separator());
+        assertEquals("Ten.", chunks.get(2).text());
+    }
+
+    @Test
+    void rejoining_reproduces_the_input() {
+        var input = "Good work on the release. Communication could improve! Are the estimates realistic? Yes.";
+        var sb = new StringBuilder();
+        for (var c : SentenceChunker.split(input, 30)) sb.append(c.text()).append(c.separator());
+        assertEquals(input, sb.toString());
+    }
+}
@@ -0,0 +1,152 @@
+package com.newwork.core.it;
+
+import com.newwork.core.config.AbsencePartitionProps;
+import com.newwork.core.config.PostgresDdl;
+import com.newwork.core.service.impl.AbsencePartitions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conversion and archival against a real PostgreSQL; H2 has neither partitions nor DO blocks.
+ * Point IT_POSTGRES_URL (plus IT_POSTGRES_USER / IT_POSTGRES_PASSWORD) at a throwaway database:
+ * every test drops and recreates the tables it uses.
+ */
+@EnabledIfEnvironmentVariable(named = "IT_POSTGRES_URL", matches = ".+")
+class AbsencePartitionsPostgresIT {
+
+    @TempDir Path archiveDir;
+
+    JdbcTemplate jdbc;
+    DataSourceTransactionManager txManager;
+    UUID employeeId = UUID.randomUUID();
+
+    @BeforeEach
+    void schema() {
+        var env = System.getenv();
+        var ds = new DriverManagerDataSource(env.get("IT_POSTGRES_URL"),
+                env.getOrDefault("IT_POSTGRES_USER", "postgres"), env.getOrDefault("IT_POSTGRES_PASSWORD", "postgres"));
+        jdbc = new JdbcTemplate(ds);
+        txManager = new DataSourceTransactionManager(ds);
+
+        jdbc.execute("DROP TABLE IF EXISTS absence_request_unpartitioned, absence_request, employees CASCADE");
+        jdbc.execute("DROP FUNCTION IF EXISTS absence_request_ensure_partition(int)");
+        jdbc.execute("""
+                CREATE TABLE employees (id uuid PRIMARY KEY, first_name varchar(255) NOT NULL, last_name varchar(255) NOT NULL,
+                                        version int, updated_at timestamptz NOT NULL)""");
+        // the shape ddl-auto gives it, enum check constraints included
+        jdbc.execute("""
+                CREATE TABLE absence_request (
+                  id uuid PRIMARY KEY,
+                  employee_id uuid NOT NULL REFERENCES employees (id),
+                  type varchar(32) NOT NULL CHECK (type IN ('VACATION', 'SICK', 'OTHER')),
+                  start_date date NOT NULL,
+                  end_date date NOT NULL,
+                  reason varchar(255),
+                  status varchar(32) NOT NULL CHECK (status IN ('PENDING', 'APPROVED', 'REJECTED', 'CANCELLED')),
+                  manager_comment varchar(255),
+                  series_id uuid,
+                  version int,
+                  created_at timestamptz NOT NULL,
+                  updated_at timestamptz NOT NULL)""");
+        jdbc.execute("CREATE INDEX ix_absence_employee_start ON absence_request (employee_id, start_date)");
+        jdbc.update("INSERT INTO employees VALUES (?, 'Bob', 'Builder', 0, now())", employeeId);
+    }
+
+    private AbsencePartitions partitions(boolean convert) {
+        var props = new AbsencePartitionProps();
+        props.setEnabled(true);
+        props.setConvert(convert);
+        props.setArchiveDir(archiveDir.toString());
+        return new AbsencePartitions(new PostgresDdl(jdbc), jdbc, txManager, props, new SimpleMeterRegistry());
+    }
+
+    private void request(LocalDate start, String status) {
+        jdbc.update("""
+                INSERT INTO absence_request (id, employee_id, type, start_date, end_date, status, version, created_at, updated_at)
+                VALUES (?, ?, 'VACATION', ?, ?, ?, 0, now(), now())""", UUID.randomUUID(), employeeId, start, start.plusDays(2), status);
+    }
+
+    private boolean partitioned() {
+        return Boolean.TRUE.equals(jdbc.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('absence_request'))", Boolean.class));
+    }
+
+    private String partitionOf(int year) {
+        return jdbc.queryForObject("SELECT DISTINCT tableoid::regclass::text FROM absence_request WHERE extract(year FROM start_date) = ?",
+                String.class, year);
+    }
+
+    @Test
+    void without_the_convert_opt_in_the_table_stays_plain() {
+        request(LocalDate.of(2020, 3, 2), "APPROVED");
+
+        partitions(false).install();
+
+        assertFalse(partitioned());
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM absence_request", Integer.class));
+    }
+
+    @Test
+    void conversion_moves_every_row_into_its_year_and_keeps_the_original() {
+        int year = LocalDate.now().getYear();
+        request(LocalDate.of(2020, 3, 2), "APPROVED");
+        request(LocalDate.of(2021, 6, 7), "REJECTED");
+        request(LocalDate.of(year, 5, 4), "PENDING");
+
+        var p = partitions(true);
+        p.install();
+        // a second start finds it converted and changes nothing
+        p.install();
+
+        assertTrue(partitioned());
+        assertEquals(3, jdbc.queryForObject("SELECT count(*) FROM absence_request", Integer.class));
+        assertEquals(3, jdbc.queryForObject("SELECT count(*) FROM absence_request_unpartitioned", Integer.class));
+        assertEquals("absence_request_y2020", partitionOf(2020));
+        assertEquals("absence_request_y2021", partitionOf(2021));
+        assertEquals("absence_request_y" + year, partitionOf(year));
+        assertNotNull(jdbc.queryForObject("SELECT to_regclass('absence_request_y" + (year + 1) + "')::text", String.class));
+        assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM absence_request_default", Integer.class));
+        // the check constraints came along: partitions only attach when they carry them
+        assertThrows(Exception.class, () -> jdbc.update("UPDATE absence_request SET status = 'LOST' WHERE start_date < '2021-01-01'"));
+    }
+
+    @Test
+    void archive_exports_a_closed_year_drops_it_and_keeps_years_with_pending_requests() throws Exception {
+        request(LocalDate.of(2020, 3, 2), "APPROVED");
+        request(LocalDate.of(2020, 9, 14), "CANCELLED");
+        request(LocalDate.of(2021, 6, 7), "PENDING");
+        var p = partitions(true);
+        p.install();
+
+        var file = p.archive(2020);
+
+        assertNotNull(file);
+        assertNull(jdbc.queryForObject("SELECT to_regclass('absence_request_y2020')::text", String.class));
+        assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM absence_request", Integer.class));
+        try (var r = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            var lines = r.lines().toList();
+            assertTrue(lines.getFirst().startsWith("id,"));
+            assertEquals(3, lines.size());
+        }
+
+        assertNull(p.archive(2021));
+        assertEquals("absence_request_y2021", partitionOf(2021));
+    }
+}
@@ -40,6 +40,7 @@ class AuthAndEmployeesIT {
         r.add("spring.jpa.properties.hibernate.default_schema", () -> "PUBLIC");
         r.add("app.auth.hmacSecret", () -> "it-secret");
         r.add("app.ai.hf.token", () -> "dummy");
+        r.add("app.feedback.summary.engine", () -> "local");
     }
 
     @BeforeEach
@@ -0,0 +1,183 @@
+package com.newwork.core.it;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.newwork.core.CoreApiApplication;
+import com.newwork.core.ai.FakeHfServer;
+import com.newwork.core.ai.HfRateLimiter;
+import com.newwork.core.ai.FakeHfServer.FaultProfile;
+import com.newwork.core.ai.FakeHfServer.Latency;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Drives {@code POST /api/employees/{id}/feedback} through the real polish path against
+ * {@link FakeHfServer} and prints throughput and p50/p99 per fault profile.
+ * Tune with -Dload.requests / -Dload.concurrency.
+ */
+@SpringBootTest(classes = CoreApiApplication.class, webEnvironment = SpringBootTest.WebEnvironment.MOCK)
+@AutoConfigureMockMvc
+@ActiveProfiles("it")
+class FeedbackLoadIT {
+
+    private static final Latency TYPICAL = new Latency(40, 150);
+    private static final List<FaultProfile> PROFILES = List.of(
+            FaultProfile.healthy(TYPICAL),
+            new FaultProfile("slow-tail", new Latency(40, 1_500), 0, 0, 0, 0, 0, 0),
+            new FaultProfile("throttled-5%", TYPICAL, 0.05, 1, 0, 0, 0, 0),
+            new FaultProfile("loading-5%", TYPICAL, 0, 0, 0.05, 2.0, 0, 0),
+            new FaultProfile("flaky-body", TYPICAL, 0, 0, 0, 0, 0.05, 0.02)
+    );
+
+    private static final int REQUESTS = Integer.getInteger("load.requests", 200);
+    private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 16);
+
+    private static final FakeHfServer HF = start();
+
+    @Autowired MockMvc mvc;
+    @Autowired ObjectMapper om;
+    @Autowired HfRateLimiter limiter;
+
+    private String carolTok;
+    private UUID bobEmpId;
+
+    private static FakeHfServer start() {
+        try {
+            return new FakeHfServer(FaultProfile.healthy(TYPICAL));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @DynamicPropertySource
+    static void props(DynamicPropertyRegistry r) {
+        r.add("spring.datasource.url", () -> "jdbc:h2:mem:it_load;MODE=PostgreSQL;DB_CLOSE_DELAY=-1;DATABASE_TO_UPPER=false");
+        r.add("spring.datasource.username", () -> "sa");
+        r.add("spring.datasource.password", () -> "");
+        r.add("spring.jpa.hibernate.ddl-auto", () -> "update");
+        r.add("spring.jpa.properties.hibernate.default_schema", () -> "PUBLIC");
+        r.add("app.auth.hmacSecret", () -> "it-secret");
+        r.add("app.ai.hf.token", () -> "dummy");
+        r.add("app.feedback.summary.engine", () -> "local");
+        r.add("app.ai.hf.baseUrl", HF::baseUrl);
+        r.add("app.ai.hf.rate-limit.permits-per-second", () -> "1000");
+        r.add("app.ai.hf.rate-limit.burst", () -> "100");
+    }
+
+    @AfterAll
+    static void stop() { HF.close(); }
+
+    @BeforeEach
+    void login() throws Exception {
+        carolTok = token("carol@newwork.test");
+        var res = mvc.perform(post("/auth/login")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"email\":\"bob@newwork.test\",\"password\":\"Passw0rd!\"}"))
+                .andReturn();
+        bobEmpId = UUID.fromString(om.readTree(res.getResponse().getContentAsByteArray()).get("employeeId").asText());
+    }
+
+    private String token(String email) throws Exception {
+        var res = mvc.perform(post("/auth/login")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"email\":\"" + email + "\",\"password\":\"Passw0rd!\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode j = om.readTree(res.getResponse().getContentAsByteArray());
+        return j.get("token").asText();
+    }
+
+    private record Report(String profile, int ok, Map<Integer, Integer> failures, double rps,
+                          long p50, long p99, int upstreamCalls) {
+        @Override public String toString() {
+            return String.format("%-14s ok=%4d failed=%-16s %7.1f req/s  p50=%5d ms  p99=%5d ms  upstream=%d",
+                    profile, ok, failures, rps, p50, p99, upstreamCalls);
+        }
+    }
+
+    @Test
+    void feedback_throughput_under_fault_profiles() throws Exception {
+        var reports = new ArrayList<Report>();
+        for (var profile : PROFILES) reports.add(run(profile));
+
+        System.out.println("\n=== POST /api/employees/{id}/feedback - " + REQUESTS + " requests, concurrency " + CONCURRENCY + " ===");
+        reports.forEach(System.out::println);
+
+        var healthy = reports.getFirst();
+        assertEquals(REQUESTS, healthy.ok(), "healthy profile must not fail");
+        assertTrue(healthy.p99() > 0);
+    }
+
+    private Report run(FaultProfile profile) throws Exception {
+        HF.setProfile(profile);
+        HF.resetCount();
+        // each profile starts from the quota, not from whatever the previous one throttled it down to
+        limiter.reset();
+
+        var latencies = new long[REQUESTS];
+        var ok = new AtomicInteger();
+        var failures = new ConcurrentHashMap<Integer, Integer>();
+        var next = new AtomicInteger();
+        var auth = "Bearer " + carolTok;
+
+        long start = System.nanoTime();
+        try (var pool = Executors.newFixedThreadPool(CONCURRENCY)) {
+            for (int w = 0; w < CONCURRENCY; w++) {
+                pool.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < REQUESTS; i = next.getAndIncrement()) {
+                        long t0 = System.nanoTime();
+                        var started = mvc.perform(post("/api/employees/{id}/feedback", bobEmpId)
+                                        .header("Authorization", auth)
+                                        .contentType(APPLICATION_JSON)
+                                        .content("{\"text\":\"load sample " + i + " deliver fast\"}"))
+                                .andReturn();
+                        // validation failures answer synchronously; everything else completes asynchronously
+                        int sc = started.getRequest().isAsyncStarted()
+                                ? mvc.perform(asyncDispatch(started)).andReturn().getResponse().getStatus()
+                                : started.getResponse().getStatus();
+                        latencies[i] = (System.nanoTime() - t0) / 1_000_000;
+                        if (sc == 201) ok.incrementAndGet(); else failures.merge(sc, 1, Integer::sum);
+                    }
+                    return null;
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        return new Report(profile.name(), ok.get(), new TreeMap<>(failures), REQUESTS / seconds,
+                pct(latencies, 0.50), pct(latencies, 0.99), HF.requestCount());
+    }
+
+    private static long pct(long[] sorted, double p) {
+        int idx = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+}
@@ -12,10 +12,12 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.UUID;
@@ -34,6 +36,7 @@ class ProfilesFeedbackAbsencesIT {
 
     @Autowired MockMvc mvc;
     @Autowired ObjectMapper om;
+    @Autowired JdbcTemplate jdbc;
 
     private String mgrTok;
     private String bobTok;
@@ -64,6 +67,10 @@ class ProfilesFeedbackAbsencesIT {
         r.add("spring.jpa.properties.hibernate.default_schema", () -> "PUBLIC");
         r.add("app.auth.hmacSecret", () -> "it-secret");
         r.add("app.ai.hf.token", () -> "dummy");
+        r.add("app.feedback.summary.engine", () -> "local");
+        r.add("app.feedback.backfill.permits-per-second", () -> "50");
+        r.add("app.ai.hf.rate-limit.permits-per-second", () -> "100");
+        r.add("app.absence.attachments.dir", () -> "target/it-attachments");
     }
 
     @BeforeEach
@@ -92,6 +99,17 @@ class ProfilesFeedbackAbsencesIT {
     }
     private static String bearer(String tok){ return "Bearer " + tok; }
 
+    // POST /feedback answers asynchronously; dispatch once the polish has completed
+    private ResultActions createFeedback(UUID employeeId, String tok, String text) throws Exception {
+        var started = mvc.perform(post("/api/employees/{id}/feedback", employeeId)
+                        .header("Authorization", bearer(tok))
+                        .contentType(APPLICATION_JSON)
+                        .content(om.writeValueAsString(java.util.Map.of("text", text))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mvc.perform(asyncDispatch(started));
+    }
+
     @Test
     void profile_visibility_rules() throws Exception {
         mvc.perform(get("/api/employees/{id}/profile", aliceEmpId)
@@ -136,10 +154,7 @@ class ProfilesFeedbackAbsencesIT {
 
     @Test
     void feedback_create_and_list() throws Exception {
-        mvc.perform(post("/api/employees/{id}/feedback", bobEmpId)
-                        .header("Authorization", bearer(carolTok))
-                        .contentType(APPLICATION_JSON)
-                        .content("{\"text\":\"great job on the release\"}"))
+        createFeedback(bobEmpId, carolTok, "great job on the release")
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.textPolished").value(startsWith("[MOCK]")));
 
@@ -154,6 +169,113 @@ class ProfilesFeedbackAbsencesIT {
                 .andExpect(jsonPath("$[0].id").exists());
     }
 
+    @Test
+    void feedback_keyset_pages_and_polished_only() throws Exception {
+        for (var text : new String[]{"first note", "second note"}) {
+            createFeedback(bobEmpId, carolTok, text).andExpect(status().isCreated());
+        }
+
+        var p1 = mvc.perform(get("/api/employees/{id}/feedback", bobEmpId)
+                        .param("limit", "1")
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andReturn();
+        var firstId = om.readTree(p1.getResponse().getContentAsByteArray()).get(0).get("id").asText();
+
+        mvc.perform(get("/api/employees/{id}/feedback", bobEmpId)
+                        .param("limit", "1")
+                        .param("polishedOnly", "true")
+                        .param("cursor", p1.getResponse().getHeader("X-Next-Cursor"))
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id", not(firstId)))
+                .andExpect(jsonPath("$[0].textOriginal").doesNotExist())
+                .andExpect(jsonPath("$[0].textPolished").exists());
+    }
+
+    @Test
+    void feedback_pages_through_rows_sharing_one_created_at() throws Exception {
+        var texts = new String[]{"Alice ran the quarterly planning well.", "The onboarding docs Alice wrote saved us days.",
+                "Thanks for unblocking the database migration on Friday.", "Great call on postponing the risky release.",
+                "Her review comments on the billing service were spot on."};
+        var ids = new java.util.HashSet<String>();
+        for (var text : texts) {
+            var res = createFeedback(aliceEmpId, carolTok, text).andExpect(status().isCreated()).andReturn();
+            ids.add(om.readTree(res.getResponse().getContentAsByteArray()).get("id").asText());
+        }
+        var tied = java.time.Instant.parse("2001-01-01T00:00:00Z");
+        for (var id : ids) jdbc.update("update feedback set created_at = ? where id = ?", java.sql.Timestamp.from(tied), UUID.fromString(id));
+
+        // start just after the tie so the pages walk only these rows, two at a time
+        var cursor = com.newwork.core.web.support.Cursors.encode(tied.plusMillis(1), UUID.randomUUID());
+        var seen = new java.util.ArrayList<String>();
+        for (int page = 0; page < 3; page++) {
+            var res = mvc.perform(get("/api/employees/{id}/feedback", aliceEmpId)
+                            .param("limit", "2")
+                            .param("polishedOnly", String.valueOf(page % 2 == 1))
+                            .param("cursor", cursor)
+                            .header("Authorization", bearer(mgrTok)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            om.readTree(res.getResponse().getContentAsByteArray()).forEach(n -> seen.add(n.get("id").asText()));
+            cursor = res.getResponse().getHeader("X-Next-Cursor");
+        }
+
+        org.junit.jupiter.api.Assertions.assertNull(cursor);
+        org.junit.jupiter.api.Assertions.assertEquals(5, seen.size());
+        org.junit.jupiter.api.Assertions.assertEquals(ids, new java.util.HashSet<>(seen));
+    }
+
+    @Test
+    void feedback_summary_catches_up_after_new_feedback() throws Exception {
+        mvc.perform(get("/api/employees/{id}/feedback/summary", bobEmpId).header("Authorization", bearer(carolTok)))
+                .andExpect(status().isForbidden());
+
+        createFeedback(bobEmpId, carolTok, "Bob documented the release checklist for everyone.")
+                .andExpect(status().isCreated());
+
+        JsonNode s = null;
+        for (int i = 0; i < 50; i++) {
+            var res = mvc.perform(get("/api/employees/{id}/feedback/summary", bobEmpId)
+                            .header("Authorization", bearer(mgrTok)))
+                    .andExpect(status().isOk()).andReturn();
+            s = om.readTree(res.getResponse().getContentAsByteArray());
+            if (!s.get("pending").asBoolean()) break;
+            Thread.sleep(100);
+        }
+        org.junit.jupiter.api.Assertions.assertFalse(s.get("pending").asBoolean());
+        org.junit.jupiter.api.Assertions.assertEquals("local:extractive", s.get("model").asText());
+        org.junit.jupiter.api.Assertions.assertTrue(s.get("summary").asText().contains("release checklist"));
+    }
+
+    @Test
+    void repolish_backfill_runs_to_completion_for_managers_only() throws Exception {
+        mvc.perform(post("/api/admin/feedback-repolish").header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+
+        mvc.perform(post("/api/admin/feedback-repolish").header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.targetModel").value("mock-ai"));
+
+        String state = null;
+        for (int i = 0; i < 100 && !"DONE".equals(state); i++) {
+            Thread.sleep(100);
+            var res = mvc.perform(get("/api/admin/feedback-repolish").header("Authorization", bearer(mgrTok)))
+                    .andExpect(status().isOk()).andReturn();
+            state = om.readTree(res.getResponse().getContentAsByteArray()).get("state").asText();
+        }
+        org.junit.jupiter.api.Assertions.assertEquals("DONE", state);
+
+        // the seeded row now carries the current model's polish
+        mvc.perform(get("/api/employees/{id}/feedback", bobEmpId).header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].polishModel", everyItem(is("mock-ai"))))
+                .andExpect(jsonPath("$[*].textPolished", hasItem("[MOCK] Pleasure to collaborate with Bob, he deliver fast.")));
+    }
+
     @Test
     void absence_create_by_owner_and_approve_by_manager() throws Exception {
         var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
@@ -176,4 +298,409 @@ class ProfilesFeedbackAbsencesIT {
                 .andExpect(header().exists("ETag"))
                 .andExpect(jsonPath("$.status").value("APPROVED"));
     }
+
+    @Test
+    void absence_overlapping_active_request_is_409_with_ids() throws Exception {
+        var body = "{\"startDate\":\"2025-12-01\",\"endDate\":\"2025-12-05\",\"type\":\"VACATION\"}";
+        var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        var firstId = om.readTree(cr.getResponse().getContentAsByteArray()).get("id").asText();
+
+        mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2025-12-04\",\"endDate\":\"2025-12-08\",\"type\":\"OTHER\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("absence_overlap"))
+                .andExpect(jsonPath("$.overlapping", contains(firstId)));
+    }
+
+    @Test
+    void concurrent_overlapping_requests_admit_exactly_one() throws Exception {
+        var pool = java.util.concurrent.Executors.newFixedThreadPool(6);
+        try {
+            var calls = new java.util.ArrayList<java.util.concurrent.Future<Integer>>();
+            for (int i = 0; i < 6; i++) {
+                int day = 10 + i;
+                calls.add(pool.submit(() -> mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                                .header("Authorization", bearer(bobTok))
+                                .contentType(APPLICATION_JSON)
+                                .content("{\"startDate\":\"2029-04-" + day + "\",\"endDate\":\"2029-04-20\",\"type\":\"OTHER\"}"))
+                        .andReturn().getResponse().getStatus()));
+            }
+            var statuses = new java.util.ArrayList<Integer>();
+            for (var c : calls) statuses.add(c.get());
+            org.junit.jupiter.api.Assertions.assertEquals(1, statuses.stream().filter(st -> st == 201).count(), statuses.toString());
+            org.junit.jupiter.api.Assertions.assertEquals(5, statuses.stream().filter(st -> st == 409).count(), statuses.toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void team_calendar_lists_intersecting_absences_for_managers() throws Exception {
+        mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2025-02-26\",\"endDate\":\"2025-03-03\",\"type\":\"VACATION\"}"))
+                .andExpect(status().isCreated());
+
+        mvc.perform(get("/api/absences").param("from", "2025-03-01").param("to", "2025-03-31")
+                        .header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+
+        mvc.perform(get("/api/absences").param("from", "2025-03-01").param("to", "2025-03-31")
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startDate", hasItem("2025-02-26")))
+                .andExpect(jsonPath("$[*].employeeName", hasItem(startsWith("Bob"))));
+
+        mvc.perform(get("/api/absences").param("from", "2025-03-01").param("to", "2025-03-31")
+                        .param("status", "APPROVED")
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].startDate", not(hasItem("2025-02-26"))));
+    }
+
+    @Test
+    void pending_queue_pages_oldest_first_with_count() throws Exception {
+        mvc.perform(get("/api/absences/pending").header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+
+        // three requests filed in the same instant: the cursor has to tell them apart by id
+        var tied = new java.util.HashSet<String>();
+        for (var start : new String[]{"2031-02-03", "2031-02-10", "2031-02-17"}) {
+            var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                            .header("Authorization", bearer(bobTok))
+                            .contentType(APPLICATION_JSON)
+                            .content("{\"startDate\":\"" + start + "\",\"endDate\":\"" + start + "\",\"type\":\"OTHER\"}"))
+                    .andExpect(status().isCreated()).andReturn();
+            tied.add(om.readTree(cr.getResponse().getContentAsByteArray()).get("id").asText());
+        }
+        for (var id : tied) {
+            jdbc.update("update absence_request set created_at = ? where id = ?",
+                    java.sql.Timestamp.from(java.time.Instant.parse("2001-01-01T00:00:00Z")), UUID.fromString(id));
+        }
+
+        var res = mvc.perform(get("/api/absences/pending/count").header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk()).andReturn();
+        long count = om.readTree(res.getResponse().getContentAsByteArray()).get("count").asLong();
+        org.junit.jupiter.api.Assertions.assertTrue(count >= 3);
+
+        var seen = new java.util.ArrayList<java.time.Instant>();
+        var seenIds = new java.util.HashSet<String>();
+        String cursor = null;
+        do {
+            var req = get("/api/absences/pending").param("limit", "1").header("Authorization", bearer(mgrTok));
+            if (cursor != null) req.param("cursor", cursor);
+            var page = mvc.perform(req).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1))).andReturn();
+            var row = om.readTree(page.getResponse().getContentAsByteArray()).get(0);
+            seen.add(java.time.Instant.parse(row.get("createdAt").asText()));
+            seenIds.add(row.get("id").asText());
+            cursor = page.getResponse().getHeader("X-Next-Cursor");
+        } while (cursor != null);
+
+        org.junit.jupiter.api.Assertions.assertEquals(count, seen.size());
+        org.junit.jupiter.api.Assertions.assertEquals(count, seenIds.size());
+        org.junit.jupiter.api.Assertions.assertTrue(seenIds.containsAll(tied));
+        org.junit.jupiter.api.Assertions.assertEquals(seen.stream().sorted().toList(), seen);
+    }
+
+    @Test
+    void bulk_decisions_apply_per_item() throws Exception {
+        var ids = new java.util.ArrayList<String>();
+        for (var range : new String[][]{{"2026-01-05", "2026-01-06"}, {"2026-01-12", "2026-01-13"}}) {
+            var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                            .header("Authorization", bearer(bobTok))
+                            .contentType(APPLICATION_JSON)
+                            .content("{\"startDate\":\"" + range[0] + "\",\"endDate\":\"" + range[1] + "\",\"type\":\"VACATION\"}"))
+                    .andExpect(status().isCreated()).andReturn();
+            ids.add(om.readTree(cr.getResponse().getContentAsByteArray()).get("id").asText());
+        }
+        var items = java.util.List.of(
+                java.util.Map.of("id", ids.get(0), "ifMatch", "\"0\"", "decision", "APPROVE"),
+                java.util.Map.of("id", ids.get(1), "ifMatch", "\"5\"", "decision", "REJECT"));
+
+        mvc.perform(post("/api/absences/decisions")
+                        .header("Authorization", bearer(mgrTok))
+                        .contentType(APPLICATION_JSON)
+                        .content(om.writeValueAsString(java.util.Map.of("items", items))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].absence.status").value("APPROVED"))
+                .andExpect(jsonPath("$[0].absence.version").value(1))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].error").value("version_mismatch"));
+
+        mvc.perform(get("/api/absences/{id}", ids.get(1)).header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void balance_moves_with_each_decision_and_overdraft_is_refused() throws Exception {
+        var balance = get("/api/employees/{id}/absences/balance", bobEmpId)
+                .param("year", "2027").param("type", "VACATION");
+        mvc.perform(balance.header("Authorization", bearer(carolTok))).andExpect(status().isForbidden());
+
+        var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2027-03-01\",\"endDate\":\"2027-03-10\",\"type\":\"VACATION\"}"))
+                .andExpect(status().isCreated()).andReturn();
+        var id = om.readTree(cr.getResponse().getContentAsByteArray()).get("id").asText();
+
+        mvc.perform(get("/api/employees/{id}/absences/balance", bobEmpId).param("year", "2027")
+                        .header("Authorization", bearer(bobTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservedDays").value(8))
+                .andExpect(jsonPath("$.remainingDays").value(17));
+
+        mvc.perform(put("/api/absences/{id}/approve", id)
+                        .header("Authorization", bearer(mgrTok))
+                        .header("If-Match", cr.getResponse().getHeader("ETag")))
+                .andExpect(status().isOk());
+
+        mvc.perform(get("/api/employees/{id}/absences/balance", bobEmpId).param("year", "2027")
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedDays").value(8))
+                .andExpect(jsonPath("$.reservedDays").value(0));
+
+        mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2027-06-01\",\"endDate\":\"2027-06-30\",\"type\":\"VACATION\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("insufficient_balance"));
+    }
+
+    @Test
+    void transitions_are_compare_and_set_on_version_and_status() throws Exception {
+        var cr = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2026-02-02\",\"endDate\":\"2026-02-03\",\"type\":\"OTHER\"}"))
+                .andExpect(status().isCreated()).andReturn();
+        var id = om.readTree(cr.getResponse().getContentAsByteArray()).get("id").asText();
+        var etag = cr.getResponse().getHeader("ETag");
+
+        mvc.perform(put("/api/absences/{id}/cancel", id)
+                        .header("Authorization", bearer(carolTok)).header("If-Match", etag))
+                .andExpect(status().isForbidden());
+
+        mvc.perform(put("/api/absences/{id}/approve", id)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", "\"7\""))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.currentVersion").value(0));
+
+        mvc.perform(put("/api/absences/{id}/reject", id)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andExpect(jsonPath("$.status").value("REJECTED"));
+
+        mvc.perform(put("/api/absences/{id}/approve", id)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", "\"1\""))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("not_pending"));
+
+        mvc.perform(put("/api/absences/{id}/approve", UUID.randomUUID())
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", "\"0\""))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void ics_feed_lists_approved_absences_and_honours_conditional_get() throws Exception {
+        var started = mvc.perform(get("/api/absences/feed.ics").header("Authorization", bearer(mgrTok)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        var res = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("BEGIN:VCALENDAR\r\n")))
+                .andExpect(content().string(containsString("SUMMARY:Alice")))
+                .andExpect(content().string(endsWith("END:VCALENDAR\r\n")))
+                .andReturn();
+        var etag = res.getResponse().getHeader("ETag");
+
+        mvc.perform(get("/api/absences/feed.ics").header("Authorization", bearer(mgrTok)).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        mvc.perform(get("/api/absences/feed.ics").header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void feed_token_replaces_authorization_and_renames_change_the_etag() throws Exception {
+        var issued = mvc.perform(post("/api/absences/feed/token").header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk()).andReturn();
+        var token = om.readTree(issued.getResponse().getContentAsByteArray()).get("token").asText();
+        mvc.perform(post("/api/absences/feed/token").header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+        mvc.perform(get("/api/absences/feed.ics")).andExpect(status().isUnauthorized());
+        mvc.perform(get("/api/absences/feed.ics").param("token", "guess")).andExpect(status().isUnauthorized());
+
+        var started = mvc.perform(get("/api/absences/feed.ics").param("token", token))
+                .andExpect(request().asyncStarted()).andReturn();
+        var etag = mvc.perform(asyncDispatch(started)).andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Alice's approved absence is titled with her name
+        var alice = mvc.perform(get("/api/employees/{id}", aliceEmpId).header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk()).andReturn();
+        mvc.perform(put("/api/employees/{id}", aliceEmpId)
+                        .header("Authorization", bearer(mgrTok))
+                        .header("If-Match", alice.getResponse().getHeader("ETag"))
+                        .contentType(APPLICATION_JSON).content("{\"lastName\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+        mvc.perform(get("/api/absences/feed.ics").param("token", token).header("If-None-Match", etag))
+                .andExpect(request().asyncStarted());
+
+        mvc.perform(delete("/api/absences/feed/token").header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isNoContent());
+        mvc.perform(get("/api/absences/feed.ics").param("token", token)).andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void availability_counts_approved_absences_per_day() throws Exception {
+        // seeded: Alice approved from 30 to 28 days ago
+        var from = java.time.LocalDate.now().minusDays(31);
+        mvc.perform(get("/api/absences/availability")
+                        .param("from", from.toString()).param("to", from.plusDays(4).toString())
+                        .param("employeeId", aliceEmpId.toString())
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.headcount").value(1))
+                .andExpect(jsonPath("$.absent", contains(0, 1, 1, 1, 0)))
+                .andExpect(jsonPath("$.available", contains(1, 0, 0, 0, 1)));
+
+        mvc.perform(get("/api/absences/availability")
+                        .param("from", from.toString()).param("to", from.plusDays(4).toString())
+                        .header("Authorization", bearer(bobTok)))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void recurring_series_is_created_atomically_then_decided_as_a_whole() throws Exception {
+        var created = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2027-09-03\",\"endDate\":\"2027-09-03\",\"type\":\"OTHER\"," +
+                                "\"recurrence\":\"FREQ=WEEKLY;BYDAY=FR;COUNT=4\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", containsString("/api/absences/series/")))
+                .andExpect(jsonPath("$.occurrences[*].startDate", contains("2027-09-03", "2027-09-10", "2027-09-17", "2027-09-24")))
+                .andReturn();
+        var series = om.readTree(created.getResponse().getContentAsByteArray());
+        var seriesId = series.get("seriesId").asText();
+        var lastId = series.get("occurrences").get(3).get("id").asText();
+
+        // one clash and nothing of the second series is stored
+        mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2027-09-23\",\"endDate\":\"2027-09-23\",\"type\":\"OTHER\"," +
+                                "\"recurrence\":\"FREQ=DAILY;COUNT=3\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.overlapping", contains(lastId)));
+        mvc.perform(get("/api/employees/{id}/absences", bobEmpId).header("Authorization", bearer(bobTok)))
+                .andExpect(jsonPath("$[?(@.startDate == '2027-09-23')]", hasSize(0)));
+
+        var etag = mvc.perform(get("/api/absences/series/{id}", seriesId).header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(put("/api/absences/series/{id}/approve", seriesId)
+                        .header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isPreconditionRequired());
+        mvc.perform(put("/api/absences/series/{id}/approve", seriesId)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.occurrences[*].status", everyItem(is("APPROVED"))))
+                .andExpect(header().string("ETag", "\"4\""));
+        // the old series version is stale now
+        mvc.perform(put("/api/absences/series/{id}/approve", seriesId)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", etag))
+                .andExpect(status().isConflict());
+
+        var other = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2027-10-01\",\"endDate\":\"2027-10-01\",\"type\":\"OTHER\"," +
+                                "\"recurrence\":\"FREQ=WEEKLY;COUNT=2\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        var otherId = om.readTree(other.getResponse().getContentAsByteArray()).get("seriesId").asText();
+        mvc.perform(put("/api/absences/series/{id}/cancel", otherId)
+                        .header("Authorization", bearer(mgrTok)).header("If-Match", "\"0\""))
+                .andExpect(status().isForbidden());
+        mvc.perform(put("/api/absences/series/{id}/cancel", otherId)
+                        .header("Authorization", bearer(bobTok)).header("If-Match", "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.occurrences[*].status", contains("CANCELLED", "CANCELLED")));
+    }
+
+    @Test
+    void attachment_is_uploaded_in_chunks_and_downloaded_by_range() throws Exception {
+        var created = mvc.perform(post("/api/employees/{id}/absences", bobEmpId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"startDate\":\"2028-03-06\",\"endDate\":\"2028-03-07\",\"type\":\"SICK\"}"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        var absenceId = om.readTree(created.getResponse().getContentAsByteArray()).get("id").asText();
+
+        var upload = mvc.perform(post("/api/absences/{id}/attachments/uploads", absenceId)
+                        .header("Authorization", bearer(bobTok))
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"filename\":\"note.pdf\",\"contentType\":\"application/pdf\",\"length\":11}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Upload-Offset", "0"))
+                .andReturn().getResponse().getHeader("Location");
+
+        mvc.perform(patch(upload).header("Authorization", bearer(bobTok))
+                        .header("Upload-Offset", "0").contentType("application/offset+octet-stream").content("hello"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", "5"));
+        // the client lost the response and asks where to resume
+        mvc.perform(head(upload).header("Authorization", bearer(bobTok)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", "5"));
+        // the SPA runs on another origin: it must be allowed to send the chunk headers and read the offset back
+        mvc.perform(options(upload).header("Origin", "http://localhost:3000")
+                        .header("Access-Control-Request-Method", "PATCH")
+                        .header("Access-Control-Request-Headers", "authorization,content-type,upload-offset,tus-resumable"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Methods", containsString("PATCH")))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("upload-offset")))
+                .andExpect(header().string("Access-Control-Allow-Headers", containsStringIgnoringCase("tus-resumable")));
+        mvc.perform(head(upload).header("Authorization", bearer(bobTok)).header("Origin", "http://localhost:3000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Access-Control-Allow-Origin", "http://localhost:3000"))
+                .andExpect(header().string("Access-Control-Expose-Headers", containsString("Upload-Offset")))
+                .andExpect(header().string("Access-Control-Expose-Headers", containsString("Upload-Length")));
+        mvc.perform(patch(upload).header("Authorization", bearer(carolTok))
+                        .header("Upload-Offset", "5").contentType("application/offset+octet-stream").content(" world"))
+                .andExpect(status().isForbidden());
+        var done = mvc.perform(patch(upload).header("Authorization", bearer(bobTok))
+                        .header("Upload-Offset", "5").contentType("application/offset+octet-stream").content(" world"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.attachment.sha256").value("b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9"))
+                .andReturn();
+        var attachmentId = om.readTree(done.getResponse().getContentAsByteArray()).get("attachment").get("id").asText();
+
+        mvc.perform(get("/api/absences/{id}/attachments", absenceId).header("Authorization", bearer(mgrTok)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].filename", contains("note.pdf")));
+        mvc.perform(get("/api/absences/{id}/attachments/{a}", absenceId, attachmentId)
+                        .header("Authorization", bearer(mgrTok)).header("Range", "bytes=6-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 6-10/11"))
+                .andExpect(content().string("world"));
+        mvc.perform(get("/api/absences/{id}/attachments/{a}", absenceId, attachmentId)
+                        .header("Authorization", bearer(carolTok)))
+                .andExpect(status().isForbidden());
+    }
 }
@@ -0,0 +1,165 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.AbsenceBalanceProps;
+import com.newwork.core.config.HolidayCalendarProps;
+import com.newwork.core.domain.AbsenceBalance;
+import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.AbsenceType;
+import com.newwork.core.domain.Employee;
+import com.newwork.core.repo.AbsenceBalanceRepository;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.service.impl.AbsenceLedger;
+import com.newwork.core.service.impl.BusinessDayCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AbsenceLedgerTest {
+
+    AbsenceBalanceRepository balances;
+    AbsenceRequestRepository requests;
+    AbsenceLedger ledger;
+    final Map<AbsenceBalance.Key, AbsenceBalance> rows = new HashMap<>();
+    final Employee emp = new Employee();
+
+    @BeforeEach
+    void setUp() {
+        emp.setId(UUID.randomUUID());
+        balances = mock(AbsenceBalanceRepository.class);
+        requests = mock(AbsenceRequestRepository.class);
+        when(balances.findForUpdate(any())).thenAnswer(inv -> Optional.ofNullable(rows.get(inv.getArgument(0))));
+        when(balances.findById(any())).thenAnswer(inv -> Optional.ofNullable(rows.get(inv.getArgument(0))));
+        when(balances.insertIfAbsent(any(), anyInt(), any(), any(), anyInt(), anyInt(), any())).thenAnswer(inv -> {
+            var key = new AbsenceBalance.Key(inv.getArgument(0), inv.getArgument(1), AbsenceType.valueOf(inv.getArgument(2)));
+            if (rows.containsKey(key)) return 0;
+            var b = new AbsenceBalance();
+            b.setId(key);
+            b.setAllowanceDays(inv.getArgument(3));
+            b.setReservedDays(inv.getArgument(4));
+            b.setUsedDays(inv.getArgument(5));
+            rows.put(key, b);
+            return 1;
+        });
+        var props = new AbsenceBalanceProps();
+        props.setAllowanceDays(Map.of(AbsenceType.VACATION, 8));
+        var country = new HolidayCalendarProps.Country();
+        country.setFixed(List.of("01-01"));
+        var calendar = new HolidayCalendarProps();
+        calendar.setCountries(Map.of("DE", country));
+        ledger = new AbsenceLedger(balances, requests, props, new BusinessDayCalendar(calendar));
+    }
+
+    @Test
+    void reserve_then_approve_moves_days_and_reads_are_one_row() {
+        var a = request("2025-03-03", "2025-03-07", AbsenceStatus.PENDING);
+        ledger.reserve(a);
+        ledger.approved(a);
+
+        var b = ledger.balance(emp.getId(), 2025, AbsenceType.VACATION);
+        assertEquals(5, b.getUsedDays());
+        assertEquals(0, b.getReservedDays());
+        assertEquals(3, b.remainingDays());
+        // opened once, from the stored requests; every later move is a delta
+        verify(requests, times(1)).findForLedgerOpening(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void reserve_overdrawing_a_limited_type_is_409_and_unlimited_types_pass() {
+        // Mon..Sun: the weekend is free
+        ledger.reserve(request("2025-03-03", "2025-03-09", AbsenceStatus.PENDING));
+        assertEquals(5, ledger.balance(emp.getId(), 2025, AbsenceType.VACATION).getReservedDays());
+        var ex = assertThrows(ResponseStatusException.class,
+                () -> ledger.reserve(request("2025-04-01", "2025-04-04", AbsenceStatus.PENDING)));
+        assertEquals("insufficient_balance", ex.getReason());
+
+        var sick = request("2025-05-01", "2025-06-30", AbsenceStatus.PENDING);
+        sick.setType(AbsenceType.SICK);
+        ledger.reserve(sick);
+        assertNull(ledger.balance(emp.getId(), 2025, AbsenceType.SICK).remainingDays());
+    }
+
+    @Test
+    void request_across_new_year_counts_business_days_towards_both_years_and_release_returns_them() {
+        // Tue 30 Dec .. Fri 2 Jan, with New Year's Day off
+        var a = request("2025-12-30", "2026-01-02", AbsenceStatus.PENDING);
+        ledger.reserve(a);
+        assertEquals(2, ledger.balance(emp.getId(), 2025, AbsenceType.VACATION).getReservedDays());
+        assertEquals(1, ledger.balance(emp.getId(), 2026, AbsenceType.VACATION).getReservedDays());
+
+        ledger.released(a);
+        assertEquals(0, ledger.balance(emp.getId(), 2026, AbsenceType.VACATION).getReservedDays());
+    }
+
+    @Test
+    void opening_figures_come_from_existing_requests_except_the_one_being_moved() {
+        var legacy = request("2025-01-06", "2025-01-08", AbsenceStatus.APPROVED);
+        var moving = request("2025-02-03", "2025-02-04", AbsenceStatus.PENDING);
+        when(requests.findForLedgerOpening(eq(emp.getId()), eq(AbsenceType.VACATION), any(), any(), any(), any(), eq(moving.getId())))
+                .thenReturn(List.of(legacy));
+
+        ledger.approved(moving);
+
+        var b = ledger.balance(emp.getId(), 2025, AbsenceType.VACATION);
+        assertEquals(3 + 2, b.getUsedDays());
+        assertEquals(0, b.getReservedDays());
+    }
+
+    @Test
+    void reading_an_untouched_balance_stores_nothing() {
+        when(requests.findForLedgerOpening(eq(emp.getId()), eq(AbsenceType.VACATION), any(), any(), any(), any(), any()))
+                .thenReturn(List.of(request("2025-01-06", "2025-01-08", AbsenceStatus.APPROVED)));
+
+        var b = ledger.balance(emp.getId(), 2025, AbsenceType.VACATION);
+
+        assertEquals(3, b.getUsedDays());
+        assertEquals(5, b.remainingDays());
+        verify(balances, never()).insertIfAbsent(any(), anyInt(), any(), any(), anyInt(), anyInt(), any());
+        verify(balances, never()).save(any());
+        assertTrue(rows.isEmpty());
+    }
+
+    @Test
+    void first_touch_that_loses_the_insert_race_moves_the_winners_row() {
+        var key = new AbsenceBalance.Key(emp.getId(), 2025, AbsenceType.VACATION);
+        var winner = new AbsenceBalance();
+        winner.setId(key);
+        winner.setAllowanceDays(8);
+        winner.setReservedDays(2);
+        // not there when first looked up; inserted by another transaction before ours
+        when(balances.findForUpdate(key)).thenReturn(Optional.empty()).thenAnswer(inv -> Optional.of(winner));
+        doReturn(0).when(balances).insertIfAbsent(any(), anyInt(), any(), any(), anyInt(), anyInt(), any());
+
+        ledger.reserve(request("2025-03-03", "2025-03-04", AbsenceStatus.PENDING));
+
+        assertEquals(4, winner.getReservedDays());
+    }
+
+    private AbsenceRequest request(String start, String end, AbsenceStatus status) {
+        var a = new AbsenceRequest();
+        a.setEmployee(emp);
+        a.setType(AbsenceType.VACATION);
+        a.setStartDate(LocalDate.parse(start));
+        a.setEndDate(LocalDate.parse(end));
+        a.setStatus(status);
+        try {
+            var idF = AbsenceRequest.class.getDeclaredField("id");
+            idF.setAccessible(true);
+            idF.set(a, UUID.randomUUID());
+        } catch (Exception ignored) {}
+        return a;
+    }
+}
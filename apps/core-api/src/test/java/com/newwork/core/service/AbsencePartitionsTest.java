@@ -0,0 +1,63 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.AbsencePartitionProps;
+import com.newwork.core.config.PostgresDdl;
+import com.newwork.core.service.impl.AbsencePartitions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AbsencePartitionsTest {
+
+    @Test
+    void hot_window_starts_this_year_but_keeps_last_year_through_january() {
+        assertEquals(LocalDate.parse("2026-01-01"), AbsencePartitions.hotFrom(LocalDate.parse("2026-10-19")));
+        assertEquals(LocalDate.parse("2025-01-01"), AbsencePartitions.hotFrom(LocalDate.parse("2026-01-20")));
+        assertEquals(LocalDate.parse("2026-01-01"), AbsencePartitions.hotFrom(LocalDate.parse("2026-02-01")));
+    }
+
+    @Test
+    void overlap_bound_reaches_back_one_longest_request() {
+        var d = LocalDate.parse("2026-03-01");
+        assertEquals(d.minusDays(AbsencePartitions.MAX_SPAN_DAYS), AbsencePartitions.earliestStartOverlapping(d));
+    }
+
+    @Test
+    void off_postgres_nothing_is_converted_or_archived() throws Exception {
+        var ddl = mock(PostgresDdl.class);
+        var jdbc = mock(JdbcTemplate.class);
+        var partitions = new AbsencePartitions(ddl, jdbc, mock(PlatformTransactionManager.class),
+                new AbsencePartitionProps(), new SimpleMeterRegistry());
+
+        partitions.install();
+        partitions.maintain();
+
+        assertNull(partitions.archive(2020));
+        verifyNoInteractions(jdbc);
+    }
+
+    @Test
+    void a_plain_table_is_left_alone_without_the_convert_opt_in() {
+        var ddl = mock(PostgresDdl.class);
+        when(ddl.isPostgres()).thenReturn(true);
+        var jdbc = mock(JdbcTemplate.class);
+        when(jdbc.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(false);
+        var props = new AbsencePartitionProps();
+        props.setEnabled(true);
+        var partitions = new AbsencePartitions(ddl, jdbc, mock(PlatformTransactionManager.class), props, new SimpleMeterRegistry());
+
+        partitions.install();
+
+        verify(ddl, never()).apply(anyString());
+        verify(jdbc, never()).execute(anyString());
+    }
+}
@@ -0,0 +1,80 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.HolidayCalendarProps;
+import com.newwork.core.service.impl.BusinessDayCalendar;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BusinessDayCalendarTest {
+
+    BusinessDayCalendar calendar;
+
+    @BeforeEach
+    void setUp() {
+        var de = new HolidayCalendarProps.Country();
+        de.setFixed(List.of("01-01", "12-25", "12-26", "02-29"));
+        de.setDates(List.of("2025-04-18", "2025-04-21"));
+        var ae = new HolidayCalendarProps.Country();
+        ae.setWeekend(EnumSet.of(DayOfWeek.FRIDAY, DayOfWeek.SATURDAY));
+        var props = new HolidayCalendarProps();
+        props.setCountries(Map.of("DE", de, "AE", ae));
+        calendar = new BusinessDayCalendar(props);
+    }
+
+    @Test
+    void counts_weekdays_minus_fixed_and_movable_holidays() {
+        assertEquals(5, calendar.businessDays(d("2025-03-03"), d("2025-03-09")));
+        assertEquals(0, calendar.businessDays(d("2025-03-08"), d("2025-03-09")));
+        // Easter week: Good Friday and Easter Monday are off
+        assertEquals(2, calendar.businessDays(d("2025-04-17"), d("2025-04-22")));
+        assertEquals(4, calendar.businessDays("AE", d("2025-03-03"), d("2025-03-07")));
+        assertEquals(0, calendar.businessDays(d("2025-03-09"), d("2025-03-03")));
+    }
+
+    @Test
+    void agrees_with_a_day_by_day_walk_across_word_and_year_boundaries() {
+        var start = d("2023-11-15");
+        for (int len = 0; len < 900; len += 7) {
+            var end = start.plusDays(len);
+            int walk = 0;
+            for (var x = start; !x.isAfter(end); x = x.plusDays(1)) {
+                boolean weekend = x.getDayOfWeek() == DayOfWeek.SATURDAY || x.getDayOfWeek() == DayOfWeek.SUNDAY;
+                boolean holiday = (x.getMonthValue() == 1 && x.getDayOfMonth() == 1)
+                        || (x.getMonthValue() == 12 && x.getDayOfMonth() >= 25 && x.getDayOfMonth() <= 26)
+                        || (x.getMonthValue() == 2 && x.getDayOfMonth() == 29)
+                        || x.equals(d("2025-04-18")) || x.equals(d("2025-04-21"));
+                if (!weekend && !holiday) walk++;
+            }
+            assertEquals(walk, calendar.businessDays(start, end), "until " + end);
+        }
+    }
+
+    @Test
+    void counting_allocates_nothing_once_the_years_are_compiled() {
+        var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        var from = d("2024-12-02");
+        var to = d("2026-01-30");
+        long sink = 0;
+        for (int i = 0; i < 20_000; i++) sink += calendar.businessDays(from, to.minusDays(i & 31));
+
+        long tid = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (int i = 0; i < 200_000; i++) sink += calendar.businessDays("DE", from, to);
+        long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+        assertTrue(sink > 0);
+        // a single allocation per call would be megabytes here; allow for the probe's own bookkeeping
+        assertTrue(allocated < 4096, "allocated " + allocated + " bytes");
+    }
+
+    private static LocalDate d(String s) { return LocalDate.parse(s); }
+}
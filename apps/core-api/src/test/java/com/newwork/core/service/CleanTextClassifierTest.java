@@ -0,0 +1,48 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.FeedbackCleanCheckProps;
+import com.newwork.core.service.impl.CleanTextClassifier;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CleanTextClassifierTest {
+
+    @Test
+    void well_formed_text_scores_full() {
+        assertEquals(1.0, CleanTextClassifier.score("Alice led the Q3 planning well. Her notes were thorough!"));
+    }
+
+    @Test
+    void casing_punctuation_and_spelling_smells_lower_the_score() {
+        for (var t : new String[]{
+                "alice led the planning well.",
+                "Alice led the planning well",
+                "Alice led the planning well , thanks.",
+                "Alice and i led the planning.",
+                "Alice recieved the award.",
+                "Alice sent the txt late.",
+                "ALICE LED THE PLANNING WELL."}) {
+            assertTrue(CleanTextClassifier.score(t) < 0.95, t);
+        }
+    }
+
+    @Test
+    void shadow_mode_flags_clean_but_never_skips() {
+        var props = new FeedbackCleanCheckProps();
+        var meters = new SimpleMeterRegistry();
+        var c = new CleanTextClassifier(props, meters);
+
+        var v = c.assess("Alice led the Q3 planning well.");
+        assertTrue(v.clean());
+        assertFalse(v.skip());
+
+        c.observe(v, "Alice led the Q3 planning well.", "Alice led the Q3 planning well.");
+        assertEquals(1.0, meters.counter("feedback.cleancheck.shadow", "model", "unchanged").count());
+
+        props.setShadow(false);
+        assertTrue(c.assess("Alice led the Q3 planning well.").skip());
+        assertFalse(c.assess("Good job.").skip());
+    }
+}
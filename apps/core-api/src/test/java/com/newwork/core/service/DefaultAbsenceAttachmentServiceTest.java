@@ -0,0 +1,176 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.AbsenceAttachmentProps;
+import com.newwork.core.domain.AbsenceAttachment;
+import com.newwork.core.domain.AbsenceAttachmentUpload;
+import com.newwork.core.domain.AbsenceRequest;
+import com.newwork.core.domain.AbsenceStatus;
+import com.newwork.core.domain.Employee;
+import com.newwork.core.repo.AbsenceAttachmentRepository;
+import com.newwork.core.repo.AbsenceAttachmentUploadRepository;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.security.Role;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.impl.AttachmentStore;
+import com.newwork.core.service.impl.DefaultAbsenceAttachmentService;
+import com.newwork.core.web.dto.AttachmentDtos.CreateUploadReq;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DefaultAbsenceAttachmentServiceTest {
+
+    @TempDir Path dir;
+
+    AbsenceRequestRepository absenceRepo;
+    AbsenceAttachmentUploadRepository uploadRepo;
+    AbsenceAttachmentRepository attachmentRepo;
+    PlatformTransactionManager txManager;
+    SimpleMeterRegistry meters;
+    DefaultAbsenceAttachmentService service;
+
+    final Map<UUID, AbsenceAttachmentUpload> uploads = new HashMap<>();
+    AbsenceRequest absence;
+    UserPrincipal owner;
+
+    @BeforeEach
+    void setUp() {
+        absenceRepo = mock(AbsenceRequestRepository.class);
+        uploadRepo = mock(AbsenceAttachmentUploadRepository.class);
+        attachmentRepo = mock(AbsenceAttachmentRepository.class);
+        when(uploadRepo.save(any())).thenAnswer(inv -> {
+            AbsenceAttachmentUpload u = inv.getArgument(0);
+            u.setId(UUID.randomUUID());
+            uploads.put(u.getId(), u);
+            return u;
+        });
+        when(uploadRepo.findById(any())).thenAnswer(inv -> Optional.ofNullable(uploads.get((UUID) inv.getArgument(0))));
+        doAnswer(inv -> uploads.remove(((AbsenceAttachmentUpload) inv.getArgument(0)).getId())).when(uploadRepo).delete(any());
+        when(attachmentRepo.save(any())).thenAnswer(inv -> {
+            AbsenceAttachment a = inv.getArgument(0);
+            a.setId(UUID.randomUUID());
+            return a;
+        });
+
+        var props = new AbsenceAttachmentProps();
+        props.setDir(dir.toString());
+        props.setMaxBytes(1024);
+        meters = new SimpleMeterRegistry();
+        txManager = mock(PlatformTransactionManager.class);
+        service = new DefaultAbsenceAttachmentService(absenceRepo, uploadRepo, attachmentRepo, new AttachmentStore(props),
+                props, txManager, meters);
+
+        var emp = new Employee();
+        emp.setId(UUID.randomUUID());
+        absence = new AbsenceRequest();
+        absence.setId(UUID.randomUUID());
+        absence.setEmployee(emp);
+        absence.setStatus(AbsenceStatus.PENDING);
+        when(absenceRepo.findById(absence.getId())).thenReturn(Optional.of(absence));
+        owner = new UserPrincipal(UUID.randomUUID(), Role.EMPLOYEE, emp.getId());
+    }
+
+    private static ByteArrayInputStream bytes(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void chunkedUpload_resumesAtOffset_andStoresByContent() throws Exception {
+        var started = service.startUpload(absence.getId(), new CreateUploadReq("../../note.pdf", "application/pdf", 11L), owner);
+        assertEquals(0, started.offset());
+        assertEquals("note.pdf", uploads.get(started.uploadId()).getFilename());
+
+        var first = service.append(absence.getId(), started.uploadId(), 0, bytes("hello"), owner);
+        assertEquals(5, first.offset());
+        assertNull(first.attachment());
+        assertEquals(5, service.uploadStatus(absence.getId(), started.uploadId(), owner).offset());
+
+        // a retried chunk from before the first one landed
+        var stale = assertThrows(ResponseStatusException.class,
+                () -> service.append(absence.getId(), started.uploadId(), 0, bytes("hello"), owner));
+        assertEquals("offset_mismatch", stale.getReason());
+
+        // bytes past the declared length are not written
+        var last = service.append(absence.getId(), started.uploadId(), 5, bytes(" world!!!"), owner);
+        assertEquals(11, last.offset());
+        var a = last.attachment();
+        assertNotNull(a);
+        assertEquals("b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9", a.sha256());
+        assertEquals(11, a.sizeBytes());
+        assertTrue(uploads.isEmpty());
+
+        var blob = dir.resolve("sha256").resolve("b9").resolve(a.sha256());
+        assertEquals("hello world", Files.readString(blob));
+        assertFalse(Files.exists(dir.resolve("uploads").resolve(started.uploadId() + ".part")));
+    }
+
+    @Test
+    void sameContentTwice_isStoredOnce() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            var u = service.startUpload(absence.getId(), new CreateUploadReq("scan.png", "image/png", 3L), owner);
+            service.append(absence.getId(), u.uploadId(), 0, bytes("abc"), owner);
+        }
+        assertEquals(1.0, meters.counter("absence.attachments.deduplicated").count());
+        try (var files = Files.walk(dir.resolve("sha256"))) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+        verify(attachmentRepo, times(2)).save(any());
+    }
+
+    @Test
+    void failedCommit_putsTheUploadBack_soItCanBeCompletedAgain() throws Exception {
+        var u = service.startUpload(absence.getId(), new CreateUploadReq("scan.png", "image/png", 3L), owner);
+        var row = uploads.get(u.uploadId());
+        doThrow(new TransactionSystemException("commit failed")).doNothing().when(txManager).commit(any());
+
+        assertThrows(TransactionSystemException.class, () -> service.append(absence.getId(), u.uploadId(), 0, bytes("abc"), owner));
+        var part = dir.resolve("uploads").resolve(u.uploadId() + ".part");
+        assertEquals("abc", Files.readString(part));
+
+        // the rollback kept the upload row; the client asks for the offset and finishes with an empty chunk
+        uploads.put(row.getId(), row);
+        assertEquals(3, service.uploadStatus(absence.getId(), u.uploadId(), owner).offset());
+        var done = service.append(absence.getId(), u.uploadId(), 3, bytes(""), owner);
+        assertNotNull(done.attachment());
+        assertFalse(Files.exists(part));
+    }
+
+    @Test
+    void startUpload_validates() {
+        var other = new UserPrincipal(UUID.randomUUID(), Role.EMPLOYEE, UUID.randomUUID());
+        var forbidden = assertThrows(ResponseStatusException.class,
+                () -> service.startUpload(absence.getId(), new CreateUploadReq("a.pdf", "application/pdf", 10L), other));
+        assertEquals(403, forbidden.getStatusCode().value());
+
+        var type = assertThrows(ResponseStatusException.class,
+                () -> service.startUpload(absence.getId(), new CreateUploadReq("a.exe", "application/octet-stream", 10L), owner));
+        assertEquals(415, type.getStatusCode().value());
+
+        var nul = assertThrows(ResponseStatusException.class,
+                () -> service.startUpload(absence.getId(), new CreateUploadReq("a\u0000.pdf", "application/pdf", 10L), owner));
+        assertEquals("invalid_filename", nul.getReason());
+
+        var big = assertThrows(ResponseStatusException.class,
+                () -> service.startUpload(absence.getId(), new CreateUploadReq("a.pdf", "application/pdf", 2048L), owner));
+        assertEquals("too_large", big.getReason());
+
+        absence.setStatus(AbsenceStatus.CANCELLED);
+        var closed = assertThrows(ResponseStatusException.class,
+                () -> service.startUpload(absence.getId(), new CreateUploadReq("a.pdf", "application/pdf", 10L), owner));
+        assertEquals("absence_closed", closed.getReason());
+    }
+}
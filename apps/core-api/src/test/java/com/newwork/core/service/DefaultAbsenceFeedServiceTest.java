@@ -0,0 +1,59 @@
+package com.newwork.core.service;
+
+import com.newwork.core.domain.AbsenceType;
+import com.newwork.core.repo.AbsenceRequestRepository;
+import com.newwork.core.repo.UserRepository;
+import com.newwork.core.service.impl.DefaultAbsenceFeedService;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DefaultAbsenceFeedServiceTest {
+
+    private record Row(String firstName, String lastName) implements AbsenceRequestRepository.FeedRow {
+        @Override public UUID getId() { return UUID.randomUUID(); }
+        @Override public String getFirstName() { return firstName; }
+        @Override public String getLastName() { return lastName; }
+        @Override public AbsenceType getType() { return AbsenceType.VACATION; }
+        @Override public LocalDate getStartDate() { return LocalDate.parse("2026-08-03"); }
+        @Override public LocalDate getEndDate() { return LocalDate.parse("2026-08-14"); }
+        @Override public Instant getUpdatedAt() { return Instant.parse("2026-07-01T09:00:00Z"); }
+    }
+
+    @Test
+    void long_multibyte_lines_fold_at_75_octets_between_characters() throws Exception {
+        var repo = mock(AbsenceRequestRepository.class);
+        // two-byte letters, three-byte CJK and four-byte emoji (a surrogate pair in Java)
+        var first = "Zoë-Ångström Łukasiewicz-Øvergård";
+        var last = "山田太郎の長い名前テスト 🏖️🏝️🌴 Müller-Lüdenscheidt-Straßenbahn";
+        when(repo.streamApproved(any())).thenReturn(Stream.of(new Row(first, last)));
+        var service = new DefaultAbsenceFeedService(repo, mock(UserRepository.class), mock(PlatformTransactionManager.class));
+
+        var out = new ByteArrayOutputStream();
+        service.writeIcs(out);
+        var ics = out.toString(StandardCharsets.UTF_8);
+
+        // no replacement characters: no line ends inside a character
+        assertFalse(ics.contains("�"));
+        var lines = ics.split("\r\n");
+        int summary = -1;
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i].getBytes(StandardCharsets.UTF_8).length <= 75, lines[i]);
+            if (lines[i].startsWith("SUMMARY:")) summary = i;
+        }
+        var unfolded = new StringBuilder(lines[summary]);
+        for (int i = summary + 1; lines[i].startsWith(" "); i++) unfolded.append(lines[i], 1, lines[i].length());
+        assertTrue(summary + 1 < lines.length && lines[summary + 1].startsWith(" "), "SUMMARY should have been folded");
+        assertEquals("SUMMARY:" + first + " " + last + " (VACATION)", unfolded.toString());
+    }
+}
@@ -1,5 +1,7 @@
 package com.newwork.core.service;
 
+import com.newwork.core.config.HolidayCalendarProps;
+import com.newwork.core.config.PostgresDdl;
 import com.newwork.core.domain.AbsenceRequest;
 import com.newwork.core.domain.AbsenceStatus;
 import com.newwork.core.domain.AbsenceType;
@@ -8,14 +10,21 @@ import com.newwork.core.repo.AbsenceRequestRepository;
 import com.newwork.core.repo.EmployeeRepository;
 import com.newwork.core.security.Role;
 import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.impl.AbsenceLedger;
+import com.newwork.core.service.impl.AbsenceOverlapGuard;
+import com.newwork.core.service.impl.AbsencePartitions;
+import com.newwork.core.service.impl.BusinessDayCalendar;
 import com.newwork.core.service.impl.DefaultAbsenceService;
 import com.newwork.core.web.dto.AbsenceDtos;
 import com.newwork.core.web.support.Etags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -26,6 +35,7 @@ class DefaultAbsenceServiceTest {
 
     AbsenceRequestRepository absenceRepo;
     EmployeeRepository employeeRepo;
+    AbsenceLedger ledger;
     DefaultAbsenceService service;
 
     final Etags etags = new Etags();
@@ -34,7 +44,11 @@ class DefaultAbsenceServiceTest {
     void setUp() {
         absenceRepo = mock(AbsenceRequestRepository.class);
         employeeRepo = mock(EmployeeRepository.class);
-        service = new DefaultAbsenceService(employeeRepo, absenceRepo, etags);
+        var overlaps = new AbsenceOverlapGuard(absenceRepo, employeeRepo, mock(PostgresDdl.class),
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        ledger = mock(AbsenceLedger.class);
+        service = new DefaultAbsenceService(employeeRepo, absenceRepo, etags, overlaps, ledger,
+                new BusinessDayCalendar(new HolidayCalendarProps()), mock(PlatformTransactionManager.class));
     }
 
     private UserPrincipal manager() { return new UserPrincipal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID()); }
@@ -70,11 +84,59 @@ class DefaultAbsenceServiceTest {
     @Test
     void cancel_owner_pending_ok() {
         var a = samplePending(0);
+        var owner = a.getEmployee().getId();
+        when(absenceRepo.transitionFromPending(eq(a.getId()), eq(0), eq(AbsenceStatus.CANCELLED), any(), any(), eq(owner)))
+                .thenAnswer(inv -> { a.setStatus(AbsenceStatus.CANCELLED); a.setVersion(1); return 1; });
         when(absenceRepo.findById(a.getId())).thenReturn(Optional.of(a));
-        when(absenceRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
 
-        var out = service.cancel(a.getId(), new AbsenceDtos.DecisionReq(null), "\"0\"", owner(a.getEmployee().getId()));
+        var out = service.cancel(a.getId(), new AbsenceDtos.DecisionReq(null), "\"0\"", owner(owner));
         assertEquals(AbsenceStatus.CANCELLED, out.status());
+        assertEquals(1, out.version());
+        verify(ledger).released(a);
+        verify(absenceRepo, never()).save(any());
+    }
+
+    @Test
+    void transition_noRowChanged_explainsWhy() {
+        var a = samplePending(0);
+        when(absenceRepo.findById(a.getId())).thenReturn(Optional.of(a));
+
+        // someone else's request
+        var forbidden = assertThrows(ResponseStatusException.class,
+                () -> service.cancel(a.getId(), null, "\"0\"", owner(UUID.randomUUID())));
+        assertEquals(403, forbidden.getStatusCode().value());
+
+        a.setStatus(AbsenceStatus.APPROVED);
+        var notPending = assertThrows(ResponseStatusException.class,
+                () -> service.reject(a.getId(), null, "\"0\"", manager()));
+        assertEquals("not_pending", notPending.getReason());
+
+        when(absenceRepo.findById(a.getId())).thenReturn(Optional.empty());
+        var missing = assertThrows(ResponseStatusException.class,
+                () -> service.approve(a.getId(), null, "\"0\"", manager()));
+        assertEquals(404, missing.getStatusCode().value());
+        verify(ledger, never()).approved(any());
+        verify(ledger, never()).released(any());
+    }
+
+    @Test
+    void reads_try_the_hot_partitions_before_every_year() {
+        var hotFrom = AbsencePartitions.hotFrom(LocalDate.now());
+        var recent = samplePending(0);
+        when(absenceRepo.findByIdStartingFrom(recent.getId(), hotFrom)).thenReturn(Optional.of(recent));
+        var old = samplePending(0);
+        when(absenceRepo.findById(old.getId())).thenReturn(Optional.of(old));
+
+        assertEquals(recent.getId(), service.getOne(recent.getId(), manager()).id());
+        verify(absenceRepo, never()).findById(recent.getId());
+        // not in the hot years: found by the unbounded lookup
+        assertEquals(old.getId(), service.getOne(old.getId(), manager()).id());
+
+        var empId = UUID.randomUUID();
+        service.listForEmployee(empId, null, owner(empId));
+        verify(absenceRepo).findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(empId, hotFrom);
+        service.listForEmployee(empId, LocalDate.parse("2019-01-01"), owner(empId));
+        verify(absenceRepo).findByEmployeeIdAndStartDateGreaterThanEqualOrderByStartDateDesc(empId, LocalDate.parse("2019-01-01"));
     }
 
     @Test
@@ -87,6 +149,242 @@ class DefaultAbsenceServiceTest {
                 LocalDate.parse("2025-10-20"), LocalDate.parse("2025-10-24"), AbsenceType.VACATION, "Trip");
         var out = service.create(emp.getId(), req, owner(emp.getId()));
         assertEquals(AbsenceStatus.PENDING, out.status());
+        assertEquals(5, out.businessDays());
+        verify(ledger).reserve(any());
+    }
+
+    @Test
+    void create_longerThanAYear_is400() {
+        var id = UUID.randomUUID();
+        var req = new AbsenceDtos.CreateAbsenceReq(
+                LocalDate.parse("2025-01-01"), LocalDate.parse("2026-01-03"), AbsenceType.OTHER, null);
+        var ex = assertThrows(ResponseStatusException.class, () -> service.create(id, req, owner(id)));
+        assertEquals("range_too_long", ex.getReason());
+        verify(absenceRepo, never()).save(any());
+    }
+
+    @Test
+    void createSeries_expandsTheRule_andStoresAllOccurrencesUnderOneSeries() {
+        var emp = new Employee(); emp.setId(UUID.randomUUID());
+        when(employeeRepo.findById(emp.getId())).thenReturn(Optional.of(emp));
+        when(absenceRepo.saveAll(any())).thenAnswer(inv -> {
+            List<AbsenceRequest> all = inv.getArgument(0);
+            all.forEach(DefaultAbsenceServiceTest::withId);
+            return all;
+        });
+
+        // every Friday for six months
+        var req = new AbsenceDtos.CreateAbsenceReq(LocalDate.parse("2025-01-03"), LocalDate.parse("2025-01-03"),
+                AbsenceType.OTHER, "Part time", "FREQ=WEEKLY;BYDAY=FR;COUNT=26");
+        var out = service.createSeries(emp.getId(), req, owner(emp.getId()));
+
+        assertEquals(26, out.occurrences().size());
+        assertEquals(LocalDate.parse("2025-06-27"), out.occurrences().getLast().startDate());
+        assertTrue(out.occurrences().stream().allMatch(o -> o.startDate().getDayOfWeek() == java.time.DayOfWeek.FRIDAY
+                && o.endDate().equals(o.startDate()) && out.seriesId().equals(o.seriesId())));
+        verify(absenceRepo, times(1)).saveAll(any());
+        verify(ledger, times(26)).reserve(any());
+    }
+
+    @Test
+    void createSeries_rejectsBadRules_before_touching_the_database() {
+        var id = UUID.randomUUID();
+        var start = LocalDate.parse("2025-01-06");
+        for (var rule : new String[]{"FREQ=WEEKLY", "FREQ=YEARLY;COUNT=2", "FREQ=WEEKLY;COUNT=2;UNTIL=20250301",
+                "FREQ=DAILY;BYDAY=MO;COUNT=2", "FREQ=WEEKLY;BYDAY=XX;COUNT=2", "FREQ=DAILY;INTERVAL=0;COUNT=2",
+                "FREQ=WEEKLY;BYDAY=TU,TH;COUNT=2"}) {
+            var req = new AbsenceDtos.CreateAbsenceReq(start, start, AbsenceType.OTHER, null, rule);
+            var ex = assertThrows(ResponseStatusException.class, () -> service.createSeries(id, req, owner(id)), rule);
+            assertEquals("invalid_recurrence", ex.getReason(), rule);
+        }
+        // a week long, every five days
+        var overlapping = new AbsenceDtos.CreateAbsenceReq(start, start.plusDays(6), AbsenceType.OTHER, null, "FREQ=DAILY;INTERVAL=5;COUNT=2");
+        assertEquals("invalid_recurrence",
+                assertThrows(ResponseStatusException.class, () -> service.createSeries(id, overlapping, owner(id))).getReason());
+        var endless = new AbsenceDtos.CreateAbsenceReq(start, start, AbsenceType.OTHER, null, "FREQ=DAILY;UNTIL=20300101");
+        assertEquals("too_many_occurrences",
+                assertThrows(ResponseStatusException.class, () -> service.createSeries(id, endless, owner(id))).getReason());
+        verifyNoInteractions(employeeRepo);
+    }
+
+    @Test
+    void create_overlappingActive_throwsWithIds_checkedUnderTheEmployeeLock() {
+        var emp = new Employee(); emp.setId(UUID.randomUUID());
+        when(employeeRepo.findById(emp.getId())).thenReturn(Optional.of(emp));
+        when(absenceRepo.save(any())).thenAnswer(inv -> withId(inv.getArgument(0)));
+        var booked = UUID.randomUUID();
+        var from = LocalDate.parse("2025-10-24");
+        var to = LocalDate.parse("2025-10-27");
+        when(absenceRepo.findOverlappingIds(emp.getId(), from, to, AbsencePartitions.earliestStartOverlapping(from),
+                AbsenceOverlapGuard.ACTIVE)).thenReturn(List.of(booked));
+
+        var clash = new AbsenceDtos.CreateAbsenceReq(from, to, AbsenceType.OTHER, null);
+        var ex = assertThrows(AbsenceOverlapException.class, () -> service.create(emp.getId(), clash, owner(emp.getId())));
+        assertEquals(List.of(booked), ex.overlapping);
+        verify(absenceRepo, never()).save(any());
+
+        var free = service.create(emp.getId(), new AbsenceDtos.CreateAbsenceReq(
+                LocalDate.parse("2025-10-28"), LocalDate.parse("2025-10-29"), AbsenceType.OTHER, null), owner(emp.getId()));
+        assertEquals(AbsenceStatus.PENDING, free.status());
+        var order = inOrder(employeeRepo, absenceRepo);
+        order.verify(employeeRepo).lockById(emp.getId());
+        order.verify(absenceRepo).findOverlappingIds(eq(emp.getId()), any(), any(), any(), any());
+        order.verify(absenceRepo).save(any());
+    }
+
+    @Test
+    void calendar_managerOnly_validatesRange_defaultsToActive() {
+        var from = LocalDate.parse("2025-03-01");
+        var to = LocalDate.parse("2025-03-31");
+        assertThrows(ResponseStatusException.class, () -> service.calendar(from, to, null, owner(UUID.randomUUID())));
+        assertThrows(ResponseStatusException.class, () -> service.calendar(to, from, null, manager()));
+        assertThrows(ResponseStatusException.class, () -> service.calendar(from, from.plusYears(2), null, manager()));
+
+        // only requests that start within a year before the range can reach it
+        var earliest = LocalDate.parse("2024-02-29");
+        when(absenceRepo.findCalendar(from, to, earliest, AbsenceOverlapGuard.ACTIVE)).thenReturn(List.of());
+        assertTrue(service.calendar(from, to, List.of(), manager()).isEmpty());
+        verify(absenceRepo).findCalendar(from, to, earliest, AbsenceOverlapGuard.ACTIVE);
+    }
+
+    @Test
+    void pending_pagesByCursor_andIsManagerOnly() {
+        assertThrows(ResponseStatusException.class, () -> service.pending(null, null, owner(UUID.randomUUID())));
+
+        var t = java.time.Instant.parse("2025-01-01T00:00:00Z");
+        var rows = java.util.stream.IntStream.range(0, 3).mapToObj(i -> pendingRow(UUID.randomUUID(), t.plusSeconds(i))).toList();
+        when(absenceRepo.findPendingFirstPage(org.springframework.data.domain.Limit.of(3))).thenReturn(rows);
+
+        var p1 = service.pending(null, 2, manager());
+        assertEquals(2, p1.items().size());
+        assertNotNull(p1.nextCursor());
+
+        var last = rows.get(1);
+        when(absenceRepo.findPendingPageAfter(last.getCreatedAt(), last.getId(), org.springframework.data.domain.Limit.of(3)))
+                .thenReturn(List.of(rows.get(2)));
+        var p2 = service.pending(p1.nextCursor(), 2, manager());
+        assertEquals(List.of(rows.get(2).getId()), p2.items().stream().map(AbsenceDtos.PendingItem::id).toList());
+        assertNull(p2.nextCursor());
+    }
+
+    @Test
+    void decideAll_reportsEachItem_andSavesOnlyTheValidOnes() {
+        var ok = samplePending(0);
+        var stale = samplePending(3);
+        var done = samplePending(1);
+        done.setStatus(AbsenceStatus.APPROVED);
+        var missing = UUID.randomUUID();
+        when(absenceRepo.findAllById(any())).thenReturn(List.of(ok, stale, done));
+
+        var out = service.decideAll(new AbsenceDtos.BulkDecisionReq(List.of(
+                new AbsenceDtos.BulkDecisionItem(ok.getId(), "\"0\"", AbsenceDtos.Decision.REJECT, "clash"),
+                new AbsenceDtos.BulkDecisionItem(stale.getId(), "\"2\"", AbsenceDtos.Decision.APPROVE, null),
+                new AbsenceDtos.BulkDecisionItem(done.getId(), "\"1\"", AbsenceDtos.Decision.APPROVE, null),
+                new AbsenceDtos.BulkDecisionItem(missing, "\"0\"", AbsenceDtos.Decision.APPROVE, null),
+                new AbsenceDtos.BulkDecisionItem(ok.getId(), "\"0\"", AbsenceDtos.Decision.APPROVE, null),
+                new AbsenceDtos.BulkDecisionItem(missing, null, null, null))), manager());
+
+        assertEquals(List.of(200, 409, 409, 404, 400, 400), out.stream().map(AbsenceDtos.BulkDecisionResult::status).toList());
+        assertEquals(AbsenceStatus.REJECTED, out.get(0).absence().status());
+        assertEquals("version_mismatch", out.get(1).error());
+        assertEquals("not_pending", out.get(2).error());
+        assertEquals("duplicate_item", out.get(4).error());
+        verify(absenceRepo).findAllById(any());
+        verify(absenceRepo).saveAll(argThat(rows -> rows != null && List.copyOf((java.util.Collection<?>) rows).equals(List.of(ok))));
+        assertEquals(AbsenceStatus.PENDING, stale.getStatus());
+    }
+
+    @Test
+    void decideAll_rejectsEmptyOrOversizedRequests() {
+        assertThrows(ResponseStatusException.class, () -> service.decideAll(new AbsenceDtos.BulkDecisionReq(List.of()), manager()));
+        var many = java.util.Collections.nCopies(101,
+                new AbsenceDtos.BulkDecisionItem(UUID.randomUUID(), "\"0\"", AbsenceDtos.Decision.APPROVE, null));
+        assertThrows(ResponseStatusException.class, () -> service.decideAll(new AbsenceDtos.BulkDecisionReq(many), manager()));
+        assertThrows(ResponseStatusException.class, () -> service.decideAll(
+                new AbsenceDtos.BulkDecisionReq(List.of(many.get(0))), owner(UUID.randomUUID())));
+    }
+
+    @Test
+    void availability_sweeps_clipped_spans_into_daily_counts() {
+        var from = LocalDate.parse("2025-03-03");
+        var to = LocalDate.parse("2025-03-09");
+        assertThrows(ResponseStatusException.class,
+                () -> service.availability(from, to, null, null, false, owner(UUID.randomUUID())));
+
+        when(employeeRepo.count()).thenReturn(4L);
+        when(absenceRepo.findSpansIntersecting(eq(from), eq(to), any(), eq(java.util.EnumSet.of(AbsenceStatus.APPROVED)),
+                eq(java.util.EnumSet.allOf(AbsenceType.class))))
+                .thenReturn(List.of(span("2025-02-20", "2025-03-04"), span("2025-03-04", "2025-03-06"), span("2025-03-09", "2025-03-20")));
+
+        var a = service.availability(from, to, null, null, false, manager());
+        assertEquals(4, a.headcount());
+        assertArrayEquals(new int[]{1, 2, 1, 1, 0, 0, 1}, a.absent());
+        assertArrayEquals(new int[]{3, 2, 3, 3, 4, 4, 3}, a.available());
+    }
+
+    @Test
+    void availability_of_a_team_matches_counting_day_by_day() {
+        var from = LocalDate.parse("2025-01-01");
+        var to = from.plusDays(89);
+        var rnd = new java.util.Random(7);
+        var team = java.util.stream.Stream.generate(UUID::randomUUID).limit(1000).toList();
+        var spans = new java.util.ArrayList<AbsenceRequestRepository.Span>();
+        for (var id : team) {
+            // a few disjoint absences each, some reaching outside the range
+            var d = from.minusDays(10);
+            while ((d = d.plusDays(rnd.nextInt(40))).isBefore(to.plusDays(10))) {
+                var end = d.plusDays(rnd.nextInt(7));
+                spans.add(new TestSpan(id, d, end));
+                d = end.plusDays(1);
+            }
+        }
+        when(employeeRepo.countByIdIn(any())).thenReturn(1000L);
+        when(absenceRepo.findSpansIntersectingOf(eq(java.util.Set.copyOf(team)), eq(from), eq(to), any(),
+                eq(AbsenceOverlapGuard.ACTIVE), eq(List.of(AbsenceType.VACATION)))).thenReturn(spans);
+
+        var a = service.availability(from, to, List.of(AbsenceType.VACATION), team, true, manager());
+
+        for (int i = 0; i < 90; i++) {
+            var day = from.plusDays(i);
+            long expected = spans.stream().filter(s -> !s.getStartDate().isAfter(day) && !s.getEndDate().isBefore(day)).count();
+            assertEquals(expected, a.absent()[i], day.toString());
+            assertEquals(1000 - expected, a.available()[i]);
+        }
+        assertThrows(ResponseStatusException.class, () -> service.availability(from, to, null,
+                java.util.stream.Stream.generate(UUID::randomUUID).limit(1001).toList(), false, manager()));
+    }
+
+    private record TestSpan(UUID employeeId, LocalDate start, LocalDate end) implements AbsenceRequestRepository.Span {
+        public UUID getId() { return null; }
+        public UUID getEmployeeId() { return employeeId; }
+        public LocalDate getStartDate() { return start; }
+        public LocalDate getEndDate() { return end; }
+    }
+
+    private static AbsenceRequestRepository.Span span(String start, String end) {
+        return new TestSpan(UUID.randomUUID(), LocalDate.parse(start), LocalDate.parse(end));
+    }
+
+    private static AbsenceRequestRepository.PendingRow pendingRow(UUID id, java.time.Instant createdAt) {
+        var r = mock(AbsenceRequestRepository.PendingRow.class);
+        when(r.getId()).thenReturn(id);
+        when(r.getCreatedAt()).thenReturn(createdAt);
+        when(r.getFirstName()).thenReturn("Bob");
+        when(r.getLastName()).thenReturn("B");
+        return r;
+    }
+
+    private static AbsenceRequest withId(AbsenceRequest a) {
+        if (a.getId() == null) setId(a, UUID.randomUUID());
+        return a;
+    }
+
+    private static void setId(AbsenceRequest a, UUID id) {
+        try {
+            var idF = AbsenceRequest.class.getDeclaredField("id");
+            idF.setAccessible(true);
+            idF.set(a, id);
+        } catch (Exception ignored) {}
     }
 
     private AbsenceRequest samplePending(int version) {
@@ -0,0 +1,153 @@
+package com.newwork.core.service;
+
+import com.newwork.core.ai.HfModelRouter;
+import com.newwork.core.ai.HfRateLimitProps;
+import com.newwork.core.ai.HfRateLimiter;
+import com.newwork.core.ai.HfRoutingProps;
+import com.newwork.core.config.FeedbackBackfillProps;
+import com.newwork.core.domain.BackfillCheckpoint;
+import com.newwork.core.domain.BackfillState;
+import com.newwork.core.domain.Feedback;
+import com.newwork.core.repo.BackfillCheckpointRepository;
+import com.newwork.core.repo.FeedbackRepository;
+import com.newwork.core.security.Role;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.impl.DefaultFeedbackBackfillService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class DefaultFeedbackBackfillServiceTest {
+
+    private record Row(UUID id, String textOriginal, String polishModel) implements FeedbackRepository.BackfillRow {
+        @Override public UUID getId() { return id; }
+        @Override public String getTextOriginal() { return textOriginal; }
+        @Override public String getPolishModel() { return polishModel; }
+    }
+
+    @Test
+    void rows_polished_by_any_pool_member_are_left_out_of_the_batch() throws Exception {
+        var feedbackRepo = mock(FeedbackRepository.class);
+        var checkpoints = mock(BackfillCheckpointRepository.class);
+        var stored = new AtomicReference<BackfillCheckpoint>();
+        when(checkpoints.findById(any())).thenAnswer(inv -> Optional.ofNullable(stored.get()));
+        when(checkpoints.save(any())).thenAnswer(inv -> { stored.set(inv.getArgument(0)); return inv.getArgument(0); });
+
+        var stale = new Row(UUID.randomUUID(), "c", "retired");
+        when(feedbackRepo.findBackfillFirstBatch(anyCollection(), any())).thenReturn(List.of(stale));
+        when(feedbackRepo.findBackfillBatchAfter(any(), anyCollection(), any())).thenReturn(List.of());
+        when(feedbackRepo.findAllById(any())).thenAnswer(inv -> {
+            var out = new ArrayList<Feedback>();
+            for (UUID id : (Iterable<UUID>) inv.getArgument(0)) { var f = new Feedback(); f.setId(id); out.add(f); }
+            return out;
+        });
+
+        var ai = mock(AiPolishService.class);
+        when(ai.modelId()).thenReturn("primary");
+        when(ai.polishWithModel(any())).thenReturn(new AiPolishService.Polished("C.", "primary"));
+
+        var routing = new HfRoutingProps();
+        routing.setModels(List.of("backup"));
+        var meters = new SimpleMeterRegistry();
+        var props = new FeedbackBackfillProps();
+        props.setPermitsPerSecond(1000);
+        var service = new DefaultFeedbackBackfillService(feedbackRepo, checkpoints, ai,
+                new HfModelRouter("primary", routing, meters), new HfRateLimiter(new HfRateLimitProps(), meters),
+                props, mock(PlatformTransactionManager.class));
+
+        service.start(new UserPrincipal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID()));
+        for (int i = 0; i < 200 && stored.get().getState() == BackfillState.RUNNING; i++) Thread.sleep(10);
+
+        assertEquals(BackfillState.DONE, stored.get().getState());
+        verify(ai, times(1)).polishWithModel("c");
+        verify(feedbackRepo).findBackfillFirstBatch(argThat(skip -> skip.containsAll(List.of("primary", "backup"))), any());
+        assertEquals(stale.id(), stored.get().getLastId());
+        assertEquals(1, stored.get().getUpdated());
+    }
+
+    private DefaultFeedbackBackfillService service(FeedbackRepository feedbackRepo, AtomicReference<BackfillCheckpoint> stored,
+                                                   AiPolishService ai) {
+        var checkpoints = mock(BackfillCheckpointRepository.class);
+        when(checkpoints.findById(any())).thenAnswer(inv -> Optional.ofNullable(stored.get()));
+        when(checkpoints.save(any())).thenAnswer(inv -> { stored.set(inv.getArgument(0)); return inv.getArgument(0); });
+        when(feedbackRepo.findAllById(any())).thenAnswer(inv -> {
+            var out = new ArrayList<Feedback>();
+            for (UUID id : (Iterable<UUID>) inv.getArgument(0)) { var f = new Feedback(); f.setId(id); out.add(f); }
+            return out;
+        });
+        when(ai.modelId()).thenReturn("primary");
+        var meters = new SimpleMeterRegistry();
+        var props = new FeedbackBackfillProps();
+        props.setPermitsPerSecond(1000);
+        props.setConcurrency(1);
+        return new DefaultFeedbackBackfillService(feedbackRepo, checkpoints, ai,
+                new HfModelRouter("primary", new HfRoutingProps(), meters), new HfRateLimiter(new HfRateLimitProps(), meters),
+                props, mock(PlatformTransactionManager.class));
+    }
+
+    private static void awaitStop(AtomicReference<BackfillCheckpoint> stored) throws InterruptedException {
+        for (int i = 0; i < 200 && stored.get().getState() == BackfillState.RUNNING; i++) Thread.sleep(10);
+    }
+
+    @Test
+    void a_row_that_fails_once_is_retried_before_the_checkpoint_moves_past_it() throws Exception {
+        var feedbackRepo = mock(FeedbackRepository.class);
+        var stored = new AtomicReference<BackfillCheckpoint>();
+        var a = new Row(new UUID(0, 1), "a", "retired");
+        var b = new Row(new UUID(0, 2), "b", "retired");
+        var c = new Row(new UUID(0, 3), "c", "retired");
+        when(feedbackRepo.findBackfillFirstBatch(anyCollection(), any())).thenReturn(List.of(a, b, c));
+        // after the failure the walk resumes behind a; c is current now, so only b comes back
+        when(feedbackRepo.findBackfillBatchAfter(eq(a.id()), anyCollection(), any())).thenReturn(List.of(b));
+        when(feedbackRepo.findBackfillBatchAfter(eq(b.id()), anyCollection(), any())).thenReturn(List.of());
+
+        var ai = mock(AiPolishService.class);
+        when(ai.polishWithModel(any())).thenAnswer(inv -> new AiPolishService.Polished(inv.getArgument(0) + ".", "primary"));
+        when(ai.polishWithModel("b")).thenThrow(new IllegalStateException("hf_timeout")).thenReturn(new AiPolishService.Polished("b.", "primary"));
+
+        service(feedbackRepo, stored, ai).start(new UserPrincipal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID()));
+        awaitStop(stored);
+
+        assertEquals(BackfillState.DONE, stored.get().getState());
+        verify(ai, times(2)).polishWithModel("b");
+        assertEquals(b.id(), stored.get().getLastId());
+        assertEquals(3, stored.get().getProcessed());
+        assertEquals(3, stored.get().getUpdated());
+        assertEquals(1, stored.get().getFailed());
+    }
+
+    @Test
+    void a_row_that_keeps_failing_stops_the_job_in_front_of_it() throws Exception {
+        var feedbackRepo = mock(FeedbackRepository.class);
+        var stored = new AtomicReference<BackfillCheckpoint>();
+        var a = new Row(new UUID(0, 1), "a", "retired");
+        var b = new Row(new UUID(0, 2), "b", "retired");
+        var c = new Row(new UUID(0, 3), "c", "retired");
+        var d = new Row(new UUID(0, 4), "d", "retired");
+        when(feedbackRepo.findBackfillFirstBatch(anyCollection(), any())).thenReturn(List.of(a, b));
+        // each retry batch brings the stuck row plus one the walk has not reached yet
+        when(feedbackRepo.findBackfillBatchAfter(eq(a.id()), anyCollection(), any())).thenReturn(List.of(b, c), List.of(b, d));
+
+        var ai = mock(AiPolishService.class);
+        when(ai.polishWithModel(any())).thenAnswer(inv -> new AiPolishService.Polished(inv.getArgument(0) + ".", "primary"));
+        when(ai.polishWithModel("b")).thenThrow(new IllegalStateException("input_too_long"));
+
+        service(feedbackRepo, stored, ai).start(new UserPrincipal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID()));
+        awaitStop(stored);
+
+        assertEquals(BackfillState.FAILED, stored.get().getState());
+        assertEquals(a.id(), stored.get().getLastId());
+        assertTrue(stored.get().getLastError().contains(b.id().toString()), stored.get().getLastError());
+        // the first try, then the retries up to the default limit; the rows around it were still written
+        verify(ai, times(3)).polishWithModel("b");
+        assertEquals(3, stored.get().getUpdated());
+        assertEquals(3, stored.get().getFailed());
+    }
+}
@@ -1,23 +1,35 @@
 package com.newwork.core.service;
 
+import com.newwork.core.config.FeedbackCleanCheckProps;
+import com.newwork.core.config.FeedbackDedupProps;
 import com.newwork.core.domain.Employee;
 import com.newwork.core.domain.Feedback;
 import com.newwork.core.repo.EmployeeRepository;
 import com.newwork.core.repo.FeedbackRepository;
 import com.newwork.core.security.Role;
 import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.impl.CleanTextClassifier;
 import com.newwork.core.service.impl.DefaultFeedbackService;
+import com.newwork.core.service.impl.NearDuplicateIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class DefaultFeedbackServiceTest {
@@ -25,6 +37,7 @@ class DefaultFeedbackServiceTest {
     EmployeeRepository employeeRepo;
     FeedbackRepository feedbackRepo;
     AiPolishService ai;
+    FeedbackSummaryService summaries;
     FeedbackService service;
 
     UUID empId, authorEmpId;
@@ -34,21 +47,33 @@ class DefaultFeedbackServiceTest {
         employeeRepo = mock(EmployeeRepository.class);
         feedbackRepo = mock(FeedbackRepository.class);
         ai = mock(AiPolishService.class);
-        service = new DefaultFeedbackService(employeeRepo, feedbackRepo, ai);
+        summaries = mock(FeedbackSummaryService.class);
+        service = newService(new FeedbackCleanCheckProps());
         empId = UUID.randomUUID();
         authorEmpId = UUID.randomUUID();
         var e = new Employee(); e.setId(empId);
         when(employeeRepo.findById(empId)).thenReturn(Optional.of(e));
     }
 
+    private FeedbackService newService(FeedbackCleanCheckProps cleanCheck) {
+        return newService(cleanCheck, 80_000);
+    }
+
+    private FeedbackService newService(FeedbackCleanCheckProps cleanCheck, long polishTimeoutMs) {
+        var meters = new SimpleMeterRegistry();
+        return new DefaultFeedbackService(employeeRepo, feedbackRepo, ai,
+                new NearDuplicateIndex(new FeedbackDedupProps(), feedbackRepo, mock(PlatformTransactionManager.class), meters),
+                new CleanTextClassifier(cleanCheck, meters), summaries, polishTimeoutMs);
+    }
+
     private static UserPrincipal principal(UUID userId, Role role, UUID employeeId) {
         return new UserPrincipal(userId, role, employeeId);
     }
 
     @Test
     void create_coworker_polishes_and_saves() {
-        when(ai.polish("typo sentnce")).thenReturn("Typo sentence.");
-        when(ai.modelId()).thenReturn("vennify/t5-base-grammar-correction");
+        when(ai.polishAsync("typo sentnce")).thenReturn(CompletableFuture.completedFuture(
+                new AiPolishService.Polished("Typo sentence.", "vennify/t5-base-grammar-correction")));
         when(feedbackRepo.save(any())).thenAnswer(inv -> {
             Feedback f = inv.getArgument(0);
             f.setId(UUID.randomUUID());
@@ -59,7 +84,7 @@ class DefaultFeedbackServiceTest {
                 empId,
                 new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq("typo sentnce"),
                 principal(UUID.randomUUID(), Role.COWORKER, authorEmpId)
-        );
+        ).join();
 
         assertEquals("Typo sentence.", out.textPolished());
         assertEquals("vennify/t5-base-grammar-correction", out.polishModel());
@@ -68,6 +93,77 @@ class DefaultFeedbackServiceTest {
         verify(feedbackRepo).save(cap.capture());
         assertEquals("typo sentnce", cap.getValue().getTextOriginal());
         assertEquals(authorEmpId, cap.getValue().getAuthorEmployeeId());
+        verify(summaries).feedbackAdded(empId);
+    }
+
+    @Test
+    void create_resubmission_reuses_stored_polish_and_an_edit_is_polished_again() {
+        var firstText = "Bob was very helpful during the migration and he explain the new deploy process to the whole team";
+        var sameText = "bob was very helpful during the migration and he explain the new deploy  process to the whole team";
+        var editText = "Bob was very helpful during the migration and he explain the new release process to the whole team";
+        when(ai.polishAsync(firstText)).thenReturn(CompletableFuture.completedFuture(new AiPolishService.Polished(
+                "Bob was very helpful during the migration, and he explained the new deploy process to the whole team.", "m1")));
+        when(ai.polishAsync(editText)).thenReturn(CompletableFuture.completedFuture(new AiPolishService.Polished(
+                "Bob was very helpful during the migration, and he explained the new release process to the whole team.", "m2")));
+        var saved = new java.util.LinkedHashMap<UUID, Feedback>();
+        when(feedbackRepo.save(any())).thenAnswer(inv -> {
+            Feedback f = inv.getArgument(0);
+            f.setId(UUID.randomUUID());
+            saved.put(f.getId(), f);
+            return f;
+        });
+        when(feedbackRepo.findAllById(any())).thenAnswer(inv -> {
+            var out = new java.util.ArrayList<Feedback>();
+            for (UUID id : inv.<Iterable<UUID>>getArgument(0)) if (saved.containsKey(id)) out.add(saved.get(id));
+            return out;
+        });
+        var p = principal(UUID.randomUUID(), Role.COWORKER, authorEmpId);
+
+        service.createForEmployee(empId, new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq(firstText), p).join();
+        var same = service.createForEmployee(empId, new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq(sameText), p).join();
+        var edit = service.createForEmployee(empId, new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq(editText), p).join();
+
+        assertEquals("Bob was very helpful during the migration, and he explained the new deploy process to the whole team.",
+                same.textPolished());
+        assertEquals("m1", same.polishModel());
+        // never a stored polish patched with raw words
+        assertEquals("Bob was very helpful during the migration, and he explained the new release process to the whole team.",
+                edit.textPolished());
+        assertEquals("m2", edit.polishModel());
+        verify(ai, times(2)).polishAsync(any());
+    }
+
+    @Test
+    void create_polish_past_the_deadline_answers_504_cancels_the_attempt_and_saves_nothing() {
+        service = newService(new FeedbackCleanCheckProps(), 50);
+        var polish = new CompletableFuture<AiPolishService.Polished>();
+        when(ai.polishAsync("typo sentnce")).thenReturn(polish);
+
+        var out = service.createForEmployee(empId,
+                new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq("typo sentnce"),
+                principal(UUID.randomUUID(), Role.COWORKER, authorEmpId));
+
+        var ex = assertThrows(CompletionException.class, out::join);
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, ((ResponseStatusException) ex.getCause()).getStatusCode());
+        assertTrue(polish.isCancelled());
+        polish.complete(new AiPolishService.Polished("Typo sentence.", "m1"));
+        verify(feedbackRepo, never()).save(any());
+    }
+
+    @Test
+    void create_clean_text_is_stored_as_written_without_a_model_call() {
+        var props = new FeedbackCleanCheckProps();
+        props.setShadow(false);
+        service = newService(props);
+        when(feedbackRepo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        var p = principal(UUID.randomUUID(), Role.COWORKER, authorEmpId);
+
+        var text = "Bob explained the new deploy process clearly. The whole team benefited from it.";
+        var out = service.createForEmployee(empId, new com.newwork.core.web.dto.FeedbackDtos.CreateFeedbackReq(text), p).join();
+
+        assertEquals(text, out.textPolished());
+        assertEquals(CleanTextClassifier.MARKER, out.polishModel());
+        verify(ai, never()).polishAsync(any());
     }
 
     @Test
@@ -81,17 +177,18 @@ class DefaultFeedbackServiceTest {
 
     @Test
     void list_owner_allowed() {
-        when(feedbackRepo.findByEmployeeIdOrderByCreatedAtDesc(empId)).thenReturn(List.of());
+        when(feedbackRepo.findByEmployeeIdOrderByCreatedAtDescIdDesc(eq(empId), any())).thenReturn(List.of());
         var p = principal(UUID.randomUUID(), Role.EMPLOYEE, empId);
-        var out = service.listForEmployee(empId, p);
+        var out = service.listForEmployee(empId, null, null, false, p);
         assertNotNull(out);
+        assertNull(out.nextCursor());
     }
 
     @Test
     void list_manager_allowed() {
-        when(feedbackRepo.findByEmployeeIdOrderByCreatedAtDesc(empId)).thenReturn(List.of());
+        when(feedbackRepo.findByEmployeeIdOrderByCreatedAtDescIdDesc(eq(empId), any())).thenReturn(List.of());
         var p = principal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID());
-        var out = service.listForEmployee(empId, p);
+        var out = service.listForEmployee(empId, null, null, false, p);
         assertNotNull(out);
     }
 
@@ -99,10 +196,50 @@ class DefaultFeedbackServiceTest {
     void list_coworker_forbidden() {
         var p = principal(UUID.randomUUID(), Role.COWORKER, authorEmpId);
         var ex = assertThrows(ResponseStatusException.class, () ->
-                service.listForEmployee(empId, p));
+                service.listForEmployee(empId, null, null, false, p));
         assertEquals(403, ex.getStatusCode().value());
     }
 
+    @Test
+    void list_full_page_returns_cursor_of_last_row_and_follows_it() {
+        var newer = feedback(Instant.parse("2025-10-02T10:00:00Z"));
+        var older = feedback(Instant.parse("2025-10-01T10:00:00Z"));
+        when(feedbackRepo.findByEmployeeIdOrderByCreatedAtDescIdDesc(empId, Limit.of(2)))
+                .thenReturn(List.of(newer, older));
+        var p = principal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID());
+
+        var first = service.listForEmployee(empId, null, 1, false, p);
+
+        assertEquals(1, first.items().size());
+        assertEquals(newer.getId(), first.items().getFirst().id());
+        assertNotNull(first.nextCursor());
+
+        when(feedbackRepo.findPageAfter(empId, newer.getCreatedAt(), newer.getId(), Limit.of(2)))
+                .thenReturn(List.of(older));
+        var second = service.listForEmployee(empId, first.nextCursor(), 1, false, p);
+        assertEquals(older.getId(), second.items().getFirst().id());
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    void list_bad_cursor_bad_request() {
+        var p = principal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID());
+        var ex = assertThrows(ResponseStatusException.class, () ->
+                service.listForEmployee(empId, "not-a-cursor", null, false, p));
+        assertEquals(400, ex.getStatusCode().value());
+    }
+
+    private Feedback feedback(Instant createdAt) {
+        var f = new Feedback();
+        f.setId(UUID.randomUUID());
+        f.setAuthorEmployeeId(authorEmpId);
+        f.setTextOriginal("orig");
+        f.setTextPolished("Polished.");
+        f.setPolishModel("m");
+        f.setCreatedAt(createdAt);
+        return f;
+    }
+
     @Test
     void create_missing_text_bad_request() {
         var p = principal(UUID.randomUUID(), Role.COWORKER, authorEmpId);
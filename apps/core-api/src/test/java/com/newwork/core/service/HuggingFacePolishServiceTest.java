@@ -1,8 +1,13 @@
 package com.newwork.core.service;
 
+import com.newwork.core.ai.HfChunkingProps;
 import com.newwork.core.ai.HfClient;
+import com.newwork.core.ai.HfColdStartProps;
+import com.newwork.core.ai.HfModelRouter;
 import com.newwork.core.ai.HfRetryProps;
+import com.newwork.core.ai.HfRoutingProps;
 import com.newwork.core.service.impl.HuggingFacePolishService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.client.RestClientResponseException;
 
@@ -11,11 +16,21 @@ import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class HuggingFacePolishServiceTest {
+    static final String MODEL = "vennify/t5-base-grammar-correction";
+
+    private static HfModelRouter router(String... extraModels) {
+        var props = new HfRoutingProps();
+        props.setModels(List.of(extraModels));
+        return new HfModelRouter(MODEL, props, new SimpleMeterRegistry());
+    }
 
     @Test
     void retries_then_succeeds() {
@@ -27,31 +42,53 @@ class HuggingFacePolishServiceTest {
         props.setMaxDelayMs(2);
         props.setJitterMs(0);
 
-        var svc = new HuggingFacePolishService("vennify/t5-base-grammar-correction", "hf_token", client, props);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
 
         var ex429 = new RestClientResponseException("429", 429, "Too Many", null, new byte[0], StandardCharsets.UTF_8);
-        when(client.infer(any(), any(), any()))
+        when(client.infer(any(), any(), any(), anyBoolean()))
                 .thenThrow(ex429) // attempt 1
                 .thenThrow(ex429) // attempt 2
                 .thenReturn(List.of(Map.of("generated_text", "Fixed."))); // attempt 3
 
         String out = svc.polish("bad txt");
         assertEquals("Fixed.", out);
-        verify(client, times(3)).infer(any(), any(), any());
+        verify(client, times(3)).infer(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void throttled_calls_do_not_spend_attempts_but_are_bounded() {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setMaxAttempts(1);
+        props.setMaxThrottleRetries(2);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var ex429 = new RestClientResponseException("429", 429, "Too Many", null, new byte[0], StandardCharsets.UTF_8);
+        when(client.infer(any(), any(), any(), anyBoolean()))
+                .thenThrow(ex429)
+                .thenThrow(ex429)
+                .thenReturn(List.of(Map.of("generated_text", "Fixed.")));
+        assertEquals("Fixed.", svc.polish("bad txt"));
+
+        reset(client);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenThrow(ex429);
+        var ex = assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("x"));
+        assertEquals(429, ex.getStatusCode().value());
+        verify(client, times(3)).infer(any(), any(), any(), anyBoolean());
     }
 
     @Test
     void nonRetryable_400_bubbles_immediately() {
         HfClient client = mock(HfClient.class);
         HfRetryProps props = new HfRetryProps();
-        var svc = new HuggingFacePolishService("vennify/t5-base-grammar-correction", "hf_token", client, props);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
 
         var ex400 = new RestClientResponseException("400", 400, "Bad Request", null, new byte[0], StandardCharsets.UTF_8);
-        when(client.infer(any(), any(), any())).thenThrow(ex400);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenThrow(ex400);
 
         var ex = assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("x"));
         assertEquals(400, ex.getStatusCode().value());
-        verify(client, times(1)).infer(any(), any(), any());
+        verify(client, times(1)).infer(any(), any(), any(), anyBoolean());
     }
 
     @Test
@@ -64,13 +101,164 @@ class HuggingFacePolishServiceTest {
         props.setMaxDelayMs(2);
         props.setJitterMs(0);
 
-        var svc = new HuggingFacePolishService("vennify/t5-base-grammar-correction", "hf_token", client, props);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
 
         var ex503 = new RestClientResponseException("503", 503, "Service Unavailable", null, new byte[0], StandardCharsets.UTF_8);
-        when(client.infer(any(), any(), any())).thenThrow(ex503).thenThrow(ex503);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenThrow(ex503).thenThrow(ex503);
 
         var ex = assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("x"));
         assertEquals(503, ex.getStatusCode().value()); // last non-retryable return is 503 path
-        verify(client, times(2)).infer(any(), any(), any());
+        verify(client, times(2)).infer(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void failing_model_is_ejected_and_traffic_moves_to_the_pool() {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setMaxAttempts(2);
+        props.setInitialDelayMs(1);
+        props.setJitterMs(0);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router("backup/model"), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var ex503 = new RestClientResponseException("503", 503, "Service Unavailable", null, new byte[0], StandardCharsets.UTF_8);
+        when(client.infer(eq(MODEL), any(), any(), anyBoolean())).thenThrow(ex503);
+        when(client.infer(eq("backup/model"), any(), any(), anyBoolean())).thenReturn(List.of(Map.of("generated_text", "Fixed.")));
+
+        for (int i = 0; i < 10; i++) {
+            var out = svc.polishWithModel("bad txt");
+            assertEquals("Fixed.", out.text());
+            assertEquals("backup/model", out.model());
+        }
+        // ejected after consecutive failures, so the primary stops being hit
+        verify(client, atMost(3)).infer(eq(MODEL), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void quota_rejections_do_not_eject_pool_members() {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setMaxThrottleRetries(10);
+        var meters = new SimpleMeterRegistry();
+        var routing = new HfRoutingProps();
+        routing.setModels(List.of("backup/model"));
+        var router = new HfModelRouter(MODEL, routing, meters);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router, new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var ex429 = new RestClientResponseException("429", 429, "Too Many", null, new byte[0], StandardCharsets.UTF_8);
+        when(client.infer(any(), any(), any(), anyBoolean()))
+                .thenThrow(ex429, ex429, ex429, ex429, ex429)
+                .thenReturn(List.of(Map.of("generated_text", "Fixed.")));
+
+        assertEquals("Fixed.", svc.polish("bad txt"));
+        assertEquals(0.0, meters.counter("hf.route.ejected", "model", MODEL).count());
+        assertEquals(0.0, meters.counter("hf.route.ejected", "model", "backup/model").count());
+    }
+
+    @Test
+    void long_input_is_polished_per_sentence_in_parallel_and_reassembled_in_order() {
+        HfClient client = mock(HfClient.class);
+        var chunking = new HfChunkingProps();
+        chunking.setThresholdChars(40);
+        chunking.setMaxChunkChars(30);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, new HfRetryProps(), router(), chunking, new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var started = new java.util.concurrent.CountDownLatch(3);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenAnswer(inv -> {
+            String in = inv.getArgument(2);
+            started.countDown();
+            // only returns once all three chunks are in flight together
+            started.await(5, java.util.concurrent.TimeUnit.SECONDS);
+            return List.of(Map.of("generated_text", in.toUpperCase()));
+        });
+
+        var input = "First sentence here. Second one is here.\nThird and last one.";
+        var out = svc.polishWithModel(input);
+        assertEquals("FIRST SENTENCE HERE. SECOND ONE IS HERE.\nTHIRD AND LAST ONE.", out.text());
+        assertEquals(MODEL, out.model());
+        assertEquals(1, out.modelCount());
+        verify(client, times(3)).infer(any(), any(), any(), anyBoolean());
+        assertEquals(0, started.getCount());
+
+        // repeated sentences come from the chunk cache
+        svc.polishWithModel(input);
+        verify(client, times(3)).infer(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void model_loading_503_retries_with_wait_for_model_without_spending_attempts() {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setMaxAttempts(1);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var loading = new RestClientResponseException("503", 503, "Service Unavailable", null,
+                "{\"error\":\"Model is currently loading\",\"estimated_time\":20.0}".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8);
+        doThrow(loading).when(client).infer(any(), any(), any(), eq(false));
+        doReturn(List.of(Map.of("generated_text", "Fixed."))).when(client).infer(any(), any(), any(), eq(true));
+
+        assertEquals("Fixed.", svc.polish("bad txt"));
+        verify(client).infer(any(), any(), any(), eq(true));
+    }
+
+    @Test
+    void model_loading_gives_up_after_the_load_budget() {
+        HfClient client = mock(HfClient.class);
+        var cold = new HfColdStartProps();
+        cold.setWaitForModel(false);
+        cold.setMaxLoadRetries(2);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, new HfRetryProps(), router(), new HfChunkingProps(), cold, new SimpleMeterRegistry());
+
+        var loading = new RestClientResponseException("503", 503, "Service Unavailable", null,
+                "{\"error\":\"Model is currently loading\",\"estimated_time\":0.001}".getBytes(StandardCharsets.UTF_8),
+                StandardCharsets.UTF_8);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenThrow(loading);
+
+        var ex = assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("x"));
+        assertEquals(503, ex.getStatusCode().value());
+        assertEquals("hf_model_loading", ex.getReason());
+        verify(client, times(3)).infer(any(), any(), any(), eq(false));
+    }
+
+    @Test
+    void polishAsync_returns_at_once_and_retries_from_a_timer() throws Exception {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setInitialDelayMs(300);
+        props.setJitterMs(0);
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), new SimpleMeterRegistry());
+
+        var ex503 = new RestClientResponseException("503", 503, "Service Unavailable", null, new byte[0], StandardCharsets.UTF_8);
+        when(client.infer(any(), any(), any(), anyBoolean()))
+                .thenThrow(ex503)
+                .thenReturn(List.of(Map.of("generated_text", "Fixed.")));
+
+        var f = svc.polishAsync("bad txt");
+        // the caller is not held through the backoff
+        assertFalse(f.isDone());
+        assertEquals("Fixed.", f.get(5, java.util.concurrent.TimeUnit.SECONDS).text());
+        verify(client, times(2)).infer(any(), any(), any(), anyBoolean());
+    }
+
+    @Test
+    void retries_stop_when_the_global_budget_is_spent() {
+        HfClient client = mock(HfClient.class);
+        HfRetryProps props = new HfRetryProps();
+        props.setInitialDelayMs(1);
+        props.setJitterMs(0);
+        props.setBudgetRatio(0);
+        props.setBudgetMax(1);
+        props.setBudgetMinPerSecond(0);
+        var meters = new SimpleMeterRegistry();
+        var svc = new HuggingFacePolishService(MODEL, "hf_token", client, props, router(), new HfChunkingProps(), new HfColdStartProps(), meters);
+
+        var ex503 = new RestClientResponseException("503", 503, "Service Unavailable", null, new byte[0], StandardCharsets.UTF_8);
+        when(client.infer(any(), any(), any(), anyBoolean())).thenThrow(ex503);
+
+        // the one budgeted retry is used by the first request, the second fails on its first error
+        assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("a"));
+        assertThrows(org.springframework.web.server.ResponseStatusException.class, () -> svc.polish("b"));
+        verify(client, times(3)).infer(any(), any(), any(), anyBoolean());
+        assertEquals(2.0, meters.counter("hf.retry.budget_exhausted").count());
     }
 }
@@ -0,0 +1,26 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.FeedbackSummaryProps;
+import com.newwork.core.service.impl.LocalFeedbackSummarizer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFeedbackSummarizerTest {
+
+    @Test
+    void folds_items_and_keeps_the_most_recurring_sentences_in_order() {
+        var props = new FeedbackSummaryProps();
+        props.setMaxSentences(2);
+        var s = new LocalFeedbackSummarizer(props);
+
+        var sum = s.fold("", "Bob ships releases quickly.");
+        sum = s.fold(sum, "Lunch was nice.");
+        assertEquals("Bob ships releases quickly. Lunch was nice.", sum);
+
+        sum = s.fold(sum, "Releases from Bob are quick and careful.");
+        assertEquals(2, sum.split("(?<=\\.) ").length);
+        assertTrue(sum.startsWith("Bob ships releases quickly."));
+        assertFalse(sum.contains("Lunch"));
+    }
+}
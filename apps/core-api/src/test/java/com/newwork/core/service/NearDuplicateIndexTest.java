@@ -0,0 +1,105 @@
+package com.newwork.core.service;
+
+import com.newwork.core.config.FeedbackDedupProps;
+import com.newwork.core.domain.Employee;
+import com.newwork.core.domain.Feedback;
+import com.newwork.core.repo.FeedbackRepository;
+import com.newwork.core.service.impl.NearDuplicateIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NearDuplicateIndexTest {
+
+    private record Row(UUID id, UUID employeeId, UUID authorEmployeeId, String textOriginal) implements FeedbackRepository.OriginalRow {
+        @Override public UUID getId() { return id; }
+        @Override public UUID getEmployeeId() { return employeeId; }
+        @Override public UUID getAuthorEmployeeId() { return authorEmployeeId; }
+        @Override public String getTextOriginal() { return textOriginal; }
+    }
+
+    @Test
+    void rebuild_streams_rows_and_keeps_the_newest_per_pair() {
+        var repo = mock(FeedbackRepository.class);
+        var props = new FeedbackDedupProps();
+        props.setPerKey(1);
+        UUID emp = UUID.randomUUID(), author = UUID.randomUUID();
+        var newest = new Row(UUID.randomUUID(), emp, author, "she shipped the billing migration two weeks early");
+        var older = new Row(UUID.randomUUID(), emp, author, "she shipped the billing migration two weeks late");
+        // newest first, as the query orders them
+        when(repo.streamRecentOriginals(any())).thenReturn(Stream.of(newest, older));
+        var f = new Feedback();
+        f.setId(newest.id());
+        f.setTextOriginal(newest.textOriginal());
+        f.setTextPolished("She shipped the billing migration two weeks early.");
+        f.setPolishModel("m");
+        when(repo.findAllById(List.of(newest.id()))).thenReturn(List.of(f));
+
+        var index = new NearDuplicateIndex(props, repo, mock(PlatformTransactionManager.class), new SimpleMeterRegistry());
+        index.rebuild();
+
+        var reuse = index.tryReuse(emp, author, "she shipped the billing migration two weeks early").orElseThrow();
+        assertEquals(newest.id(), reuse.sourceId());
+        // only the newest of the pair was kept
+        verify(repo).findAllById(List.of(newest.id()));
+    }
+
+    private static Feedback feedback(UUID employeeId, UUID authorId, String original, String polished) {
+        var employee = new Employee();
+        employee.setId(employeeId);
+        var f = new Feedback();
+        f.setId(UUID.randomUUID());
+        f.setEmployee(employee);
+        f.setAuthorEmployeeId(authorId);
+        f.setTextOriginal(original);
+        f.setTextPolished(polished);
+        f.setPolishModel("m");
+        return f;
+    }
+
+    @Test
+    void reuses_only_the_same_text_and_checks_every_candidate_not_just_the_closest() {
+        var repo = mock(FeedbackRepository.class);
+        var meters = new SimpleMeterRegistry();
+        var index = new NearDuplicateIndex(new FeedbackDedupProps(), repo, mock(PlatformTransactionManager.class), meters);
+        UUID emp = UUID.randomUUID(), author = UUID.randomUUID();
+        var edited = feedback(emp, author, "She shipped the billing migration two weeks early, well done",
+                "She shipped the billing migration two weeks early. Well done!");
+        var same = feedback(emp, author, "She shipped the billing  migration two weeks early, great work",
+                "She shipped the billing migration two weeks early. Great work!");
+        index.record(edited);
+        index.record(same);
+        // the closer, edited row comes back first
+        when(repo.findAllById(any())).thenReturn(List.of(edited, same));
+
+        var reuse = index.tryReuse(emp, author, "she shipped the billing migration two weeks early, great work").orElseThrow();
+
+        assertEquals(same.getId(), reuse.sourceId());
+        assertEquals("She shipped the billing migration two weeks early. Great work!", reuse.polished());
+    }
+
+    @Test
+    void an_edited_resubmission_is_counted_but_goes_to_the_model() {
+        var repo = mock(FeedbackRepository.class);
+        var meters = new SimpleMeterRegistry();
+        var index = new NearDuplicateIndex(new FeedbackDedupProps(), repo, mock(PlatformTransactionManager.class), meters);
+        UUID emp = UUID.randomUUID(), author = UUID.randomUUID();
+        var earlier = feedback(emp, author, "Alice led the Q3 planning well and kept every team aligned on the goals, the risks and the dates for the whole quarter",
+                "Alice led the Q3 planning well and kept every team aligned on the goals, the risks and the dates for the whole quarter.");
+        index.record(earlier);
+        when(repo.findAllById(any())).thenReturn(List.of(earlier));
+
+        assertTrue(index.tryReuse(emp, author, "Alice led the Q4 planning well and kept every team aligned on the goals, the risks and the dates for the whole quarter")
+                .isEmpty());
+        assertEquals(1.0, meters.counter("feedback.dedup.candidates").count());
+        assertEquals(0.0, meters.counter("feedback.dedup.reused").count());
+    }
+}
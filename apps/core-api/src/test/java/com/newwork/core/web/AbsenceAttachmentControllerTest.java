@@ -0,0 +1,123 @@
+package com.newwork.core.web;
+
+import com.newwork.core.security.JwtAuthFilter;
+import com.newwork.core.security.JwtUtil;
+import com.newwork.core.service.AbsenceAttachmentService;
+import com.newwork.core.web.dto.AttachmentDtos.AttachmentView;
+import com.newwork.core.web.dto.AttachmentDtos.UploadStatus;
+import com.newwork.core.web.support.GlobalExceptionHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.security.oauth2.client.servlet.OAuth2ClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.oauth2.resource.servlet.OAuth2ResourceServerAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(
+        controllers = AbsenceAttachmentController.class,
+        excludeAutoConfiguration = {
+                SecurityAutoConfiguration.class,
+                SecurityFilterAutoConfiguration.class,
+                OAuth2ClientAutoConfiguration.class,
+                OAuth2ResourceServerAutoConfiguration.class
+        }
+)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(GlobalExceptionHandler.class)
+class AbsenceAttachmentControllerTest {
+
+    @Autowired MockMvc mvc;
+
+    @MockBean AbsenceAttachmentService service;
+    @MockBean JwtAuthFilter jwtAuthFilter;
+    @MockBean JwtUtil jwtUtil;
+
+    @TempDir Path dir;
+
+    private static final String SHA = "b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9";
+
+    @Test
+    void startUpload_returns201_withLocationAndTusHeaders() throws Exception {
+        var absenceId = UUID.randomUUID();
+        var uploadId = UUID.randomUUID();
+        when(service.startUpload(eq(absenceId), any(), any())).thenReturn(new UploadStatus(uploadId, 0, 11, null));
+
+        mvc.perform(post("/api/absences/{id}/attachments/uploads", absenceId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"filename\":\"note.pdf\",\"contentType\":\"application/pdf\",\"length\":11}"))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", endsWith("/api/absences/" + absenceId + "/attachments/uploads/" + uploadId)))
+                .andExpect(header().string("Tus-Resumable", "1.0.0"))
+                .andExpect(header().string("Upload-Offset", "0"))
+                .andExpect(header().string("Upload-Length", "11"));
+    }
+
+    @Test
+    void patch_appendsAtOffset() throws Exception {
+        var absenceId = UUID.randomUUID();
+        var uploadId = UUID.randomUUID();
+        when(service.append(eq(absenceId), eq(uploadId), eq(5L), any(), any())).thenReturn(new UploadStatus(uploadId, 11, 11, null));
+
+        mvc.perform(patch("/api/absences/{id}/attachments/uploads/{u}", absenceId, uploadId)
+                        .header("Upload-Offset", "5")
+                        .contentType("application/offset+octet-stream")
+                        .content(" world"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Upload-Offset", "11"))
+                .andExpect(jsonPath("$.offset").value(11));
+    }
+
+    @Test
+    void download_servesRanges_andConditionalGet() throws Exception {
+        var absenceId = UUID.randomUUID();
+        var attachmentId = UUID.randomUUID();
+        var file = Files.writeString(dir.resolve(SHA), "hello world");
+        var view = new AttachmentView(attachmentId, absenceId, "note.pdf", "application/pdf", 11, SHA, Instant.now());
+        when(service.download(eq(absenceId), eq(attachmentId), any()))
+                .thenReturn(new AbsenceAttachmentService.Download(view, file));
+        var url = "/api/absences/{id}/attachments/{a}";
+
+        mvc.perform(get(url, absenceId, attachmentId))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + SHA + "\""))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"note.pdf\""))
+                .andExpect(content().string("hello world"));
+
+        mvc.perform(get(url, absenceId, attachmentId).header("Range", "bytes=6-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 6-10/11"))
+                .andExpect(content().string("world"));
+
+        // a stale If-Range gets the whole file
+        mvc.perform(get(url, absenceId, attachmentId).header("Range", "bytes=0-4").header("If-Range", "\"other\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string("hello world"));
+
+        mvc.perform(get(url, absenceId, attachmentId).header("Range", "bytes=20-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */11"));
+
+        mvc.perform(get(url, absenceId, attachmentId).header("If-None-Match", "\"" + SHA + "\""))
+                .andExpect(status().isNotModified());
+    }
+}
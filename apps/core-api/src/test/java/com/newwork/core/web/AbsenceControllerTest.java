@@ -5,10 +5,20 @@ import com.newwork.core.domain.AbsenceStatus;
 import com.newwork.core.domain.AbsenceType;
 import com.newwork.core.security.JwtAuthFilter;
 import com.newwork.core.security.JwtUtil;
+import com.newwork.core.security.Role;
+import com.newwork.core.security.UserPrincipal;
+import com.newwork.core.service.AbsenceFeedService;
 import com.newwork.core.service.AbsenceService;
 import com.newwork.core.web.dto.AbsenceDtos.AbsenceView;
+import com.newwork.core.web.dto.AbsenceDtos.BulkDecisionReq;
+import com.newwork.core.web.dto.AbsenceDtos.BulkDecisionResult;
+import com.newwork.core.web.dto.AbsenceDtos.CalendarEntry;
 import com.newwork.core.web.dto.AbsenceDtos.CreateAbsenceReq;
 import com.newwork.core.web.dto.AbsenceDtos.DecisionReq;
+import com.newwork.core.web.dto.AbsenceDtos.FeedVersion;
+import com.newwork.core.web.dto.AbsenceDtos.PendingCount;
+import com.newwork.core.web.dto.AbsenceDtos.PendingItem;
+import com.newwork.core.web.dto.AbsenceDtos.PendingPage;
 import com.newwork.core.web.support.Etags;
 import com.newwork.core.web.support.GlobalExceptionHandler;
 import org.junit.jupiter.api.Test;
@@ -30,9 +40,10 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -53,6 +64,7 @@ class AbsenceControllerTest {
     @Autowired ObjectMapper om;
 
     @MockBean AbsenceService absenceService;
+    @MockBean AbsenceFeedService feedService;
     @MockBean JwtAuthFilter jwtAuthFilter;
     @MockBean JwtUtil jwtUtil;
 
@@ -62,17 +74,18 @@ class AbsenceControllerTest {
                 AbsenceType.VACATION,
                 LocalDate.parse("2025-10-20"),
                 LocalDate.parse("2025-10-24"),
+                5,
                 "Family trip",
                 AbsenceStatus.PENDING,
                 null,
-                Instant.now(), Instant.now(), ver
+                Instant.now(), Instant.now(), ver, null
         );
     }
 
     @Test
     void list_returns200_andArray() throws Exception {
         UUID empId = UUID.randomUUID();
-        when(absenceService.listForEmployee(eq(empId), any()))
+        when(absenceService.listForEmployee(eq(empId), any(), any()))
                 .thenReturn(List.of(view(UUID.randomUUID(), empId, 0)));
 
         mvc.perform(get("/api/employees/{id}/absences", empId))
@@ -156,4 +169,109 @@ class AbsenceControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(header().string("ETag", "\"1\""));
     }
+
+    @Test
+    void calendar_passesRangeAndStatuses() throws Exception {
+        UUID empId = UUID.randomUUID();
+        var entry = new CalendarEntry(UUID.randomUUID(), empId, "Bob Builder", AbsenceType.VACATION,
+                LocalDate.parse("2025-03-03"), LocalDate.parse("2025-03-07"), AbsenceStatus.APPROVED);
+        when(absenceService.calendar(eq(LocalDate.parse("2025-03-01")), eq(LocalDate.parse("2025-03-31")),
+                eq(List.of(AbsenceStatus.APPROVED)), any()))
+                .thenReturn(List.of(entry));
+
+        mvc.perform(get("/api/absences")
+                        .param("from", "2025-03-01").param("to", "2025-03-31").param("status", "APPROVED"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].employeeName").value("Bob Builder"))
+                .andExpect(jsonPath("$[0].startDate").value("2025-03-03"));
+    }
+
+    @Test
+    void calendar_missingRange_returns400() throws Exception {
+        mvc.perform(get("/api/absences").param("from", "2025-03-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void pending_returnsItems_andNextCursorHeader() throws Exception {
+        var item = new PendingItem(UUID.randomUUID(), UUID.randomUUID(), "Bob Builder", AbsenceType.VACATION,
+                LocalDate.parse("2025-10-20"), LocalDate.parse("2025-10-24"), "Trip", Instant.now(), 0);
+        when(absenceService.pending(eq("c1"), eq(1), any())).thenReturn(new PendingPage(List.of(item), "c2"));
+        when(absenceService.pendingCount(any())).thenReturn(new PendingCount(7));
+
+        mvc.perform(get("/api/absences/pending").param("cursor", "c1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "c2"))
+                .andExpect(jsonPath("$[0].version").value(0));
+
+        mvc.perform(get("/api/absences/pending/count"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(7));
+    }
+
+    @Test
+    void decideAll_returnsPerItemResults() throws Exception {
+        UUID a = UUID.randomUUID(), b = UUID.randomUUID();
+        when(absenceService.decideAll(any(BulkDecisionReq.class), any())).thenReturn(List.of(
+                new BulkDecisionResult(a, 200, null, view(a, UUID.randomUUID(), 1)),
+                new BulkDecisionResult(b, 409, "version_mismatch", null)));
+
+        mvc.perform(post("/api/absences/decisions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"items\":[{\"id\":\"" + a + "\",\"ifMatch\":\"\\\"0\\\"\",\"decision\":\"APPROVE\"}," +
+                                "{\"id\":\"" + b + "\",\"ifMatch\":\"\\\"0\\\"\",\"decision\":\"REJECT\"}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].absence.version").value(1))
+                .andExpect(jsonPath("$[1].error").value("version_mismatch"));
+    }
+
+    @Test
+    void feed_streamsCalendar_then_matchingPoll_is304_withoutRendering() throws Exception {
+        var at = Instant.parse("2025-10-01T08:00:00Z");
+        when(feedService.version(any())).thenReturn(new FeedVersion(3, at));
+        doAnswer(inv -> {
+            inv.<java.io.OutputStream>getArgument(0).write("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n".getBytes());
+            return null;
+        }).when(feedService).writeIcs(any());
+
+        var started = mvc.perform(get("/api/absences/feed.ics"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3-" + at.toEpochMilli() + "\""))
+                .andExpect(header().exists("Last-Modified"))
+                .andExpect(content().contentTypeCompatibleWith("text/calendar"))
+                .andExpect(content().string(startsWith("BEGIN:VCALENDAR")));
+
+        mvc.perform(get("/api/absences/feed.ics").header("If-None-Match", "\"3-" + at.toEpochMilli() + "\""))
+                .andExpect(status().isNotModified());
+        verify(feedService, times(1)).writeIcs(any());
+    }
+
+    @Test
+    void feed_without_bearer_uses_the_feed_token_owner() throws Exception {
+        var owner = new UserPrincipal(UUID.randomUUID(), Role.MANAGER, UUID.randomUUID());
+        when(feedService.byToken("s3cret")).thenReturn(owner);
+        when(feedService.version(owner)).thenReturn(new FeedVersion(0, null));
+
+        mvc.perform(get("/api/absences/feed.ics").param("token", "s3cret"))
+                .andExpect(request().asyncStarted());
+        verify(feedService).version(owner);
+    }
+
+    @Test
+    void feedToken_returns_a_subscribable_url() throws Exception {
+        when(feedService.rotateToken(any())).thenReturn("s3cret");
+
+        mvc.perform(post("/api/absences/feed/token"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").value("s3cret"))
+                .andExpect(jsonPath("$.url").value(endsWith("/api/absences/feed.ics?token=s3cret")));
+
+        mvc.perform(delete("/api/absences/feed/token"))
+                .andExpect(status().isNoContent());
+        verify(feedService).revokeToken(any());
+    }
 }
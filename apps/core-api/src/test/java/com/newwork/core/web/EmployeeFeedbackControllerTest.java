@@ -4,6 +4,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.newwork.core.security.JwtAuthFilter;
 import com.newwork.core.security.JwtUtil;
 import com.newwork.core.service.FeedbackService;
+import com.newwork.core.service.FeedbackSummaryService;
+import com.newwork.core.web.dto.FeedbackDtos.FeedbackPage;
 import com.newwork.core.web.dto.FeedbackDtos.FeedbackView;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
@@ -21,9 +23,12 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -45,6 +50,7 @@ class EmployeeFeedbackControllerTest {
     MockMvc mvc;
 
     @MockBean FeedbackService feedbackService;
+    @MockBean FeedbackSummaryService summaryService;
     @MockBean JwtAuthFilter jwtAuthFilter;
     @MockBean JwtUtil jwtUtil;
 
@@ -53,11 +59,12 @@ class EmployeeFeedbackControllerTest {
         UUID emp = UUID.randomUUID();
         var v = new FeedbackView(UUID.randomUUID(), UUID.randomUUID(),
                 "ok", "Okay.", "vennify/t5-base-grammar-correction", Instant.now());
-        Mockito.when(feedbackService.listForEmployee(any(), any()))
-                .thenReturn(List.of(v));
+        Mockito.when(feedbackService.listForEmployee(any(), any(), any(), anyBoolean(), any()))
+                .thenReturn(new FeedbackPage(List.of(v), "next"));
 
         mvc.perform(get("/api/employees/{id}/feedback", emp))
                 .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "next"))
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].textPolished").value("Okay."));
     }
@@ -68,11 +75,14 @@ class EmployeeFeedbackControllerTest {
         var v = new FeedbackView(UUID.randomUUID(), UUID.randomUUID(),
                 "needs improvemnt", "Needs improvement.", "vennify/t5-base-grammar-correction", Instant.now());
         Mockito.when(feedbackService.createForEmployee(any(), any(), any()))
-                .thenReturn(v);
+                .thenReturn(CompletableFuture.completedFuture(v));
 
-        mvc.perform(post("/api/employees/{id}/feedback", emp)
+        var started = mvc.perform(post("/api/employees/{id}/feedback", emp)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"text\":\"needs improvemnt\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(started))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.textPolished").value("Needs improvement."))
                 .andExpect(jsonPath("$.polishModel").value("vennify/t5-base-grammar-correction"));